@@ -30,24 +30,47 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import org.glpi.api.bulk.BulkExecutor.Operation;
+import org.glpi.api.bulk.WriteFailure;
+import org.glpi.api.bulk.WriteJournal;
+import org.glpi.api.cache.HttpCache;
+import org.glpi.api.cache.ItemCache;
+import org.glpi.api.cache.WriteThrough;
 import org.glpi.api.query.GetAllItemQuery;
 import org.glpi.api.query.GetAnItemQuery;
+import org.glpi.api.query.GetMultipleItemsQuery;
 import org.glpi.api.query.GetSubItemQuery;
+import org.glpi.api.query.Projection;
+import org.glpi.api.query.SearchItemQuery;
 import org.glpi.api.request.ChangeActiveEntitiesRequest;
 import org.glpi.api.request.ChangeActiveProfileRequest;
 import org.glpi.api.request.RecoveryPasswordRequest;
 import org.glpi.api.request.ResetPasswordRequest;
+import org.glpi.api.request.StreamingItemsRequest;
 import org.glpi.api.response.FullSessionModel;
 import org.glpi.api.response.InitSession;
+import org.glpi.api.response.ItemPage;
 import org.glpi.api.utils.Helpers;
+import org.glpi.api.utils.InternTable;
+import org.glpi.api.utils.RequestCoalescer;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
+import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -55,10 +78,19 @@ import retrofit2.Response;
 
 public class GLPI extends ServiceGenerator {
 
+    private static final Gson GSON = new Gson();
+
     private Routes interfaces;
     private String sessionToken = "";
     private String appToken;
     private Context context;
+    private ItemCache itemCache;
+    private WriteJournal writeJournal;
+    private boolean requestCoalescing = false;
+    private volatile boolean sessionRead = false;
+    private final RequestCoalescer<JsonObject> jsonObjectCalls = new RequestCoalescer<>();
+    private final RequestCoalescer<JsonArray> jsonArrayCalls = new RequestCoalescer<>();
+    private final Map<String, JsonObject> searchOptions = new HashMap<>();
 
     /**
      * GLPI REST API Constructor this class will help you to interact with GLPI endpoints
@@ -67,11 +99,128 @@ public class GLPI extends ServiceGenerator {
      * @param glpiUrl is the url glpi instance
      */
     public GLPI(Context context, String glpiUrl) {
-        start(glpiUrl);
+        this(context, glpiUrl, null);
+    }
+
+    /**
+     * GLPI REST API Constructor with a cache for the item read routes
+     *
+     * @param context   is the context
+     * @param glpiUrl   is the url glpi instance
+     * @param httpCache cache used by getItem, getAllItems and getSubItems, null to disable it
+     */
+    public GLPI(Context context, String glpiUrl, HttpCache httpCache) {
+        start(glpiUrl, httpCache);
         this.context = context;
         interfaces = retrofit.create(Routes.class);
     }
 
+    /**
+     * Instance sharing the http client of the parent with its own session
+     */
+    private GLPI(GLPI parent) {
+        this.retrofit = parent.retrofit;
+        this.httpCache = parent.httpCache;
+        this.dispatcher = parent.dispatcher;
+        this.jsonDecoder = parent.jsonDecoder;
+        this.context = parent.context;
+        this.interfaces = parent.interfaces;
+        this.appToken = parent.appToken;
+        this.requestCoalescing = parent.requestCoalescing;
+    }
+
+    /**
+     * Create an instance without session sharing the http client, the http cache and the
+     * decoder of this one, call one of the initSession methods on it before using it. The item
+     * cache and the write journal are not shared since each session can see other items.
+     *
+     * @return the new instance
+     */
+    public GLPI newSession() {
+        return new GLPI(this);
+    }
+
+    /**
+     * Return the cache of the item read routes, to read the hit rate or evict it
+     *
+     * @return the http cache or null if the instance was created without it
+     */
+    public HttpCache getHttpCache() {
+        return httpCache;
+    }
+
+    /**
+     * Enable or disable the coalescing of identical GET requests. When enabled a request that
+     * arrives while an identical one (same method, path, query and session) is in flight is
+     * attached to that call and every caller gets the shared result.
+     *
+     * @param requestCoalescing (default false) true to share identical requests in flight
+     */
+    public void setRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+    }
+
+    /**
+     * (default: 64 and 5): maximum number of requests running at the same time, in total and
+     * to the glpi host, the next requests wait in queue.
+     *
+     * @param maxRequests        maximum number of requests in flight
+     * @param maxRequestsPerHost maximum number of requests in flight to the same host
+     */
+    public void setMaxRequests(int maxRequests, int maxRequestsPerHost) {
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+    }
+
+    /**
+     * Set the cache used by getItem. The items are invalidated by the successful
+     * addItems, updateItems and deleteItems done with this instance.
+     * See {@link org.glpi.api.cache.LruItemCache} to keep the items on the heap or
+     * {@link org.glpi.api.cache.OffHeapItemCache} for large caches outside of the heap and
+     * {@link org.glpi.api.cache.SharedMappedItemCache} to share the items between processes.
+     *
+     * @param itemCache the item cache, null to disable it
+     */
+    public void setItemCache(ItemCache itemCache) {
+        this.itemCache = itemCache;
+    }
+
+    /**
+     * Return the cache used by getItem
+     *
+     * @return the item cache or null when it is disabled
+     */
+    public ItemCache getItemCache() {
+        return itemCache;
+    }
+
+    /**
+     * Set the journal receiving the addItems, updateItems and deleteItems that can not reach
+     * the server. The journaled writes fail with a message telling they will be replayed, see
+     * {@link WriteJournal#replay(GLPI, WriteJournal.ReplayListener)}.
+     *
+     * Only the writes that certainly did not reach the server are journaled, a connection that
+     * fails after the request was sent (a read timeout) is reported as a failure since the
+     * server may have applied it. While the journal holds records the new writes are added to
+     * it instead of being sent, so the replay keeps their order. The addItems streamed from an
+     * iterator are never journaled.
+     *
+     * @param writeJournal the journal, null to disable it
+     */
+    public void setWriteJournal(WriteJournal writeJournal) {
+        this.writeJournal = writeJournal;
+    }
+
+    /**
+     * Share the keys and the short repeated strings of the decoded responses through an intern table,
+     * useful with expand_dropdowns where the same names are repeated on every row.
+     *
+     * @param internTable the table of the shared texts, null to disable the interning
+     */
+    public void setStringInterning(InternTable internTable) {
+        jsonDecoder.setInternTable(internTable);
+    }
+
     /**
      * Request a session token to uses other api endpoints.
      *
@@ -268,9 +417,65 @@ public class GLPI extends ServiceGenerator {
      * @param id       unique identifier of the itemtype
      * @param callback here you are going to get the asynchronous response
      */
-    public void getItem(itemType itemType, String id, final ResponseHandle<JsonObject, String> callback) {
+    public void getItem(final itemType itemType, final String id, final ResponseHandle<JsonObject, String> callback) {
+        Map<String, String> options = new GetAnItemQuery().getQuery();
+        final ItemCache cache = itemCache;
+        if (cache == null) {
+            responseJsonObject(callback, interfaces.getAnItem(getHeader(), itemType.name(), id, options));
+            return;
+        }
+
+        JsonObject cached = cache.get(itemType.name(), id);
+        if (cached != null) {
+            callback.onResponse(cached);
+            return;
+        }
+
+        responseJsonObject(new ResponseHandle<JsonObject, String>() {
+            @Override
+            public void onResponse(JsonObject response) {
+                if (response != null) {
+                    cache.put(itemType.name(), id, response);
+                }
+                callback.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                callback.onFailure(errorMessage);
+            }
+        }, interfaces.getAnItem(getHeader(), itemType.name(), id, options));
+    }
+
+    /**
+     * Return the fields of the projection of the itemtype identified by id. The item cache is
+     * used when it has the item, the projected items are not stored in it.
+     *
+     * @param itemType   These are the item type available on GLPI
+     * @param id         unique identifier of the itemtype
+     * @param projection the fields to return
+     * @param callback   here you are going to get the asynchronous response
+     */
+    public void getItem(itemType itemType, String id, final Projection projection, final ResponseHandle<JsonObject, String> callback) {
+        ItemCache cache = itemCache;
+        JsonObject cached = cache != null ? cache.get(itemType.name(), id) : null;
+        if (cached != null) {
+            callback.onResponse(projection.project(cached));
+            return;
+        }
+
         Map<String, String> options = new GetAnItemQuery().getQuery();
-        responseJsonObject(callback, interfaces.getAnItem(getHeader(), itemType.name(), id, options));
+        responseProjected(interfaces.getAnItem(getHeader(), itemType.name(), id, options), projection, new ResponseHandle<JsonElement, String>() {
+            @Override
+            public void onResponse(JsonElement response) {
+                callback.onResponse(response != null && response.isJsonObject() ? response.getAsJsonObject() : null);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                callback.onFailure(errorMessage);
+            }
+        });
     }
 
     /**
@@ -299,7 +504,135 @@ public class GLPI extends ServiceGenerator {
         responseJsonObject(callback, interfaces.getSubItem(getHeader(), itemType.name(), id, subItemType.name(), options));
     }
 
-    private void responseJsonObject(final ResponseHandle<JsonObject, String> callback, Call<JsonObject> responseCall) {
+    /**
+     * Return the rows of the sub_itemtype for the identified item as an array.
+     *
+     * @param itemType    These are the item type available on GLPI
+     * @param id          unique identifier of the parent itemtype
+     * @param subItemType These are the item type available on GLPI
+     * @param query       the options of the request, null for the default ones
+     * @param callback    here you are going to get the asynchronous response
+     */
+    public void getSubItemRows(String itemType, String id, String subItemType, GetSubItemQuery query, final ResponseHandle<JsonArray, String> callback) {
+        Map<String, String> options = (query != null ? query : new GetSubItemQuery(this.context)).getQuery();
+        responseJsonArray(callback, interfaces.getSubItemRows(getHeader(), itemType, id, subItemType, options));
+    }
+
+    /**
+     * Return a page of the rows of the sub_itemtype for the identified item with the total count
+     * of the Content-Range header, to read all the rows page after page.
+     *
+     * @param itemType    These are the item type available on GLPI
+     * @param id          unique identifier of the parent itemtype
+     * @param subItemType These are the item type available on GLPI
+     * @param query       the options of the request, null for the default ones, its range is replaced
+     * @param start       index of the first row of the page
+     * @param end         index of the last row of the page
+     * @param callback    here you are going to get the asynchronous response
+     */
+    public void getSubItemPage(String itemType, String id, String subItemType, GetSubItemQuery query, int start, int end, final ResponseHandle<ItemPage, String> callback) {
+        sessionRead = true;
+        Map<String, String> options = (query != null ? query : new GetSubItemQuery(this.context)).getQuery();
+        options.put("range", start + "-" + end);
+        interfaces.getSubItemRows(getHeader(), itemType, id, subItemType, options).enqueue(new Callback<JsonArray>() {
+            @Override
+            public void onResponse(@NonNull Call<JsonArray> call, @NonNull Response<JsonArray> response) {
+                if (response.isSuccessful()) {
+                    JsonArray rows = response.body() != null ? response.body() : new JsonArray();
+                    callback.onResponse(new ItemPage(rows, ItemPage.parseTotal(response.headers().get("Content-Range"))));
+                } else {
+                    String errorMessage;
+                    try {
+                        errorMessage = response.errorBody().string();
+                    } catch (Exception ex) {
+                        errorMessage = context.getResources().getString(R.string.error_generic);
+                    }
+                    callback.onFailure(errorMessage);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<JsonArray> call, @NonNull Throwable t) {
+                callback.onFailure(t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Send the request of a retrofit call and decode the response keeping only the fields of the
+     * projection. The decoding runs on the http thread, the callback on the callback executor
+     * of retrofit.
+     */
+    private void responseProjected(Call<?> responseCall, final Projection projection, final ResponseHandle<JsonElement, String> callback) {
+        sessionRead = true;
+        final Executor executor = retrofit.callbackExecutor();
+        retrofit.callFactory().newCall(responseCall.request()).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(@NonNull okhttp3.Call call, @NonNull okhttp3.Response response) {
+                ResponseBody body = response.body();
+                try {
+                    if (response.isSuccessful()) {
+                        JsonElement element = body != null ? jsonDecoder.decode(body.charStream(), projection.getFields()) : null;
+                        deliver(executor, callback, true, element, null);
+                    } else {
+                        String errorMessage;
+                        try {
+                            errorMessage = body.string();
+                        } catch (Exception ex) {
+                            errorMessage = context.getResources().getString(R.string.error_generic);
+                        }
+                        deliver(executor, callback, false, null, errorMessage);
+                    }
+                } catch (Exception ex) {
+                    deliver(executor, callback, false, null, ex.getMessage());
+                } finally {
+                    response.close();
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull okhttp3.Call call, @NonNull IOException e) {
+                deliver(executor, callback, false, null, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Call the callback on the executor, or on the current thread without executor. The
+     * exceptions without message fail with the generic error.
+     */
+    private void deliver(Executor executor, final ResponseHandle<JsonElement, String> callback, final boolean success,
+                         final JsonElement response, String errorMessage) {
+        final String message = success || errorMessage != null
+                ? errorMessage : context.getResources().getString(R.string.error_generic);
+        Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                if (success) {
+                    callback.onResponse(response);
+                } else {
+                    callback.onFailure(message);
+                }
+            }
+        };
+        if (executor != null) {
+            executor.execute(delivery);
+        } else {
+            delivery.run();
+        }
+    }
+
+    private void responseJsonObject(ResponseHandle<JsonObject, String> handle, Call<JsonObject> responseCall) {
+        if ("GET".equals(responseCall.request().method())) {
+            sessionRead = true;
+        }
+        if (requestCoalescing && "GET".equals(responseCall.request().method())) {
+            handle = jsonObjectCalls.join(RequestCoalescer.key(responseCall.request()), handle);
+            if (handle == null) {
+                return;
+            }
+        }
+        final ResponseHandle<JsonObject, String> callback = handle;
         responseCall.enqueue(new Callback<JsonObject>() {
             @Override
             public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
@@ -333,6 +666,67 @@ public class GLPI extends ServiceGenerator {
         responseJsonArray(callback, interfaces.getAllItem(getHeader(), itemType.name(), options));
     }
 
+    /**
+     * Return a collection of rows of the itemtype with the given parameters.
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param query    parameters of the request: range, sort, order, only id...
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void getAllItems(itemType itemType, GetAllItemQuery query, final ResponseHandle<JsonArray, String>  callback) {
+        responseJsonArray(callback, interfaces.getAllItem(getHeader(), itemType.name(), query.getQuery()));
+    }
+
+    /**
+     * Return a collection of rows of the itemtype with only the fields of the projection. When
+     * only the id is asked the server sends only the ids, otherwise the other fields are skipped
+     * while the response is decoded, in background, and never built in memory.
+     *
+     * @param itemType   These are the item type available on GLPI
+     * @param query      parameters of the request: range, sort, order..., null for the default ones
+     * @param projection the fields to return
+     * @param callback   here you are going to get the asynchronous response
+     */
+    public void getAllItems(itemType itemType, GetAllItemQuery query, Projection projection, final ResponseHandle<JsonArray, String> callback) {
+        GetAllItemQuery options = projection.apply(query != null ? query : new GetAllItemQuery(this.context));
+        responseProjected(interfaces.getAllItem(getHeader(), itemType.name(), options.getQuery()), projection, new ResponseHandle<JsonElement, String>() {
+            @Override
+            public void onResponse(JsonElement response) {
+                callback.onResponse(response != null && response.isJsonArray() ? response.getAsJsonArray() : new JsonArray());
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                callback.onFailure(errorMessage);
+            }
+        });
+    }
+
+    /**
+     * Return a page of items with the total count of the Content-Range header. The request is
+     * synchronous, it must not be called from the main thread.
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param query    the options of the request, with the range of the page
+     * @return the page
+     * @throws IOException if the request fails, the message is the error of the server
+     */
+    public ItemPage getItemPage(String itemType, GetAllItemQuery query) throws IOException {
+        sessionRead = true;
+        Response<JsonArray> response = interfaces.getAllItem(getHeader(), itemType, query.getQuery()).execute();
+        if (!response.isSuccessful()) {
+            String errorMessage;
+            try {
+                errorMessage = response.errorBody().string();
+            } catch (Exception ex) {
+                errorMessage = context.getResources().getString(R.string.error_generic);
+            }
+            throw new IOException(errorMessage);
+        }
+        JsonArray rows = response.body() != null ? response.body() : new JsonArray();
+        return new ItemPage(rows, ItemPage.parseTotal(response.headers().get("Content-Range")));
+    }
+
     /**
      * Add an object (or multiple objects) into GLPI.
      *
@@ -342,7 +736,22 @@ public class GLPI extends ServiceGenerator {
      * @param callback here you are going to get the asynchronous response
      */
     public void addItems(itemType itemType, Object payload, final ResponseHandle<JsonArray, String>  callback) {
-        responseJsonArray(callback, interfaces.addItem(getHeader(), itemType.name(), payload));
+        responseJsonArray(afterWrite(itemType, Operation.ADD, null, payload, callback), interfaces.addItem(getHeader(), itemType.name(), payload),
+                new JournalEntry(Operation.ADD, itemType, null, payload));
+    }
+
+    /**
+     * Add multiple objects into GLPI, the objects are serialized and sent while they are taken
+     * from the iterator so the memory used does not depend on the number of objects.
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param items    iterator on the objects with fields of itemtype to be inserted, it is
+     *                 consumed once when the request is sent
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void addItems(itemType itemType, Iterator<?> items, final ResponseHandle<JsonArray, String>  callback) {
+        RequestBody body = new StreamingItemsRequest(items, GSON);
+        responseJsonArray(afterWrite(itemType, Operation.ADD, null, null, callback), interfaces.addItemStream(getHeader(), itemType.name(), body));
     }
 
     /**
@@ -354,7 +763,20 @@ public class GLPI extends ServiceGenerator {
      * @param callback here you are going to get the asynchronous response
      */
     public void updateItems(itemType itemType, String id, Object payload, final ResponseHandle<JsonArray, String>  callback) {
-        responseJsonArray(callback, interfaces.updateItem(getHeader(), itemType.name(), id, payload));
+        responseJsonArray(afterWrite(itemType, Operation.UPDATE, id, payload, callback), interfaces.updateItem(getHeader(), itemType.name(), id, payload),
+                new JournalEntry(Operation.UPDATE, itemType, id, payload));
+    }
+
+    /**
+     * Update multiples objects existing in GLPI.
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param payload  Array of objects with the id and the fields of itemtype to be updated.
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void updateItems(itemType itemType, Object payload, final ResponseHandle<JsonArray, String>  callback) {
+        responseJsonArray(afterWrite(itemType, Operation.UPDATE, null, payload, callback), interfaces.updateMultiplesItem(getHeader(), itemType.name(), payload),
+                new JournalEntry(Operation.UPDATE, itemType, null, payload));
     }
 
     /**
@@ -365,7 +787,8 @@ public class GLPI extends ServiceGenerator {
      * @param callback here you are going to get the asynchronous response
      */
     public void deleteItems(itemType itemType, String id, final ResponseHandle<JsonArray, String>  callback) {
-        responseJsonArray(callback, interfaces.deleteItem(getHeader(), itemType.name(), id));
+        responseJsonArray(afterWrite(itemType, Operation.DELETE, id, null, callback), interfaces.deleteItem(getHeader(), itemType.name(), id),
+                new JournalEntry(Operation.DELETE, itemType, id, null));
     }
 
     /**
@@ -376,10 +799,128 @@ public class GLPI extends ServiceGenerator {
      * @param callback here you are going to get the asynchronous response
      */
     public void deleteItems(itemType itemType, Object payload, final ResponseHandle<JsonArray, String>  callback) {
-        responseJsonArray(callback, interfaces.deleteMultiplesItem(getHeader(), itemType.name(), payload));
+        responseJsonArray(afterWrite(itemType, Operation.DELETE, null, payload, callback), interfaces.deleteMultiplesItem(getHeader(), itemType.name(), payload),
+                new JournalEntry(Operation.DELETE, itemType, null, payload));
+    }
+
+    /**
+     * Wrap the callback of a write to drop the cached reads of the item type and to update
+     * the item cache once it succeeds
+     */
+    private ResponseHandle<JsonArray, String> afterWrite(final itemType itemType, final Operation operation, final String id, final Object payload, final ResponseHandle<JsonArray, String> callback) {
+        return new WriteHandle() {
+            @Override
+            public void onResponse(JsonArray response) {
+                if (httpCache != null) {
+                    httpCache.invalidate(itemType.name());
+                }
+                ItemCache cache = itemCache;
+                if (cache != null && response != null) {
+                    switch (operation) {
+                        case ADD:
+                            WriteThrough.added(cache, itemType.name(), response);
+                            break;
+                        case UPDATE:
+                            WriteThrough.updated(cache, itemType.name(), id, GSON.toJsonTree(payload));
+                            break;
+                        case DELETE:
+                            WriteThrough.deleted(cache, itemType.name(), id, payload == null ? null : GSON.toJsonTree(payload));
+                            break;
+                    }
+                }
+                callback.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                callback.onFailure(errorMessage);
+            }
+
+            @Override
+            public void onFailure(WriteFailure failure, String errorMessage) {
+                writeFailure(callback, failure, errorMessage);
+            }
+        };
     }
 
-    private void responseJsonArray(final ResponseHandle<JsonArray, String>  callback, Call<JsonArray> responseCall) {
+    /**
+     * Give the failure of a write to its callback, with its kind when the callback is a
+     * {@link WriteHandle}
+     */
+    private static void writeFailure(ResponseHandle<JsonArray, String> callback, WriteFailure failure, String errorMessage) {
+        if (callback instanceof WriteHandle) {
+            ((WriteHandle) callback).onFailure(failure, errorMessage);
+        } else {
+            callback.onFailure(errorMessage);
+        }
+    }
+
+    /**
+     * Kind of the failure of a write answered with an error code
+     */
+    private static WriteFailure failure(int code, String errorMessage) {
+        if (code == 413 || (code >= 400 && code < 500 && errorMessage != null
+                && (errorMessage.contains("post_max_size") || errorMessage.contains("max_input_vars")))) {
+            return WriteFailure.TOO_LARGE;
+        }
+        if (code == 504) {
+            return WriteFailure.TIMEOUT;
+        }
+        return code >= 400 && code < 500 ? WriteFailure.REJECTED : WriteFailure.UNKNOWN;
+    }
+
+    /**
+     * Tell if a request failed before it reached the server
+     */
+    private static boolean notSent(Throwable t) {
+        return t instanceof ConnectException
+                || t instanceof UnknownHostException
+                || t instanceof NoRouteToHostException;
+    }
+
+    /**
+     * Wrap the callback of a session change to drop all the cached reads once it succeeds,
+     * the rows visible with the same session token are not the same anymore. Nothing is
+     * dropped when the session did not read anything yet, like a session just opened.
+     */
+    private ResponseHandle<String, String> afterSessionChange(final ResponseHandle<String, String> callback) {
+        return new ResponseHandle<String, String>() {
+            @Override
+            public void onResponse(String response) {
+                if (httpCache != null && sessionRead) {
+                    httpCache.evictAll();
+                }
+                sessionRead = false;
+                callback.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                callback.onFailure(errorMessage);
+            }
+        };
+    }
+
+    private void responseJsonArray(ResponseHandle<JsonArray, String> handle, Call<JsonArray> responseCall) {
+        responseJsonArray(handle, responseCall, null);
+    }
+
+    private void responseJsonArray(ResponseHandle<JsonArray, String> handle, Call<JsonArray> responseCall, final JournalEntry journalEntry) {
+        if ("GET".equals(responseCall.request().method())) {
+            sessionRead = true;
+        }
+        if (requestCoalescing && "GET".equals(responseCall.request().method())) {
+            handle = jsonArrayCalls.join(RequestCoalescer.key(responseCall.request()), handle);
+            if (handle == null) {
+                return;
+            }
+        }
+        final ResponseHandle<JsonArray, String> callback = handle;
+        if (journalEntry != null && journalEntry.queue()) {
+            // older writes wait in the journal, this one is replayed after them
+            writeFailure(callback, WriteFailure.JOURNALED, context.getResources().getString(R.string.write_journaled));
+            return;
+        }
         responseCall.enqueue(new Callback<JsonArray>() {
             @Override
             public void onResponse(@NonNull Call<JsonArray> call, @NonNull Response<JsonArray> response) {
@@ -392,17 +933,74 @@ public class GLPI extends ServiceGenerator {
                     } catch (Exception ex) {
                         errorMessage = context.getResources().getString(R.string.error_generic);
                     }
-                    callback.onFailure(errorMessage);
+                    writeFailure(callback, failure(response.code(), errorMessage), errorMessage);
                 }
             }
 
             @Override
             public void onFailure(@NonNull Call<JsonArray> call, @NonNull Throwable t) {
-                callback.onFailure(t.getMessage());
+                if (journalEntry != null && notSent(t) && journalEntry.append()) {
+                    writeFailure(callback, WriteFailure.JOURNALED, context.getResources().getString(R.string.write_journaled));
+                    return;
+                }
+                WriteFailure failure;
+                if (notSent(t)) {
+                    failure = WriteFailure.NOT_SENT;
+                } else if (t instanceof SocketTimeoutException) {
+                    failure = WriteFailure.TIMEOUT;
+                } else {
+                    failure = WriteFailure.UNKNOWN;
+                }
+                writeFailure(callback, failure, t.getMessage());
             }
         });
     }
 
+    /**
+     * A write to keep in the journal when the server can not be reached or when older writes
+     * wait in the journal
+     */
+    private class JournalEntry {
+        private final Operation operation;
+        private final itemType itemType;
+        private final String id;
+        private final Object payload;
+
+        JournalEntry(Operation operation, itemType itemType, String id, Object payload) {
+            this.operation = operation;
+            this.itemType = itemType;
+            this.id = id;
+            this.payload = payload;
+        }
+
+        /**
+         * Add the write to the journal when it is not empty, the writes of the replay excepted
+         *
+         * @return true if the write was added to the journal and must not be sent
+         */
+        boolean queue() {
+            WriteJournal journal = writeJournal;
+            return journal != null && !journal.isEmpty() && append();
+        }
+
+        /**
+         * @return true if the write was added to the journal
+         */
+        boolean append() {
+            WriteJournal journal = writeJournal;
+            if (journal == null || journal.isReplayPayload(payload)) {
+                return false;
+            }
+            try {
+                journal.append(operation, itemType, id, payload == null ? null : GSON.toJsonTree(payload));
+                return true;
+            } catch (IOException ex) {
+                Log.e("writeJournal", ex.getMessage());
+                return false;
+            }
+        }
+    }
+
     private void responseInitSession(ResponseHandle<String, String>  callback, Call<Void> responseCall, int lost_password_success) {
         responseVoid(callback, responseCall, lost_password_success);
     }
@@ -429,7 +1027,7 @@ public class GLPI extends ServiceGenerator {
     public void changeActiveProfile(String profilesId, final ResponseHandle<String, String>  callback) {
         ChangeActiveProfileRequest requestPost = new ChangeActiveProfileRequest(profilesId);
         int message = R.string.change_active_profile_success;
-        responseVoid(callback, interfaces.changeActiveProfile(getHeader(), profilesId, requestPost), message);
+        responseVoid(afterSessionChange(callback), interfaces.changeActiveProfile(getHeader(), profilesId, requestPost), message);
     }
 
     /**
@@ -442,7 +1040,7 @@ public class GLPI extends ServiceGenerator {
     public void changeActiveEntities(String entitiesId, Boolean is_recursive, final ResponseHandle<String, String>  callback) {
         ChangeActiveEntitiesRequest requestPost = new ChangeActiveEntitiesRequest(entitiesId, is_recursive.toString());
         int message = R.string.change_active_entities_success;
-        responseVoid(callback, interfaces.changeActiveEntities(getHeader(), requestPost), message);
+        responseVoid(afterSessionChange(callback), interfaces.changeActiveEntities(getHeader(), requestPost), message);
     }
 
     private void responseVoid(final ResponseHandle<String, String>  callback, Call<Void> responseCall, final int message) {
@@ -601,13 +1199,157 @@ public class GLPI extends ServiceGenerator {
         return map;
     }
 
-    public void getMultipleItems() {
+    /**
+     * Return the items of a list of (itemtype, id) in one request, in the order of the query.
+     *
+     * @param query    the items to get and the options
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void getMultipleItems(GetMultipleItemsQuery query, final ResponseHandle<JsonArray, String> callback) {
+        responseJsonArray(callback, interfaces.getMultipleItems(getHeader(), query.getQuery()));
     }
 
-    public void listSearchOptions() {
+    /**
+     * List the searchoptions of the item type, their ids are the fields of the search criteria
+     * and columns.
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void listSearchOptions(String itemType, final ResponseHandle<JsonObject, String> callback) {
+        responseJsonObject(callback, interfaces.listSearchOptions(getHeader(), itemType));
     }
 
-    public void searchItems() {
+    /**
+     * Search the items of the item type, the rows of the data are keyed by searchoption id.
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param query    criteria, columns and range of the search
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void searchItems(String itemType, SearchItemQuery query, final ResponseHandle<JsonObject, String> callback) {
+        responseJsonObject(callback, interfaces.searchItems(getHeader(), itemType, query.getQuery()));
+    }
+
+    /**
+     * Search the items of the item type and return only the fields of the projection, asked to
+     * the server as the columns of the search. The searchoptions of the item type are loaded
+     * once per session. Fields without searchoption are not in the rows.
+     *
+     * @param itemType   These are the item type available on GLPI
+     * @param projection the fields to return
+     * @param query      criteria and range of the search, null for the default ones
+     * @param callback   here you are going to get the asynchronous response
+     */
+    public void searchItems(final String itemType, final Projection projection, final SearchItemQuery query, final ResponseHandle<JsonArray, String> callback) {
+        JsonObject options;
+        synchronized (searchOptions) {
+            options = searchOptions.get(itemType);
+        }
+        if (options == null) {
+            listSearchOptions(itemType, new ResponseHandle<JsonObject, String>() {
+                @Override
+                public void onResponse(JsonObject response) {
+                    if (response == null) {
+                        callback.onFailure(context.getResources().getString(R.string.error_generic));
+                        return;
+                    }
+                    synchronized (searchOptions) {
+                        searchOptions.put(itemType, response);
+                    }
+                    searchItems(itemType, projection, query, callback);
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    callback.onFailure(errorMessage);
+                }
+            });
+            return;
+        }
+
+        final Map<String, String> columns = projection.searchColumns(itemType, options);
+        SearchItemQuery search = projection.apply(query != null ? query : new SearchItemQuery(this.context), columns);
+        searchItems(itemType, search, new ResponseHandle<JsonObject, String>() {
+            @Override
+            public void onResponse(JsonObject response) {
+                callback.onResponse(response != null ? projection.rows(response, columns) : new JsonArray());
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                callback.onFailure(errorMessage);
+            }
+        });
+    }
+
+    /**
+     * Count the items of the item type matching the criteria. Only the first row is asked to the
+     * server: the total is read from the Content-Range header of getAllItems when there is no
+     * criteria, and from the totalcount of the search otherwise.
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param criteria the criteria of the search, null to count all the items, its range is ignored
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void countItems(String itemType, SearchItemQuery criteria, final ResponseHandle<Integer, String> callback) {
+        sessionRead = true;
+        if (criteria == null) {
+            GetAllItemQuery query = new GetAllItemQuery(this.context);
+            query.setRange(0, 0);
+            query.setOnlyId(true);
+            interfaces.getAllItem(getHeader(), itemType, query.getQuery()).enqueue(new Callback<JsonArray>() {
+                @Override
+                public void onResponse(@NonNull Call<JsonArray> call, @NonNull Response<JsonArray> response) {
+                    responseCount(callback, response, null);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<JsonArray> call, @NonNull Throwable t) {
+                    callback.onFailure(t.getMessage());
+                }
+            });
+            return;
+        }
+
+        Map<String, String> options = criteria.getQuery();
+        options.put("range", "0-0");
+        interfaces.searchItems(getHeader(), itemType, options).enqueue(new Callback<JsonObject>() {
+            @Override
+            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
+                JsonObject body = response.body();
+                responseCount(callback, response, body != null ? body.get("totalcount") : null);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+                callback.onFailure(t.getMessage());
+            }
+        });
+    }
+
+    private void responseCount(ResponseHandle<Integer, String> callback, Response<?> response, JsonElement totalCount) {
+        if (!response.isSuccessful()) {
+            String errorMessage;
+            try {
+                errorMessage = response.errorBody().string();
+            } catch (Exception ex) {
+                errorMessage = context.getResources().getString(R.string.error_generic);
+            }
+            callback.onFailure(errorMessage);
+            return;
+        }
+
+        int total = ItemPage.parseTotal(response.headers().get("Content-Range"));
+        if (totalCount != null && totalCount.isJsonPrimitive()) {
+            total = totalCount.getAsInt();
+        }
+        if (total < 0) {
+            // no Content-Range when nothing matches
+            JsonElement body = (JsonElement) response.body();
+            total = body != null && body.isJsonArray() ? body.getAsJsonArray().size() : 0;
+        }
+        callback.onResponse(total);
     }
 
     public interface ResponseHandle<T, U> {
@@ -616,6 +1358,20 @@ public class GLPI extends ServiceGenerator {
         void onFailure(U errorMessage);
     }
 
+    /**
+     * Callback of addItems, updateItems and deleteItems told why a write failed, to know if it
+     * can be sent again
+     */
+    public interface WriteHandle extends ResponseHandle<JsonArray, String> {
+        /**
+         * The write failed, called instead of onFailure(String)
+         *
+         * @param failure      why it failed
+         * @param errorMessage the error of the server or of the connection
+         */
+        void onFailure(WriteFailure failure, String errorMessage);
+    }
+
     /**
      * Interface definition for a callback to be invoked when an endpoint return void.
      */
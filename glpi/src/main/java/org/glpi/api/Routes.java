@@ -30,6 +30,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 
+import org.glpi.api.cache.HttpCache;
 import org.glpi.api.request.ChangeActiveEntitiesRequest;
 import org.glpi.api.request.ChangeActiveProfileRequest;
 import org.glpi.api.request.RecoveryPasswordRequest;
@@ -40,6 +41,7 @@ import org.json.JSONObject;
 
 import java.util.Map;
 
+import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
@@ -101,18 +103,34 @@ public interface Routes {
     @GET("getGlpiConfig")
     Call<JsonObject> getGlpiConfig(@HeaderMap Map<String, String> headers);
 
-    @Headers("Content-Type: application/json")
+    @Headers({"Content-Type: application/json", HttpCache.CACHEABLE + ": true"})
     @GET("{itemType}")
     Call<JsonArray> getAllItem(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @QueryMap Map<String, String> options);
 
-    @Headers("Content-Type: application/json")
+    @Headers({"Content-Type: application/json", HttpCache.CACHEABLE + ": true"})
     @GET("{itemType}/{id}")
     Call<JsonObject> getAnItem(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Path("id") String id, @QueryMap Map<String, String> options);
 
-    @Headers("Content-Type: application/json")
+    @Headers({"Content-Type: application/json", HttpCache.CACHEABLE + ": true"})
     @GET("{itemType}/{id}/{subItemType}")
     Call<JsonObject> getSubItem(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Path("id") String id, @Path("subItemType") String subItemType, @QueryMap Map<String, String> options);
 
+    @Headers({"Content-Type: application/json", HttpCache.CACHEABLE + ": true"})
+    @GET("{itemType}/{id}/{subItemType}")
+    Call<JsonArray> getSubItemRows(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Path("id") String id, @Path("subItemType") String subItemType, @QueryMap Map<String, String> options);
+
+    @Headers("Content-Type: application/json")
+    @GET("getMultipleItems")
+    Call<JsonArray> getMultipleItems(@HeaderMap Map<String, String> headers, @QueryMap Map<String, String> options);
+
+    @Headers({"Content-Type: application/json", HttpCache.CACHEABLE + ": true"})
+    @GET("listSearchOptions/{itemType}")
+    Call<JsonObject> listSearchOptions(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType);
+
+    @Headers("Content-Type: application/json")
+    @GET("search/{itemType}")
+    Call<JsonObject> searchItems(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @QueryMap Map<String, String> options);
+
     @Headers("Content-Type: application/json")
     @POST("changeActiveProfile")
     Call<Void> changeActiveProfile(@HeaderMap Map<String, String> headers, @Query("profiles_id") String profileId, @Body ChangeActiveProfileRequest requestPost);
@@ -125,10 +143,17 @@ public interface Routes {
     @POST("{itemType}")
     Call<JsonArray> addItem(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Body Object requestPost);
 
+    @POST("{itemType}")
+    Call<JsonArray> addItemStream(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Body RequestBody requestPost);
+
     @Headers("Content-Type: application/json")
     @PUT("{itemType}/{id}")
     Call<JsonArray> updateItem(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Path("id") String id, @Body Object requestPost);
 
+    @Headers("Content-Type: application/json")
+    @PUT("{itemType}")
+    Call<JsonArray> updateMultiplesItem(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Body Object requestPost);
+
     @Headers("Content-Type: application/json")
     @DELETE("{itemType}/{id}")
     Call<JsonArray> deleteItem(@HeaderMap Map<String, String> headers, @Path("itemType") String itemType, @Path("id") String id);
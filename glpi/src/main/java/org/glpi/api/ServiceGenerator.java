@@ -26,8 +26,13 @@
 
 package org.glpi.api;
 
+import org.glpi.api.cache.HttpCache;
+import org.glpi.api.utils.JsonDecoder;
+import org.glpi.api.utils.JsonDecoderConverterFactory;
+
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -39,6 +44,9 @@ public class ServiceGenerator {
     private static final int WRITE_TIMEOUT = 60;
 
     Retrofit retrofit;
+    HttpCache httpCache;
+    Dispatcher dispatcher;
+    JsonDecoder jsonDecoder = new JsonDecoder();
 
     /**
      * Initial connection configuration
@@ -46,16 +54,38 @@ public class ServiceGenerator {
      * @param url: base url
      */
     void start(String url) {
+        start(url, null);
+    }
+
+    /**
+     * Initial connection configuration
+     *
+     * @param url: base url
+     * @param httpCache: cache for the item read routes, null to disable it
+     */
+    void start(String url, HttpCache httpCache) {
 
-        OkHttpClient okHttpClient = new OkHttpClient().newBuilder()
+        OkHttpClient.Builder builder = new OkHttpClient().newBuilder()
                 .connectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS)
                 .readTimeout(READ_TIMEOUT, TimeUnit.SECONDS)
-                .writeTimeout(WRITE_TIMEOUT, TimeUnit.SECONDS)
-                .build();
+                .writeTimeout(WRITE_TIMEOUT, TimeUnit.SECONDS);
+
+        if (httpCache != null) {
+            httpCache.install(builder);
+        }
+
+        OkHttpClient okHttpClient = builder.build();
+        this.dispatcher = okHttpClient.dispatcher();
+
+        if (httpCache != null) {
+            httpCache.setClient(okHttpClient);
+        }
+        this.httpCache = httpCache;
 
         retrofit = new Retrofit.Builder()
                 .baseUrl(url)
                 .client(okHttpClient)
+                .addConverterFactory(new JsonDecoderConverterFactory(jsonDecoder))
                 .addConverterFactory(GsonConverterFactory.create())
                 .build();
 
@@ -0,0 +1,359 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.bulk;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Send large add, update or delete payloads as several batches.
+ *
+ * The items are split by number of items and by serialized size, up to
+ * maxConcurrentBatches batches are in flight at the same time and the number of items per
+ * batch follows the latency of the server: it grows while the batches are answered faster
+ * than the target latency and shrinks when they are slower.
+ *
+ * A batch refused for its size (413 Request Entity Too Large, or the PHP limits post_max_size
+ * and max_input_vars) is split in two and sent again, down to a single item. Update and delete
+ * can be applied twice, their batches are also split after a timeout (504 or socket timeout).
+ * A timed out add is not sent again, the server may have created the items and a retry would
+ * create them twice. The other failures, like a 401, 403 or a validation error, are not sent
+ * again: every item of the batch gets the error entry once. The batches kept by the write
+ * journal are not sent again, their items get the journal message.
+ *
+ * The per item results are merged in the order of the input.
+ */
+public class BulkExecutor {
+
+    /**
+     * Write applied to the items
+     */
+    public enum Operation {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    private final GLPI glpi;
+    private final Gson gson;
+    private int minItemsPerBatch = 1;
+    private int maxItemsPerBatch = 500;
+    private int itemsPerBatch = 50;
+    private long maxBytesPerBatch = 1024 * 1024;
+    private int maxConcurrentBatches = 4;
+    private long targetLatency = 2000;
+
+    /**
+     * Create an executor
+     *
+     * @param glpi the glpi instance with an active session
+     */
+    public BulkExecutor(GLPI glpi) {
+        this(glpi, new Gson());
+    }
+
+    /**
+     * Create an executor
+     *
+     * @param glpi the glpi instance with an active session
+     * @param gson gson instance used to serialize the items
+     */
+    public BulkExecutor(GLPI glpi, Gson gson) {
+        this.glpi = glpi;
+        this.gson = gson;
+    }
+
+    /**
+     * (default: 1 - 500): bounds of the number of items per batch
+     *
+     * @param min minimum number of items per batch
+     * @param max maximum number of items per batch
+     */
+    public synchronized void setItemsPerBatch(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Invalid batch bounds " + min + "-" + max);
+        }
+        this.minItemsPerBatch = min;
+        this.maxItemsPerBatch = max;
+        this.itemsPerBatch = Math.max(min, Math.min(max, itemsPerBatch));
+    }
+
+    /**
+     * (default: 1 MB): maximum size of the serialized items of a batch, a single item bigger
+     * than this size is sent alone
+     *
+     * @param maxBytesPerBatch size in bytes
+     */
+    public synchronized void setMaxBytesPerBatch(long maxBytesPerBatch) {
+        this.maxBytesPerBatch = maxBytesPerBatch;
+    }
+
+    /**
+     * (default: 4): maximum number of batches in flight
+     *
+     * @param maxConcurrentBatches number of batches
+     */
+    public synchronized void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        this.maxConcurrentBatches = Math.max(1, maxConcurrentBatches);
+    }
+
+    /**
+     * (default: 2000): latency in milliseconds the batch size tries to reach
+     *
+     * @param millis target latency of a batch
+     */
+    public synchronized void setTargetLatency(long millis) {
+        this.targetLatency = Math.max(1, millis);
+    }
+
+    /**
+     * @return the number of items of the next batch, adapted from the observed latency
+     */
+    public synchronized int getItemsPerBatch() {
+        return itemsPerBatch;
+    }
+
+    /**
+     * Apply the operation to all the items
+     *
+     * @param itemType  These are the item type available on GLPI
+     * @param operation add, update or delete
+     * @param items     objects with fields of itemtype, for update and delete they need the id
+     *                  field, for delete the ids alone are accepted too
+     * @param callback  here you are going to get one result per item in the input order
+     */
+    public void execute(itemType itemType, Operation operation, List<?> items, GLPI.ResponseHandle<JsonArray, String> callback) {
+        new Run(itemType, operation, items, callback).dispatch();
+    }
+
+    private static long elapsed(long since) {
+        return (System.nanoTime() - since) / 1000000;
+    }
+
+    private synchronized void adapt(int count, long latency, boolean success) {
+        int next;
+        if (!success) {
+            next = count / 2;
+        } else {
+            // items the server can handle in the target latency, moving at most x2 per batch
+            long fit = count * targetLatency / Math.max(1, latency);
+            next = (int) Math.max(itemsPerBatch / 2, Math.min(itemsPerBatch * 2L, fit));
+        }
+        itemsPerBatch = Math.max(minItemsPerBatch, Math.min(maxItemsPerBatch, next));
+    }
+
+    /**
+     * State of one execute call
+     */
+    private class Run {
+        private final itemType itemType;
+        private final Operation operation;
+        private final GLPI.ResponseHandle<JsonArray, String> callback;
+        private final JsonElement[] inputs;
+        private final int[] sizes;
+        private final JsonElement[] results;
+        private final Deque<int[]> retries = new ArrayDeque<>();
+        private int next = 0;
+        private int inFlight = 0;
+        private int done = 0;
+        private boolean finished = false;
+
+        Run(itemType itemType, Operation operation, List<?> items, GLPI.ResponseHandle<JsonArray, String> callback) {
+            this.itemType = itemType;
+            this.operation = operation;
+            this.callback = callback;
+            this.inputs = new JsonElement[items.size()];
+            this.sizes = new int[items.size()];
+            this.results = new JsonElement[items.size()];
+            for (int i = 0; i < inputs.length; i++) {
+                JsonElement input = gson.toJsonTree(items.get(i));
+                if (operation == Operation.DELETE && input.isJsonPrimitive()) {
+                    JsonObject id = new JsonObject();
+                    id.add("id", input);
+                    input = id;
+                }
+                inputs[i] = input;
+                sizes[i] = input.toString().length();
+            }
+        }
+
+        void dispatch() {
+            while (true) {
+                final int start;
+                final int count;
+                synchronized (this) {
+                    if (finished) {
+                        return;
+                    }
+                    if (done == inputs.length) {
+                        finished = true;
+                        break;
+                    }
+                    if (inFlight >= maxConcurrentBatches) {
+                        return;
+                    }
+
+                    int[] retry = retries.poll();
+                    if (retry != null) {
+                        start = retry[0];
+                        count = retry[1];
+                    } else if (next < inputs.length) {
+                        start = next;
+                        count = batchSize(start);
+                        next += count;
+                    } else {
+                        return;
+                    }
+                    inFlight++;
+                }
+                send(start, count);
+            }
+
+            JsonArray merged = new JsonArray();
+            for (JsonElement result : results) {
+                merged.add(result);
+            }
+            callback.onResponse(merged);
+        }
+
+        private int batchSize(int start) {
+            int limit = getItemsPerBatch();
+            long bytes = sizes[start];
+            int count = 1;
+            while (count < limit && start + count < inputs.length
+                    && bytes + sizes[start + count] <= maxBytesPerBatch) {
+                bytes += sizes[start + count];
+                count++;
+            }
+            return count;
+        }
+
+        private void send(final int start, final int count) {
+            JsonArray batch = new JsonArray();
+            for (int i = start; i < start + count; i++) {
+                batch.add(inputs[i]);
+            }
+            JsonObject payload = new JsonObject();
+            payload.add("input", batch);
+
+            final long sent = System.nanoTime();
+            GLPI.WriteHandle handle = new GLPI.WriteHandle() {
+                @Override
+                public void onResponse(JsonArray response) {
+                    adapt(count, elapsed(sent), true);
+                    synchronized (Run.this) {
+                        for (int i = 0; i < count; i++) {
+                            results[start + i] = response != null && i < response.size()
+                                    ? response.get(i)
+                                    : error(start + i, "Missing result");
+                        }
+                        done += count;
+                        inFlight--;
+                    }
+                    dispatch();
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    onFailure(WriteFailure.UNKNOWN, errorMessage);
+                }
+
+                @Override
+                public void onFailure(WriteFailure failure, String errorMessage) {
+                    adapt(count, elapsed(sent), false);
+                    synchronized (Run.this) {
+                        if (count > 1 && canSplit(failure)) {
+                            int half = count / 2;
+                            retries.push(new int[]{start + half, count - half});
+                            retries.push(new int[]{start, half});
+                        } else {
+                            for (int i = 0; i < count; i++) {
+                                results[start + i] = error(start + i, errorMessage);
+                            }
+                            done += count;
+                        }
+                        inFlight--;
+                    }
+                    dispatch();
+                }
+            };
+
+            switch (operation) {
+                case ADD:
+                    glpi.addItems(itemType, payload, handle);
+                    break;
+                case UPDATE:
+                    glpi.updateItems(itemType, payload, handle);
+                    break;
+                case DELETE:
+                    glpi.deleteItems(itemType, payload, handle);
+                    break;
+            }
+        }
+
+        /**
+         * Tell if a failed batch can be split and sent again, only the batches refused for
+         * their size or their duration can succeed once smaller. The other failures are given
+         * once to every item of the batch.
+         */
+        private boolean canSplit(WriteFailure failure) {
+            switch (failure) {
+                case TOO_LARGE:
+                    return true;
+                case TIMEOUT:
+                    // the server may have applied it, only the idempotent writes are sent again
+                    return operation != Operation.ADD;
+                default:
+                    // refused for its content, not sent at all, or kept by the journal
+                    return false;
+            }
+        }
+
+        /**
+         * Error entry in the format used by GLPI for a failed item
+         */
+        private JsonObject error(int index, String message) {
+            JsonObject error = new JsonObject();
+            JsonElement input = inputs[index];
+            if (operation != Operation.ADD && input.isJsonObject() && input.getAsJsonObject().has("id")) {
+                error.addProperty(input.getAsJsonObject().get("id").getAsString(), false);
+            } else {
+                error.addProperty("id", false);
+            }
+            error.addProperty("message", message);
+            return error;
+        }
+    }
+}
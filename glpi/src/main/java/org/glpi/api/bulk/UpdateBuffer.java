@@ -0,0 +1,319 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.bulk;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for updateItems.
+ *
+ * The fields updated on the same (itemType, id) are merged while they wait, the last value of
+ * a field wins. The pending updates are sent as multiple items PUT through a
+ * {@link BulkExecutor} every flush interval or as soon as maxPendingItems items are waiting.
+ * An item is not sent again while its previous update is in flight: the batches of the
+ * executor can arrive in any order and an older value could overwrite a newer one. Its new
+ * fields wait and are sent once the previous update is answered.
+ *
+ * The results arrive on the callback thread of Retrofit (the main thread on Android),
+ * {@link #close(long, TimeUnit)} must be called from another thread.
+ */
+public class UpdateBuffer {
+
+    private final BulkExecutor executor;
+    private final Gson gson;
+    private final ScheduledExecutorService scheduler;
+    private final Map<itemType, LinkedHashMap<String, JsonObject>> pending = new LinkedHashMap<>();
+    private final Map<itemType, Set<String>> inFlight = new HashMap<>();
+    private int pendingItems = 0;
+    private int flushing = 0;
+    private int maxPendingItems = 500;
+    private long sentUpdates = 0;
+    private long mergedUpdates = 0;
+    private boolean closed = false;
+    private GLPI.ResponseHandle<JsonArray, String> listener;
+
+    /**
+     * Create a buffer flushed every 5 seconds
+     *
+     * @param glpi the glpi instance with an active session
+     */
+    public UpdateBuffer(GLPI glpi) {
+        this(new BulkExecutor(glpi), 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Create a buffer
+     *
+     * @param executor      executor used to send the updates
+     * @param flushInterval interval between two flush
+     * @param unit          unit of the interval
+     */
+    public UpdateBuffer(BulkExecutor executor, long flushInterval, TimeUnit unit) {
+        this.executor = executor;
+        this.gson = new Gson();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "glpi-update-buffer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, flushInterval, flushInterval, unit);
+    }
+
+    /**
+     * (default: 500): number of distinct items waiting that triggers a flush
+     *
+     * @param maxPendingItems number of items
+     */
+    public synchronized void setMaxPendingItems(int maxPendingItems) {
+        this.maxPendingItems = Math.max(1, maxPendingItems);
+    }
+
+    /**
+     * Set the callback receiving the results of each flushed item type
+     *
+     * @param listener callback with one result per item, in the GLPI format
+     */
+    public synchronized void setListener(GLPI.ResponseHandle<JsonArray, String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Queue an update of an item
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param id       the unique identifier of the itemtype
+     * @param fields   object with the fields of itemtype to be updated
+     */
+    public void update(itemType itemType, String id, Object fields) {
+        JsonElement tree = gson.toJsonTree(fields);
+        if (!tree.isJsonObject()) {
+            throw new IllegalArgumentException("fields must be an object");
+        }
+
+        boolean full;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The update buffer is closed");
+            }
+
+            LinkedHashMap<String, JsonObject> items = pending.get(itemType);
+            if (items == null) {
+                items = new LinkedHashMap<>();
+                pending.put(itemType, items);
+            }
+
+            JsonObject item = items.get(id);
+            if (item == null) {
+                item = new JsonObject();
+                item.addProperty("id", id);
+                items.put(id, item);
+                pendingItems++;
+            } else {
+                mergedUpdates++;
+            }
+
+            for (Map.Entry<String, JsonElement> field : tree.getAsJsonObject().entrySet()) {
+                if (!"id".equals(field.getKey())) {
+                    item.add(field.getKey(), field.getValue());
+                }
+            }
+            full = pendingItems >= maxPendingItems;
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Send all the pending updates now, except the items whose previous update is in flight
+     */
+    public void flush() {
+        Map<itemType, LinkedHashMap<String, JsonObject>> batch = new LinkedHashMap<>();
+        final GLPI.ResponseHandle<JsonArray, String> callback;
+        synchronized (this) {
+            int count = 0;
+            Iterator<Map.Entry<itemType, LinkedHashMap<String, JsonObject>>> types = pending.entrySet().iterator();
+            while (types.hasNext()) {
+                Map.Entry<itemType, LinkedHashMap<String, JsonObject>> type = types.next();
+                Set<String> busy = inFlight.get(type.getKey());
+                if (busy == null) {
+                    busy = new HashSet<>();
+                    inFlight.put(type.getKey(), busy);
+                }
+
+                LinkedHashMap<String, JsonObject> ready = new LinkedHashMap<>();
+                Iterator<Map.Entry<String, JsonObject>> items = type.getValue().entrySet().iterator();
+                while (items.hasNext()) {
+                    Map.Entry<String, JsonObject> item = items.next();
+                    if (busy.add(item.getKey())) {
+                        ready.put(item.getKey(), item.getValue());
+                        items.remove();
+                    }
+                }
+                if (type.getValue().isEmpty()) {
+                    types.remove();
+                }
+                if (!ready.isEmpty()) {
+                    batch.put(type.getKey(), ready);
+                    count += ready.size();
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            sentUpdates += count;
+            pendingItems -= count;
+            flushing += batch.size();
+            callback = listener;
+        }
+
+        for (Map.Entry<itemType, LinkedHashMap<String, JsonObject>> entry : batch.entrySet()) {
+            final itemType type = entry.getKey();
+            final Set<String> ids = entry.getValue().keySet();
+            List<JsonObject> items = new ArrayList<>(entry.getValue().values());
+            executor.execute(type, BulkExecutor.Operation.UPDATE, items, new GLPI.ResponseHandle<JsonArray, String>() {
+                @Override
+                public void onResponse(JsonArray response) {
+                    flushed(type, ids);
+                    if (callback != null) {
+                        callback.onResponse(response);
+                    }
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    flushed(type, ids);
+                    if (callback != null) {
+                        callback.onFailure(errorMessage);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop the periodic flush, send the pending updates and wait for their results
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return true if all the updates were answered before the timeout
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+        }
+        scheduler.shutdown();
+        flush();
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            // the items held back by an update in flight are sent when it is answered
+            while (flushing > 0 || pendingItems > 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of items waiting to be sent
+     */
+    public synchronized int getPendingItems() {
+        return pendingItems;
+    }
+
+    /**
+     * @return number of item updates sent to the server
+     */
+    public synchronized long getSentUpdates() {
+        return sentUpdates;
+    }
+
+    /**
+     * @return number of updates merged into an update already waiting
+     */
+    public synchronized long getMergedUpdates() {
+        return mergedUpdates;
+    }
+
+    /**
+     * An update is answered: its items can be sent again, the ones updated meanwhile are sent
+     * now
+     */
+    private void flushed(itemType type, Set<String> ids) {
+        boolean waiting = false;
+        synchronized (this) {
+            inFlight.get(type).removeAll(ids);
+            LinkedHashMap<String, JsonObject> items = pending.get(type);
+            if (items != null) {
+                for (String id : ids) {
+                    if (items.containsKey(id)) {
+                        waiting = true;
+                        break;
+                    }
+                }
+            }
+            flushing--;
+            notifyAll();
+        }
+        if (waiting) {
+            flush();
+        }
+    }
+}
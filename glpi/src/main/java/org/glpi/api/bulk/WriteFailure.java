@@ -0,0 +1,61 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.bulk;
+
+/**
+ * Why a write failed, given to a {@link org.glpi.api.GLPI.WriteHandle}. It tells whether the
+ * server may have applied the write, so whether it can be sent again.
+ */
+public enum WriteFailure {
+    /**
+     * The server answered with a 4xx error, the write was not applied
+     */
+    REJECTED,
+    /**
+     * The request was refused for its size: 413 Payload Too Large, or the PHP limits
+     * post_max_size and max_input_vars. The write was not applied, smaller requests can succeed
+     */
+    TOO_LARGE,
+    /**
+     * The request did not reach the server, the connection could not be opened
+     */
+    NOT_SENT,
+    /**
+     * The request did not reach the server and was added to the write journal, it is sent
+     * again by the replay
+     */
+    JOURNALED,
+    /**
+     * The server did not answer in time: 504 Gateway Timeout or a socket timeout. The server
+     * may have applied the write
+     */
+    TIMEOUT,
+    /**
+     * The server may have applied the write: a 5xx error, or the connection failed after the
+     * request was sent
+     */
+    UNKNOWN
+}
@@ -0,0 +1,510 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.bulk;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of the writes that could not reach the server, stored in a memory
+ * mapped file so the records survive a restart of the process.
+ *
+ * The records are replayed in order: consecutive records with the same operation and item
+ * type are sent as one multiple items request, and in such a run the updates of the same item
+ * are merged so only the last value of each field is sent.
+ *
+ * A record the server rejects (a 4xx error, see {@link WriteFailure#REJECTED} and
+ * {@link WriteFailure#TOO_LARGE}) can never succeed: it is removed from the journal and given
+ * to {@link ReplayListener#onRejected} so the replay goes on with the next records. When a batch
+ * of several records is rejected, its records are sent again one by one to find the rejected
+ * ones. The replay stops on the other failures, the records stay in the journal for the next
+ * replay.
+ *
+ * The mapped pages are written back by the system, call {@link #force()} to wait for the
+ * storage when the records must survive a power loss.
+ */
+public class WriteJournal {
+
+    private static final int MAGIC = 0x474c504a;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int WRITE_POSITION = 8;
+    private static final int REPLAY_POSITION = 16;
+    private static final int INITIAL_SIZE = 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long writePosition;
+    private long replayPosition;
+    private int maxRecordsPerBatch = 100;
+    private boolean replaying = false;
+    private Object replayPayload;
+
+    /**
+     * Listener of a replay
+     */
+    public interface ReplayListener {
+        /**
+         * A batch was accepted by the server
+         *
+         * @param itemType  item type of the batch
+         * @param operation operation of the batch
+         * @param records   number of records of the journal sent in the batch
+         * @param response  result of each item
+         */
+        void onBatch(itemType itemType, BulkExecutor.Operation operation, int records, JsonArray response);
+
+        /**
+         * A record was rejected by the server, it is removed from the journal. Keep its payload
+         * to fix it and send it again.
+         *
+         * @param itemType     item type of the record
+         * @param operation    operation of the record
+         * @param payload      the payload sent, {"input": [...]}
+         * @param errorMessage the error of the server
+         */
+        void onRejected(itemType itemType, BulkExecutor.Operation operation, JsonObject payload, String errorMessage);
+
+        /**
+         * The replay stopped on a failure, the failed records stay in the journal
+         *
+         * @param failure      why the batch failed: {@link WriteFailure#NOT_SENT} when the
+         *                     server can not be reached, {@link WriteFailure#TIMEOUT} or
+         *                     {@link WriteFailure#UNKNOWN} when the server may have applied it
+         * @param errorMessage the error of the server
+         */
+        void onFailure(WriteFailure failure, String errorMessage);
+
+        /**
+         * All the records were replayed
+         *
+         * @param records       number of records replayed
+         * @param elapsedMillis duration of the replay
+         */
+        void onComplete(long records, long elapsedMillis);
+    }
+
+    /**
+     * Open or create a journal
+     *
+     * @param path file of the journal
+     * @throws IOException if the file can not be mapped or is not a journal
+     */
+    public WriteJournal(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        channel = file.getChannel();
+        boolean created = channel.size() == 0;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, channel.size()));
+
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            writePosition = HEADER_SIZE;
+            replayPosition = HEADER_SIZE;
+            saveHeader();
+        } else {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                channel.close();
+                file.close();
+                throw new IOException(path + " is not a write journal");
+            }
+            writePosition = buffer.getLong(WRITE_POSITION);
+            replayPosition = buffer.getLong(REPLAY_POSITION);
+        }
+    }
+
+    /**
+     * (default: 100): maximum number of records sent in one request during the replay
+     *
+     * @param maxRecordsPerBatch number of records
+     */
+    public synchronized void setMaxRecordsPerBatch(int maxRecordsPerBatch) {
+        this.maxRecordsPerBatch = Math.max(1, maxRecordsPerBatch);
+    }
+
+    /**
+     * Append a write at the end of the journal
+     *
+     * @param operation add, update or delete
+     * @param itemType  These are the item type available on GLPI
+     * @param id        id of the item for a single update or delete, null otherwise
+     * @param payload   the payload of the write, null for a single delete
+     * @throws IOException if the file can not grow
+     */
+    public synchronized void append(BulkExecutor.Operation operation, itemType itemType, String id, JsonElement payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(operation.ordinal());
+        out.writeUTF(itemType.name());
+        out.writeUTF(id == null ? "" : id);
+        byte[] json = (payload == null ? "" : payload.toString()).getBytes("UTF-8");
+        out.writeInt(json.length);
+        out.write(json);
+        out.flush();
+
+        byte[] record = bytes.toByteArray();
+        ensureCapacity(writePosition + 4 + record.length);
+        buffer.position((int) writePosition);
+        buffer.putInt(record.length);
+        buffer.put(record);
+        writePosition += 4 + record.length;
+        saveHeader();
+    }
+
+    /**
+     * Tell if a payload is the one sent by the running replay, it must not be journaled again
+     * when the server can not be reached
+     *
+     * @param payload payload of a write
+     * @return true if the payload belongs to the replay
+     */
+    public synchronized boolean isReplayPayload(Object payload) {
+        return payload != null && payload == replayPayload;
+    }
+
+    /**
+     * @return true if no record waits for a replay
+     */
+    public synchronized boolean isEmpty() {
+        return replayPosition == writePosition;
+    }
+
+    /**
+     * @return size in bytes of the records waiting for a replay
+     */
+    public synchronized long getPendingBytes() {
+        return writePosition - replayPosition;
+    }
+
+    /**
+     * Drop the next record, to skip a write that must not be replayed
+     */
+    public synchronized void discardNext() {
+        if (replayPosition < writePosition) {
+            replayPosition += 4 + buffer.getInt((int) replayPosition);
+            compact();
+            saveHeader();
+        }
+    }
+
+    /**
+     * Send the records to the server in order, the rejected records are removed and the replay
+     * stops on the first other failure
+     *
+     * @param glpi     the glpi instance with an active session
+     * @param listener listener of the progress
+     */
+    public void replay(GLPI glpi, ReplayListener listener) {
+        synchronized (this) {
+            if (replaying) {
+                throw new IllegalStateException("A replay is already running");
+            }
+            replaying = true;
+        }
+        new Replay(glpi, listener).next();
+    }
+
+    /**
+     * Write the mapped pages to the storage
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Write the pages and close the file
+     *
+     * @throws IOException if the file can not be closed
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        file.close();
+    }
+
+    private void ensureCapacity(long size) throws IOException {
+        if (size <= buffer.capacity()) {
+            return;
+        }
+        long capacity = buffer.capacity();
+        while (capacity < size) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("The write journal is full");
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void saveHeader() {
+        buffer.putLong(WRITE_POSITION, writePosition);
+        buffer.putLong(REPLAY_POSITION, replayPosition);
+    }
+
+    /**
+     * Start again from the beginning of the file once every record was replayed
+     */
+    private void compact() {
+        if (replayPosition == writePosition) {
+            replayPosition = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+        }
+    }
+
+    /**
+     * A record read back from the file
+     */
+    private static class Record {
+        BulkExecutor.Operation operation;
+        itemType itemType;
+        String id;
+        JsonElement payload;
+        long end;
+    }
+
+    private synchronized Record read(long position) throws IOException {
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) position);
+        int length = view.getInt();
+        Record record = new Record();
+        record.operation = BulkExecutor.Operation.values()[view.get()];
+        record.itemType = itemType.valueOf(readUTF(view));
+        record.id = readUTF(view);
+        byte[] json = new byte[view.getInt()];
+        view.get(json);
+        record.payload = json.length == 0 ? null : new JsonParser().parse(new String(json, "UTF-8"));
+        record.end = position + 4 + length;
+        return record;
+    }
+
+    private static String readUTF(ByteBuffer view) throws IOException {
+        byte[] bytes = new byte[view.getShort() & 0xffff];
+        view.get(bytes);
+        // writeUTF uses modified UTF-8, identical to UTF-8 for the names and ids stored
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * State of one replay
+     */
+    private class Replay {
+        private final GLPI glpi;
+        private final ReplayListener listener;
+        private final long started = System.nanoTime();
+        private long records = 0;
+        // records left to send one by one after the rejection of their batch
+        private int singles = 0;
+
+        Replay(GLPI glpi, ReplayListener listener) {
+            this.glpi = glpi;
+            this.listener = listener;
+        }
+
+        void next() {
+            final List<JsonObject> inputs = new ArrayList<>();
+            final Record first;
+            final long end;
+            final int count;
+            try {
+                synchronized (WriteJournal.this) {
+                    if (replayPosition >= writePosition) {
+                        replaying = false;
+                        replayPayload = null;
+                        compact();
+                        saveHeader();
+                        first = null;
+                        end = 0;
+                        count = 0;
+                    } else {
+                        first = read(replayPosition);
+                        Map<String, JsonObject> updates = new LinkedHashMap<>();
+                        long position = replayPosition;
+                        int read = 0;
+                        Record record = first;
+                        while (true) {
+                            collect(record, inputs, updates);
+                            position = record.end;
+                            read++;
+                            if (read >= (singles > 0 ? 1 : maxRecordsPerBatch) || position >= writePosition) {
+                                break;
+                            }
+                            record = read(position);
+                            if (record.operation != first.operation || record.itemType != first.itemType) {
+                                break;
+                            }
+                        }
+                        inputs.addAll(updates.values());
+                        end = position;
+                        count = read;
+                    }
+                }
+            } catch (IOException ex) {
+                finish();
+                listener.onFailure(WriteFailure.NOT_SENT, ex.getMessage());
+                return;
+            }
+
+            if (first == null) {
+                listener.onComplete(records, (System.nanoTime() - started) / 1000000);
+                return;
+            }
+
+            JsonArray batch = new JsonArray();
+            for (JsonObject input : inputs) {
+                batch.add(input);
+            }
+            final JsonObject payload = new JsonObject();
+            payload.add("input", batch);
+            synchronized (WriteJournal.this) {
+                replayPayload = payload;
+            }
+
+            GLPI.WriteHandle handle = new GLPI.WriteHandle() {
+                @Override
+                public void onResponse(JsonArray response) {
+                    advance(end, count);
+                    records += count;
+                    listener.onBatch(first.itemType, first.operation, count, response);
+                    next();
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    onFailure(WriteFailure.UNKNOWN, errorMessage);
+                }
+
+                @Override
+                public void onFailure(WriteFailure failure, String errorMessage) {
+                    if (failure != WriteFailure.REJECTED && failure != WriteFailure.TOO_LARGE) {
+                        finish();
+                        listener.onFailure(failure, errorMessage);
+                        return;
+                    }
+                    if (count > 1) {
+                        // find the rejected records of the batch
+                        singles = count;
+                        next();
+                        return;
+                    }
+                    advance(end, count);
+                    listener.onRejected(first.itemType, first.operation, payload, errorMessage);
+                    next();
+                }
+            };
+
+            switch (first.operation) {
+                case ADD:
+                    glpi.addItems(first.itemType, payload, handle);
+                    break;
+                case UPDATE:
+                    glpi.updateItems(first.itemType, payload, handle);
+                    break;
+                case DELETE:
+                    glpi.deleteItems(first.itemType, payload, handle);
+                    break;
+            }
+        }
+
+        /**
+         * Remove the records sent from the journal
+         */
+        private void advance(long end, int count) {
+            synchronized (WriteJournal.this) {
+                replayPosition = end;
+                saveHeader();
+            }
+            singles = Math.max(0, singles - count);
+        }
+
+        private void finish() {
+            synchronized (WriteJournal.this) {
+                replaying = false;
+                replayPayload = null;
+            }
+        }
+
+        /**
+         * Add the inputs of a record to the batch, updates are merged by id
+         */
+        private void collect(Record record, List<JsonObject> inputs, Map<String, JsonObject> updates) {
+            List<JsonObject> items = new ArrayList<>();
+            JsonElement input = record.payload != null && record.payload.isJsonObject()
+                    ? record.payload.getAsJsonObject().get("input")
+                    : null;
+            if (input != null && input.isJsonArray()) {
+                for (JsonElement element : input.getAsJsonArray()) {
+                    if (element.isJsonObject()) {
+                        items.add(element.getAsJsonObject());
+                    }
+                }
+            } else if (input != null && input.isJsonObject()) {
+                items.add(input.getAsJsonObject());
+            } else if (!record.id.isEmpty()) {
+                items.add(new JsonObject());
+            }
+
+            for (JsonObject item : items) {
+                if (!record.id.isEmpty() && !item.has("id")) {
+                    item.addProperty("id", record.id);
+                }
+                if (record.operation != BulkExecutor.Operation.UPDATE || !item.has("id")) {
+                    inputs.add(item);
+                    continue;
+                }
+
+                String id = item.get("id").getAsString();
+                JsonObject merged = updates.get(id);
+                if (merged == null) {
+                    updates.put(id, item);
+                } else {
+                    for (Map.Entry<String, JsonElement> field : item.entrySet()) {
+                        merged.add(field.getKey(), field.getValue());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import android.content.Context;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetAllItemQuery;
+import org.glpi.api.utils.ForeignKeys;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names of the dropdown items (Manufacturer, State, Location, ComputerModel...) loaded once, to
+ * show the rows read without expand_dropdowns like the server would show them with it.
+ *
+ * The foreign key fields of a row (manufacturers_id, users_id_tech...) are found with
+ * {@link ForeignKeys}, the name of the item is added next to the id in a field named after the
+ * foreign key with a leading underscore and a _name suffix, for example _manufacturers_id_name,
+ * when its item type is loaded. The ids are kept so the rows can still be written back or
+ * joined. The tree dropdowns use their complete name and the users their real name and first
+ * name, like expand_dropdowns. The ids missing from the loaded names get no name field.
+ */
+public class DropdownResolver {
+
+    private static final String RANGE_EXCEEDED = "ERROR_RANGE_EXCEED_TOTAL";
+    private static final String PREFIX = "_";
+    private static final String SUFFIX = "_name";
+
+    private final GLPI glpi;
+    private final Context context;
+    private final Map<itemType, Map<String, String>> names = new HashMap<>();
+    private int pageSize = 1000;
+
+    private int resolvedCount = 0;
+    private int missCount = 0;
+
+    /**
+     * Create a resolver, load the item types with {@link #load(List, GLPI.ResponseHandle)}
+     *
+     * @param glpi    the glpi instance with an active session
+     * @param context the context used to build the queries
+     */
+    public DropdownResolver(GLPI glpi, Context context) {
+        this.glpi = glpi;
+        this.context = context;
+    }
+
+    /**
+     * (default: 1000): number of items per request while loading
+     *
+     * @param pageSize number of items
+     */
+    public synchronized void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * Find the dropdown item types referenced by the foreign keys of some rows, to load them
+     *
+     * @param rows sample of the rows to resolve
+     * @return the item types referenced
+     */
+    public static List<itemType> referencedItemTypes(JsonArray rows) {
+        Set<itemType> types = new LinkedHashSet<>();
+        for (JsonElement row : rows) {
+            if (!row.isJsonObject()) {
+                continue;
+            }
+            for (Map.Entry<String, JsonElement> field : row.getAsJsonObject().entrySet()) {
+                itemType type = ForeignKeys.itemTypeOf(field.getKey());
+                if (type != null) {
+                    types.add(type);
+                }
+            }
+        }
+        return new ArrayList<>(types);
+    }
+
+    /**
+     * Load or reload the names of the items of some item types, all the pages of each one
+     *
+     * @param itemTypes the dropdown item types
+     * @param callback  receive the number of names loaded, or the first error
+     */
+    public void load(List<itemType> itemTypes, final GLPI.ResponseHandle<Integer, String> callback) {
+        if (itemTypes.isEmpty()) {
+            callback.onResponse(0);
+            return;
+        }
+        final int[] remaining = {itemTypes.size()};
+        final int[] loaded = {0};
+        final boolean[] failed = {false};
+        for (final itemType type : itemTypes) {
+            loadPage(type, 0, new HashMap<String, String>(), new GLPI.ResponseHandle<Map<String, String>, String>() {
+                @Override
+                public void onResponse(Map<String, String> response) {
+                    boolean done;
+                    synchronized (DropdownResolver.this) {
+                        names.put(type, response);
+                        loaded[0] += response.size();
+                        done = --remaining[0] == 0 && !failed[0];
+                    }
+                    if (done) {
+                        callback.onResponse(loaded[0]);
+                    }
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    boolean first;
+                    synchronized (DropdownResolver.this) {
+                        remaining[0]--;
+                        first = !failed[0];
+                        failed[0] = true;
+                    }
+                    if (first) {
+                        callback.onFailure(errorMessage);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Add or replace a name, for example after an item was added or renamed
+     *
+     * @param itemType the dropdown item type
+     * @param id       id of the item
+     * @param name     name shown for the item
+     */
+    public synchronized void put(itemType itemType, String id, String name) {
+        Map<String, String> type = names.get(itemType);
+        if (type == null) {
+            type = new HashMap<>();
+            names.put(itemType, type);
+        }
+        type.put(id, name);
+    }
+
+    /**
+     * Forget the names of an item type
+     *
+     * @param itemType the dropdown item type
+     */
+    public synchronized void invalidate(itemType itemType) {
+        names.remove(itemType);
+    }
+
+    /**
+     * Get the name of an item
+     *
+     * @param itemType the dropdown item type
+     * @param id       id of the item
+     * @return the name or null when the item is not loaded
+     */
+    public synchronized String getName(itemType itemType, String id) {
+        Map<String, String> type = names.get(itemType);
+        return type == null ? null : type.get(id);
+    }
+
+    /**
+     * Get the field where {@link #resolve(JsonObject)} adds the name of a foreign key
+     *
+     * @param field name of the foreign key field, for example manufacturers_id
+     * @return the name field, for example _manufacturers_id_name
+     */
+    public static String nameField(String field) {
+        return PREFIX + field + SUFFIX;
+    }
+
+    /**
+     * Add the names of the foreign keys next to their ids, in place, the ids are not changed
+     *
+     * @param row the item read without expand_dropdowns
+     * @return the same item
+     */
+    public synchronized JsonObject resolve(JsonObject row) {
+        List<Map.Entry<String, JsonElement>> fields = new ArrayList<>(row.entrySet());
+        for (Map.Entry<String, JsonElement> field : fields) {
+            JsonElement value = field.getValue();
+            if (value == null || !value.isJsonPrimitive() || field.getKey().startsWith(PREFIX)) {
+                continue;
+            }
+            itemType type = ForeignKeys.itemTypeOf(field.getKey());
+            Map<String, String> typeNames = type == null ? null : names.get(type);
+            if (typeNames == null) {
+                continue;
+            }
+            String name = typeNames.get(value.getAsString());
+            if (name != null) {
+                row.add(nameField(field.getKey()), new JsonPrimitive(name));
+                resolvedCount++;
+            } else {
+                missCount++;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Add the names of the foreign keys next to their ids in all the rows, in place
+     *
+     * @param rows the items read without expand_dropdowns
+     * @return the same array
+     */
+    public synchronized JsonArray resolve(JsonArray rows) {
+        for (JsonElement row : rows) {
+            if (row.isJsonObject()) {
+                resolve(row.getAsJsonObject());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return number of names added
+     */
+    public synchronized int getResolvedCount() {
+        return resolvedCount;
+    }
+
+    /**
+     * @return number of ids of a loaded item type without name, deleted items or items added
+     * after the load
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    private void loadPage(final itemType type, final int start, final Map<String, String> typeNames,
+                          final GLPI.ResponseHandle<Map<String, String>, String> callback) {
+        final int size;
+        synchronized (this) {
+            size = pageSize;
+        }
+        GetAllItemQuery query = new GetAllItemQuery(context);
+        query.setRange(start, start + size - 1);
+        glpi.getAllItems(type, query, new GLPI.ResponseHandle<JsonArray, String>() {
+            @Override
+            public void onResponse(JsonArray response) {
+                for (JsonElement item : response) {
+                    if (item.isJsonObject()) {
+                        JsonObject object = item.getAsJsonObject();
+                        JsonElement id = object.get("id");
+                        String name = nameOf(object);
+                        if (id != null && name != null) {
+                            typeNames.put(id.getAsString(), name);
+                        }
+                    }
+                }
+                if (response.size() < size) {
+                    callback.onResponse(typeNames);
+                } else {
+                    loadPage(type, start + size, typeNames, callback);
+                }
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                if (errorMessage != null && errorMessage.contains(RANGE_EXCEEDED)) {
+                    // the previous page was the last one
+                    callback.onResponse(typeNames);
+                } else {
+                    callback.onFailure(errorMessage);
+                }
+            }
+        });
+    }
+
+    /**
+     * Name shown by expand_dropdowns: the complete name of the tree dropdowns, the real name
+     * and first name of the users, else the name
+     */
+    private static String nameOf(JsonObject item) {
+        String completeName = text(item, "completename");
+        if (completeName != null && !completeName.isEmpty()) {
+            return completeName;
+        }
+        String realName = text(item, "realname");
+        if (realName != null && !realName.isEmpty()) {
+            String firstName = text(item, "firstname");
+            return firstName == null || firstName.isEmpty() ? realName : realName + " " + firstName;
+        }
+        return text(item, "name");
+    }
+
+    private static String text(JsonObject item, String field) {
+        JsonElement value = item.get(field);
+        return value == null || !value.isJsonPrimitive() ? null : value.getAsString();
+    }
+}
@@ -0,0 +1,320 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetMultipleItemsQuery;
+import org.glpi.api.utils.ForeignKeys;
+import org.glpi.api.utils.Helpers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Attach to the rows the items referenced by their foreign keys (users_id, groups_id,
+ * locations_id...) without one getItem per row.
+ *
+ * The distinct ids of a page are collected per item type, the ones missing from the item cache
+ * are fetched with getMultipleItems in batches of one item type, then every row gets the referenced item in a
+ * field named after the foreign key with a leading underscore, for example _users_id.
+ *
+ * The given rows are not changed, the callback receives new rows holding their fields and the
+ * referenced items. Every row gets its own copy of a referenced item, so changing it does not
+ * change the other rows or the cache.
+ */
+public class ForeignKeyResolver {
+
+    private static final String PREFIX = "_";
+
+    private final GLPI glpi;
+    private final ItemCache cache;
+    private Set<String> fields;
+    private int batchSize = 50;
+
+    private int requestCount = 0;
+    private int hitCount = 0;
+    private int fetchedCount = 0;
+
+    /**
+     * Create a resolver using the item cache of the glpi instance, or an own cache of 10000
+     * items when the instance has none
+     *
+     * @param glpi the glpi instance with an active session
+     */
+    public ForeignKeyResolver(GLPI glpi) {
+        this(glpi, glpi.getItemCache() != null ? glpi.getItemCache() : new LruItemCache(10000));
+    }
+
+    /**
+     * Create a resolver
+     *
+     * @param glpi  the glpi instance with an active session
+     * @param cache cache of the referenced items
+     */
+    public ForeignKeyResolver(GLPI glpi, ItemCache cache) {
+        this.glpi = glpi;
+        this.cache = cache;
+    }
+
+    /**
+     * (default: all the foreign keys): resolve only some fields
+     *
+     * @param fields names of the foreign key fields, null for all
+     */
+    public synchronized void setFields(List<String> fields) {
+        this.fields = fields == null ? null : new LinkedHashSet<>(fields);
+    }
+
+    /**
+     * (default: 50): number of items per getMultipleItems request, the items are in the url
+     *
+     * @param batchSize number of items
+     */
+    public synchronized void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Attach the referenced items to copies of the rows. The ids without item, 0 or not visible
+     * by the session, are not attached.
+     *
+     * @param rows     the items to complete, not changed
+     * @param callback receive the completed rows, in the same order, or the first error
+     */
+    public void resolve(final JsonArray rows, final GLPI.ResponseHandle<JsonArray, String> callback) {
+        final Map<itemType, Map<String, JsonObject>> found = new HashMap<>();
+        final List<Batch> batches = new ArrayList<>();
+        final Set<String> resolvedFields;
+        synchronized (this) {
+            // setFields may change the fields before the responses
+            resolvedFields = fields;
+            Map<itemType, Set<String>> missing = new LinkedHashMap<>();
+            for (Map.Entry<itemType, Set<String>> ids : collect(rows, resolvedFields).entrySet()) {
+                Map<String, JsonObject> items = new HashMap<>();
+                found.put(ids.getKey(), items);
+                for (String id : ids.getValue()) {
+                    JsonObject item = cache.get(ids.getKey().name(), id);
+                    if (item != null) {
+                        hitCount++;
+                        items.put(id, item);
+                    } else {
+                        Set<String> set = missing.get(ids.getKey());
+                        if (set == null) {
+                            set = new LinkedHashSet<>();
+                            missing.put(ids.getKey(), set);
+                        }
+                        set.add(id);
+                    }
+                }
+            }
+
+            for (Map.Entry<itemType, Set<String>> ids : missing.entrySet()) {
+                Batch batch = null;
+                for (String id : ids.getValue()) {
+                    if (batch == null || batch.query.size() >= batchSize) {
+                        batch = new Batch(ids.getKey());
+                        batches.add(batch);
+                    }
+                    batch.query.addItem(ids.getKey().name(), id);
+                }
+            }
+            requestCount += batches.size();
+        }
+
+        if (batches.isEmpty()) {
+            callback.onResponse(attach(rows, found, resolvedFields));
+            return;
+        }
+
+        final int[] remaining = {batches.size()};
+        final boolean[] failed = {false};
+        for (final Batch batch : batches) {
+            glpi.getMultipleItems(batch.query, new GLPI.ResponseHandle<JsonArray, String>() {
+                @Override
+                public void onResponse(JsonArray response) {
+                    boolean done;
+                    synchronized (ForeignKeyResolver.this) {
+                        store(batch.itemType, response, found.get(batch.itemType));
+                        done = --remaining[0] == 0 && !failed[0];
+                    }
+                    if (done) {
+                        callback.onResponse(attach(rows, found, resolvedFields));
+                    }
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    boolean first;
+                    synchronized (ForeignKeyResolver.this) {
+                        remaining[0]--;
+                        first = !failed[0];
+                        failed[0] = true;
+                    }
+                    if (first) {
+                        callback.onFailure(errorMessage);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return number of getMultipleItems requests sent
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return number of referenced items found in the cache
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of referenced items fetched from the server
+     */
+    public synchronized int getFetchedCount() {
+        return fetchedCount;
+    }
+
+    /**
+     * Distinct ids of the foreign keys of the rows, per item type
+     */
+    private static Map<itemType, Set<String>> collect(JsonArray rows, Set<String> fields) {
+        Map<itemType, Set<String>> ids = new LinkedHashMap<>();
+        for (JsonElement row : rows) {
+            if (!row.isJsonObject()) {
+                continue;
+            }
+            for (Map.Entry<String, JsonElement> field : row.getAsJsonObject().entrySet()) {
+                String id = foreignId(field.getKey(), field.getValue(), fields);
+                if (id == null) {
+                    continue;
+                }
+                itemType type = ForeignKeys.itemTypeOf(field.getKey());
+                Set<String> set = ids.get(type);
+                if (set == null) {
+                    set = new LinkedHashSet<>();
+                    ids.put(type, set);
+                }
+                set.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The id of a foreign key to resolve, null for the other fields, the empty values and the
+     * names given by expand_dropdowns
+     */
+    private static String foreignId(String field, JsonElement value, Set<String> fields) {
+        if (field.startsWith(PREFIX) || (fields != null && !fields.contains(field))
+                || value == null || !value.isJsonPrimitive() || !ForeignKeys.isForeignKey(field)) {
+            return null;
+        }
+        String id = value.getAsString();
+        if (id.isEmpty() || "0".equals(id)) {
+            return null;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return null;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Keep the items of a response, the missing ones are errors instead of objects
+     */
+    private void store(itemType itemType, JsonArray response, Map<String, JsonObject> found) {
+        for (JsonElement element : response) {
+            if (!element.isJsonObject() || !element.getAsJsonObject().has("id")) {
+                continue;
+            }
+            JsonObject item = element.getAsJsonObject();
+            String id = item.get("id").getAsString();
+            fetchedCount++;
+            found.put(id, item);
+            cache.put(itemType.name(), id, item);
+        }
+    }
+
+    /**
+     * New rows with the fields of the rows and a copy of the referenced items, the items found
+     * are not changed after the last response so no lock is needed
+     */
+    private static JsonArray attach(JsonArray rows, Map<itemType, Map<String, JsonObject>> found, Set<String> fields) {
+        JsonArray resolved = new JsonArray();
+        for (JsonElement row : rows) {
+            if (!row.isJsonObject()) {
+                resolved.add(row);
+                continue;
+            }
+            JsonObject object = new JsonObject();
+            for (Map.Entry<String, JsonElement> field : row.getAsJsonObject().entrySet()) {
+                object.add(field.getKey(), field.getValue());
+            }
+            for (Map.Entry<String, JsonElement> field : row.getAsJsonObject().entrySet()) {
+                String id = foreignId(field.getKey(), field.getValue(), fields);
+                if (id == null) {
+                    continue;
+                }
+                JsonObject item = found.get(ForeignKeys.itemTypeOf(field.getKey())).get(id);
+                if (item != null) {
+                    object.add(PREFIX + field.getKey(), Helpers.deepCopy(item));
+                }
+            }
+            resolved.add(object);
+        }
+        return resolved;
+    }
+
+    /**
+     * Ids of one item type fetched in one request
+     */
+    private static class Batch {
+        private final itemType itemType;
+        private final GetMultipleItemsQuery query = new GetMultipleItemsQuery();
+
+        Batch(itemType itemType) {
+            // the default options, like getItem: the items are shared with it through the cache
+            this.itemType = itemType;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Disk cache for the item read routes (GET {itemType}, {itemType}/{id} and
+ * {itemType}/{id}/{subItemType}).
+ *
+ * Responses with validators (ETag or Last-Modified) follow the server cache headers and are
+ * revalidated with conditional requests. Responses without validators are kept for the
+ * configured time to live, and once expired they can still be served during the
+ * stale-while-revalidate window while a background request refreshes them.
+ *
+ * OkHttp never stores 206 Partial Content responses, which GLPI sends for the pages of
+ * getAllItems. Each page has its own url (the range is a query parameter), so a page is a
+ * complete response for its url: the 206 responses of the cacheable routes are stored as 200
+ * and given back to the caller with their 206 code and Content-Range header.
+ */
+public class HttpCache {
+
+    /**
+     * Header used on {@link org.glpi.api.Routes} to mark the routes that can be cached,
+     * it is removed before the request is sent
+     */
+    public static final String CACHEABLE = "X-GLPI-Cacheable";
+
+    /**
+     * Header marking the stored responses that were 206 Partial Content
+     */
+    private static final String PARTIAL_CONTENT = "X-GLPI-Partial-Content";
+
+    private static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+    private static final int DEFAULT_TIME_TO_LIVE = 60;
+
+    private final Cache cache;
+    private int timeToLive = DEFAULT_TIME_TO_LIVE;
+    private int staleWhileRevalidate = 0;
+    private Call.Factory client;
+
+    private final AtomicInteger staleCount = new AtomicInteger();
+    private final AtomicInteger revalidateCount = new AtomicInteger();
+
+    /**
+     * Create a cache with the default size of 10 MB
+     *
+     * @param directory where the responses are stored, for example context.getCacheDir()
+     */
+    public HttpCache(File directory) {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a cache
+     *
+     * @param directory where the responses are stored, for example context.getCacheDir()
+     * @param maxSize   maximum size in bytes of the cache on disk
+     */
+    public HttpCache(File directory, long maxSize) {
+        this.cache = new Cache(new File(directory, "glpi-http"), maxSize);
+    }
+
+    /**
+     * (default: 60): seconds a response without validators is considered fresh.
+     *
+     * @param seconds time to live in seconds
+     */
+    public void setTimeToLive(int seconds) {
+        this.timeToLive = seconds;
+    }
+
+    /**
+     * (default: 0): seconds an expired response can still be served while it is refreshed
+     * in background.
+     *
+     * @param seconds stale-while-revalidate window in seconds
+     */
+    public void setStaleWhileRevalidate(int seconds) {
+        this.staleWhileRevalidate = seconds;
+    }
+
+    /**
+     * Configure the http client to use this cache
+     *
+     * @param builder the http client builder
+     * @return the same builder
+     */
+    public OkHttpClient.Builder install(OkHttpClient.Builder builder) {
+        return builder.cache(cache)
+                .addInterceptor(new PartialContentInterceptor())
+                .addInterceptor(new StaleWhileRevalidateInterceptor())
+                .addNetworkInterceptor(new TimeToLiveInterceptor());
+    }
+
+    /**
+     * Set the client used to refresh the stale responses in background
+     *
+     * @param client the http client built with {@link #install(OkHttpClient.Builder)}
+     */
+    public void setClient(Call.Factory client) {
+        this.client = client;
+    }
+
+    /**
+     * Remove from the cache every response of the item type: the list, the items and the
+     * sub items routes.
+     *
+     * @param itemType name of the item type
+     */
+    public void invalidate(String itemType) {
+        String segment = "/" + itemType;
+        try {
+            Iterator<String> urls = cache.urls();
+            while (urls.hasNext()) {
+                String url = urls.next();
+                int index = url.indexOf(segment);
+                while (index >= 0) {
+                    int end = index + segment.length();
+                    if (end == url.length() || url.charAt(end) == '/' || url.charAt(end) == '?') {
+                        urls.remove();
+                        break;
+                    }
+                    index = url.indexOf(segment, end);
+                }
+            }
+        } catch (IOException ex) {
+            evictAll();
+        }
+    }
+
+    /**
+     * Remove all the responses stored
+     */
+    public void evictAll() {
+        try {
+            cache.evictAll();
+        } catch (IOException ignored) {
+            // the cache is unusable, the next requests will go to the network
+        }
+    }
+
+    /**
+     * @return number of http requests that went through the cache
+     */
+    public int getRequestCount() {
+        return cache.requestCount();
+    }
+
+    /**
+     * @return number of responses served from the cache, including the conditional requests
+     * answered with 304 Not Modified
+     */
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    /**
+     * @return number of requests sent to the network
+     */
+    public int getNetworkCount() {
+        return cache.networkCount();
+    }
+
+    /**
+     * @return number of expired responses served during the stale-while-revalidate window
+     */
+    public int getStaleCount() {
+        return staleCount.get();
+    }
+
+    /**
+     * @return number of background refresh started
+     */
+    public int getRevalidateCount() {
+        return revalidateCount.get();
+    }
+
+    /**
+     * @return ratio between the responses served from the cache and the requests, 0 when there
+     * is no request yet
+     */
+    public float getHitRate() {
+        int requests = cache.requestCount();
+        return requests == 0 ? 0f : (float) cache.hitCount() / requests;
+    }
+
+    private static boolean isCacheable(Request request) {
+        return "GET".equals(request.method()) && request.header(CACHEABLE) != null;
+    }
+
+    /**
+     * Serve the expired responses inside the stale-while-revalidate window and refresh them
+     */
+    private class StaleWhileRevalidateInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            final Request request = chain.request();
+            if (staleWhileRevalidate <= 0 || client == null || !isCacheable(request)
+                    || request.cacheControl().noCache()) {
+                return chain.proceed(request);
+            }
+
+            Response cached = chain.proceed(request.newBuilder()
+                    .cacheControl(new CacheControl.Builder()
+                            .onlyIfCached()
+                            .maxStale(staleWhileRevalidate, TimeUnit.SECONDS)
+                            .build())
+                    .build());
+
+            if (!cached.isSuccessful()) {
+                // 504 Unsatisfiable Request, nothing usable in the cache
+                cached.close();
+                return chain.proceed(request);
+            }
+
+            String warning = cached.header("Warning");
+            if (warning != null && warning.startsWith("110")) {
+                staleCount.incrementAndGet();
+                revalidate(request);
+            }
+            return cached;
+        }
+
+        private void revalidate(Request request) {
+            revalidateCount.incrementAndGet();
+            client.newCall(request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build())
+                    .enqueue(new Callback() {
+                        @Override
+                        public void onFailure(Call call, IOException e) {
+                            // keep serving the stale response until the window ends
+                        }
+
+                        @Override
+                        public void onResponse(Call call, Response response) {
+                            response.close();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Give back their 206 code to the pages stored as 200
+     */
+    private static class PartialContentInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            if (response.header(PARTIAL_CONTENT) == null) {
+                return response;
+            }
+            return response.newBuilder()
+                    .code(206)
+                    .removeHeader(PARTIAL_CONTENT)
+                    .build();
+        }
+    }
+
+    /**
+     * Apply the client time to live to the responses sent without validators and keep one
+     * copy per session
+     */
+    private class TimeToLiveInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            if (!isCacheable(request)) {
+                return chain.proceed(request);
+            }
+
+            Response response = chain.proceed(request.newBuilder().removeHeader(CACHEABLE).build());
+            if (!response.isSuccessful()) {
+                return response;
+            }
+
+            Response.Builder builder = response.newBuilder()
+                    .header("Vary", "Session-Token, App-Token");
+
+            if (response.code() == 206) {
+                // a page of getAllItems, complete for its url, see the class documentation
+                builder.code(200).header(PARTIAL_CONTENT, "true");
+            }
+
+            if (response.header("ETag") == null && response.header("Last-Modified") == null) {
+                builder.removeHeader("Pragma")
+                        .removeHeader("Expires")
+                        .header("Cache-Control", "private, max-age=" + timeToLive);
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Cache of items keyed by (itemType, id) used by the item read path of GLPI.getItem and
+ * kept up to date by the writes done through the same GLPI instance.
+ */
+public interface ItemCache {
+
+    /**
+     * Get an item from the cache
+     *
+     * @param itemType name of the item type
+     * @param id       unique identifier of the item
+     * @return a copy of the item or null when it is not cached
+     */
+    JsonObject get(String itemType, String id);
+
+    /**
+     * Add or replace an item in the cache
+     *
+     * @param itemType name of the item type
+     * @param id       unique identifier of the item
+     * @param item     the fields of the item
+     */
+    void put(String itemType, String id, JsonObject item);
+
+    /**
+     * Remove an item from the cache
+     *
+     * @param itemType name of the item type
+     * @param id       unique identifier of the item
+     */
+    void invalidate(String itemType, String id);
+
+    /**
+     * Remove all the items from the cache
+     */
+    void clear();
+}
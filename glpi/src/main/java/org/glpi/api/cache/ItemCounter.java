@@ -0,0 +1,245 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.query.SearchItemQuery;
+import org.glpi.api.utils.RequestCoalescer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item counts for dashboards. Each count costs one request of one row (see
+ * {@link GLPI#countItems(String, SearchItemQuery, GLPI.ResponseHandle)}), the results are kept
+ * for a short time to live and identical counts in flight share the same request. Counts asked
+ * together are sent at the same time, up to the limits of {@link GLPI#setMaxRequests(int, int)}.
+ */
+public class ItemCounter {
+
+    private static final long DEFAULT_TIME_TO_LIVE = TimeUnit.SECONDS.toNanos(30);
+
+    private final GLPI glpi;
+    private final Map<String, Entry> counts = new HashMap<>();
+    private final RequestCoalescer<Integer> inFlight = new RequestCoalescer<>();
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+    private int requestCount = 0;
+    private int hitCount = 0;
+
+    /**
+     * Create a counter
+     *
+     * @param glpi the session used for the requests
+     */
+    public ItemCounter(GLPI glpi) {
+        this.glpi = glpi;
+    }
+
+    /**
+     * (default: 30 seconds): time a count is reused before it is asked again.
+     *
+     * @param duration time to live, 0 to disable the cache
+     * @param unit     unit of the duration
+     */
+    public void setTimeToLive(long duration, TimeUnit unit) {
+        this.timeToLive = unit.toNanos(duration);
+    }
+
+    /**
+     * Count the items of the item type matching the criteria
+     *
+     * @param itemType name of the item type
+     * @param criteria the criteria of the search, null to count all the items
+     * @param callback here you are going to get the asynchronous response
+     */
+    public void count(String itemType, SearchItemQuery criteria, GLPI.ResponseHandle<Integer, String> callback) {
+        final String key = key(itemType, criteria);
+        Entry entry;
+        synchronized (counts) {
+            requestCount++;
+            entry = counts.get(key);
+            if (entry != null && System.nanoTime() - entry.time < timeToLive) {
+                hitCount++;
+            } else {
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            // outside the lock: the callback may ask other counts
+            callback.onResponse(entry.count);
+            return;
+        }
+
+        final GLPI.ResponseHandle<Integer, String> shared = inFlight.join(key, callback);
+        if (shared == null) {
+            return;
+        }
+        glpi.countItems(itemType, criteria, new GLPI.ResponseHandle<Integer, String>() {
+            @Override
+            public void onResponse(Integer response) {
+                synchronized (counts) {
+                    counts.put(key, new Entry(response, System.nanoTime()));
+                }
+                shared.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                shared.onFailure(errorMessage);
+            }
+        });
+    }
+
+    /**
+     * Run several counts at the same time and return them together
+     *
+     * @param counts   the counts by name, for example "open tickets"
+     * @param callback the counts by name once they are all done, -1 for the counts that failed
+     */
+    public void count(Map<String, Count> counts, final GLPI.ResponseHandle<Map<String, Integer>, String> callback) {
+        final Map<String, Integer> results = new LinkedHashMap<>();
+        if (counts.isEmpty()) {
+            callback.onResponse(results);
+            return;
+        }
+        for (String name : counts.keySet()) {
+            results.put(name, null);
+        }
+        final int[] pending = {counts.size()};
+        for (Map.Entry<String, Count> count : counts.entrySet()) {
+            final String name = count.getKey();
+            count(count.getValue().itemType, count.getValue().criteria, new GLPI.ResponseHandle<Integer, String>() {
+                @Override
+                public void onResponse(Integer response) {
+                    done(response);
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    done(-1);
+                }
+
+                private void done(int value) {
+                    boolean last;
+                    synchronized (results) {
+                        results.put(name, value);
+                        last = --pending[0] == 0;
+                    }
+                    if (last) {
+                        callback.onResponse(results);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Forget the counts of an item type, for example after adding or deleting items
+     *
+     * @param itemType name of the item type
+     */
+    public void invalidate(String itemType) {
+        String prefix = itemType + " ";
+        synchronized (counts) {
+            Iterator<String> keys = counts.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().startsWith(prefix)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget all the counts
+     */
+    public void clear() {
+        synchronized (counts) {
+            counts.clear();
+        }
+    }
+
+    /**
+     * @return number of counts asked
+     */
+    public int getRequestCount() {
+        synchronized (counts) {
+            return requestCount;
+        }
+    }
+
+    /**
+     * @return number of counts answered from the cache
+     */
+    public int getHitCount() {
+        synchronized (counts) {
+            return hitCount;
+        }
+    }
+
+    /**
+     * The key of a count: the item type and the criteria sorted, without the range
+     */
+    private static String key(String itemType, SearchItemQuery criteria) {
+        if (criteria == null) {
+            return itemType + " ";
+        }
+        Map<String, String> query = new TreeMap<>(criteria.getQuery());
+        query.remove("range");
+        return itemType + " " + query;
+    }
+
+    /**
+     * A count to run with {@link #count(Map, GLPI.ResponseHandle)}
+     */
+    public static class Count {
+        private final String itemType;
+        private final SearchItemQuery criteria;
+
+        /**
+         * @param itemType name of the item type
+         * @param criteria the criteria of the search, null to count all the items
+         */
+        public Count(String itemType, SearchItemQuery criteria) {
+            this.itemType = itemType;
+            this.criteria = criteria;
+        }
+    }
+
+    private static class Entry {
+        private final int count;
+        private final long time;
+
+        Entry(int count, long time) {
+            this.count = count;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonObject;
+
+import org.glpi.api.utils.Helpers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In memory {@link ItemCache} bounded by number of items, the least recently used item is
+ * evicted first.
+ */
+public class LruItemCache implements ItemCache {
+
+    private final LinkedHashMap<String, JsonObject> items;
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int evictionCount = 0;
+
+    /**
+     * Create the cache
+     *
+     * @param maxItems maximum number of items kept in memory
+     */
+    public LruItemCache(final int maxItems) {
+        if (maxItems <= 0) {
+            throw new IllegalArgumentException("maxItems <= 0");
+        }
+        this.items = new LinkedHashMap<String, JsonObject>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JsonObject> eldest) {
+                if (size() > maxItems) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized JsonObject get(String itemType, String id) {
+        JsonObject item = items.get(key(itemType, id));
+        if (item == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return copy(item);
+    }
+
+    @Override
+    public synchronized void put(String itemType, String id, JsonObject item) {
+        items.put(key(itemType, id), copy(item));
+    }
+
+    @Override
+    public synchronized void invalidate(String itemType, String id) {
+        items.remove(key(itemType, id));
+    }
+
+    @Override
+    public synchronized void clear() {
+        items.clear();
+    }
+
+    /**
+     * @return number of items in the cache
+     */
+    public synchronized int size() {
+        return items.size();
+    }
+
+    /**
+     * @return number of get that found the item
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of get that did not find the item
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of items evicted to respect the maximum size
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static String key(String itemType, String id) {
+        return itemType + "/" + id;
+    }
+
+    /**
+     * Deep copy of the item so the callers can change it, including the nested links and
+     * arrays, without touching the cached one
+     */
+    private static JsonObject copy(JsonObject item) {
+        return Helpers.deepCopy(item);
+    }
+}
@@ -0,0 +1,380 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * {@link ItemCache} storing the items serialized outside of the java heap, in direct or memory
+ * mapped buffers, so millions of items can be kept without growing the heap or the garbage
+ * collection work.
+ *
+ * The buffers are split in segments written one after the other like a log: a put appends the
+ * item to the current segment and when it is full the next one is reused, evicting all the
+ * items it contained. Only a primitive index (hash of the key and location of the record) is
+ * kept on the heap.
+ */
+public class OffHeapItemCache implements ItemCache {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * record: int length, long hash, short key length, key, int value length, value
+     */
+    private static final int RECORD_HEADER = 4 + 8 + 2 + 4;
+
+    private final ByteBuffer[] segments;
+    private final int[] segmentEnd;
+    private final int segmentSize;
+    private int currentSegment = 0;
+
+    private long[] indexKeys;
+    private long[] indexLocations;
+    private int indexSize = 0;
+
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int evictionCount = 0;
+
+    /**
+     * Create the cache in direct buffers
+     *
+     * @param segmentSize  size in bytes of a segment, it is also the maximum size of an item
+     * @param segmentCount number of segments, at least 2
+     */
+    public OffHeapItemCache(int segmentSize, int segmentCount) {
+        this(segmentSize, segmentCount, null);
+    }
+
+    /**
+     * Create the cache in a memory mapped file, the content of the file is not reloaded on the
+     * next start, the file only lets the system page the items out of the memory
+     *
+     * @param file         file mapped for the segments, it is created or truncated
+     * @param segmentSize  size in bytes of a segment, it is also the maximum size of an item
+     * @param segmentCount number of segments, at least 2
+     * @throws IOException if the file can not be mapped
+     */
+    public OffHeapItemCache(File file, int segmentSize, int segmentCount) throws IOException {
+        this(segmentSize, segmentCount, map(file, segmentSize, segmentCount));
+    }
+
+    private OffHeapItemCache(int segmentSize, int segmentCount, ByteBuffer[] mapped) {
+        if (segmentSize <= RECORD_HEADER) {
+            throw new IllegalArgumentException("segmentSize <= " + RECORD_HEADER);
+        }
+        if (segmentCount < 2) {
+            throw new IllegalArgumentException("segmentCount < 2");
+        }
+        this.segmentSize = segmentSize;
+        this.segmentEnd = new int[segmentCount];
+        if (mapped != null) {
+            this.segments = mapped;
+        } else {
+            this.segments = new ByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = ByteBuffer.allocateDirect(segmentSize);
+            }
+        }
+        newIndex(1024);
+    }
+
+    private static ByteBuffer[] map(File file, int segmentSize, int segmentCount) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.setLength((long) segmentSize * segmentCount);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer[] buffers = new ByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+            }
+            return buffers;
+        } finally {
+            // the mappings stay valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    @Override
+    public synchronized JsonObject get(String itemType, String id) {
+        byte[] key = key(itemType, id);
+        int slot = find(hash(key));
+        if (slot < 0) {
+            missCount++;
+            return null;
+        }
+
+        long location = indexLocations[slot];
+        ByteBuffer segment = segments[segmentOf(location)];
+        int offset = offsetOf(location);
+        if (!sameKey(segment, offset, key)) {
+            // two keys with the same hash, only the last one put is kept
+            missCount++;
+            return null;
+        }
+
+        int valueOffset = offset + RECORD_HEADER + key.length;
+        byte[] value = new byte[segment.getInt(valueOffset - 4)];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = segment.get(valueOffset + i);
+        }
+        hitCount++;
+        return new JsonParser().parse(new String(value, UTF_8)).getAsJsonObject();
+    }
+
+    @Override
+    public synchronized void put(String itemType, String id, JsonObject item) {
+        byte[] key = key(itemType, id);
+        byte[] value = item.toString().getBytes(UTF_8);
+        int length = RECORD_HEADER + key.length + value.length;
+        long hash = hash(key);
+        if (length > segmentSize || key.length > Short.MAX_VALUE) {
+            // too large to be cached, drop the previous version so it is not served
+            remove(hash);
+            return;
+        }
+
+        if (segmentEnd[currentSegment] + length > segmentSize) {
+            currentSegment = (currentSegment + 1) % segments.length;
+            evictSegment(currentSegment);
+        }
+
+        ByteBuffer segment = segments[currentSegment];
+        int offset = segmentEnd[currentSegment];
+        segment.position(offset);
+        segment.putInt(length);
+        segment.putLong(hash);
+        segment.putShort((short) key.length);
+        segment.put(key);
+        segment.putInt(value.length);
+        segment.put(value);
+        segmentEnd[currentSegment] = offset + length;
+
+        insert(hash, location(currentSegment, offset));
+    }
+
+    @Override
+    public synchronized void invalidate(String itemType, String id) {
+        remove(hash(key(itemType, id)));
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (int i = 0; i < segmentEnd.length; i++) {
+            segmentEnd[i] = 0;
+        }
+        currentSegment = 0;
+        newIndex(1024);
+    }
+
+    /**
+     * @return number of items in the cache
+     */
+    public synchronized int size() {
+        return indexSize;
+    }
+
+    /**
+     * @return bytes written in the segments, including the old versions of the items not yet
+     * evicted
+     */
+    public synchronized long getUsedBytes() {
+        long used = 0;
+        for (int end : segmentEnd) {
+            used += end;
+        }
+        return used;
+    }
+
+    /**
+     * @return number of get that found the item
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of get that did not find the item
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of items evicted when their segment was reused
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Remove from the index every item still pointing to the segment
+     */
+    private void evictSegment(int index) {
+        ByteBuffer segment = segments[index];
+        int offset = 0;
+        int end = segmentEnd[index];
+        while (offset < end) {
+            int length = segment.getInt(offset);
+            int slot = find(segment.getLong(offset + 4));
+            if (slot >= 0 && indexLocations[slot] == location(index, offset)) {
+                removeSlot(slot);
+                evictionCount++;
+            }
+            offset += length;
+        }
+        segmentEnd[index] = 0;
+    }
+
+    private static boolean sameKey(ByteBuffer segment, int offset, byte[] key) {
+        if (segment.getShort(offset + 12) != key.length) {
+            return false;
+        }
+        int keyOffset = offset + 14;
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(keyOffset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] key(String itemType, String id) {
+        return (itemType + "/" + id).getBytes(UTF_8);
+    }
+
+    /**
+     * 64 bits FNV-1a hash, 0 is kept to mark the free slots of the index
+     */
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xffffffffL);
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    // open addressing index with linear probing
+
+    private void newIndex(int capacity) {
+        indexKeys = new long[capacity];
+        indexLocations = new long[capacity];
+        indexSize = 0;
+    }
+
+    private int slotOf(long hash, int capacity) {
+        return (int) ((hash ^ (hash >>> 32)) & (capacity - 1));
+    }
+
+    private int find(long hash) {
+        int mask = indexKeys.length - 1;
+        int slot = slotOf(hash, indexKeys.length);
+        while (indexKeys[slot] != 0) {
+            if (indexKeys[slot] == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long hash, long location) {
+        if (indexSize + 1 > indexKeys.length * LOAD_FACTOR) {
+            long[] keys = indexKeys;
+            long[] locations = indexLocations;
+            newIndex(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    insert(keys[i], locations[i]);
+                }
+            }
+        }
+
+        int mask = indexKeys.length - 1;
+        int slot = slotOf(hash, indexKeys.length);
+        while (indexKeys[slot] != 0 && indexKeys[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        if (indexKeys[slot] == 0) {
+            indexKeys[slot] = hash;
+            indexSize++;
+        }
+        indexLocations[slot] = location;
+    }
+
+    private void remove(long hash) {
+        int slot = find(hash);
+        if (slot >= 0) {
+            removeSlot(slot);
+        }
+    }
+
+    /**
+     * Free the slot and move back the next entries of the probe sequence, so no tombstone is
+     * needed
+     */
+    private void removeSlot(int slot) {
+        int mask = indexKeys.length - 1;
+        int free = slot;
+        int next = (slot + 1) & mask;
+        while (indexKeys[next] != 0) {
+            int home = slotOf(indexKeys[next], indexKeys.length);
+            // move the entry if its home slot is not between the free slot and itself
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                indexKeys[free] = indexKeys[next];
+                indexLocations[free] = indexLocations[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        indexKeys[free] = 0;
+        indexLocations[free] = 0;
+        indexSize--;
+    }
+}
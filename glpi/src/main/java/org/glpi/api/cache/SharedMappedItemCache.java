@@ -0,0 +1,444 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * {@link ItemCache} stored in one memory mapped file shared by all the processes of the host
+ * that open it with the same parameters, so the items loaded by one process are served to the
+ * others without another request.
+ *
+ * The file is a table of fixed size slots grouped in buckets of a few ways. Readers do not take
+ * any lock: every slot has a version that is odd while the slot is written, a reader copies the
+ * slot and retries when the version changed meanwhile. The mapped buffer has no ordering
+ * guarantee of its own, between processes or on weakly ordered processors, so each slot also
+ * holds a CRC32 of its key and value: a copy mixing two writes, or a slot left half written by
+ * a process that died, does not match it and is read as a miss instead of invalid JSON.
+ *
+ * Writers of a bucket are serialized by a lock inside the process and a {@link FileLock} on the
+ * bucket between processes. When the system does not support file locks the writers of
+ * different processes are not excluded from each other, only write to the same file from one
+ * process in that case.
+ */
+public class SharedMappedItemCache implements ItemCache {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x474c5043; // GLPC
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 64;
+    private static final int WAYS = 4;
+    private static final int MAX_READ_ATTEMPTS = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    // slot: int version, int key length, long hash, long stamp, int value length, int checksum,
+    // key, value
+    private static final int SLOT_VERSION = 0;
+    private static final int KEY_LENGTH = 4;
+    private static final int HASH = 8;
+    private static final int STAMP = 16;
+    private static final int VALUE_LENGTH = 24;
+    private static final int CHECKSUM = 28;
+    private static final int DATA = 32;
+
+    /**
+     * Locks of the buckets for the writers inside the process, shared by the instances opened
+     * on the same file: the file locks are held by the whole process and two overlapping ones
+     * are refused
+     */
+    private static final Object[] locks = new Object[LOCK_STRIPES];
+    private static final Object headerLock = new Object();
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int bucketCount;
+    private final int slotSize;
+
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger missCount = new AtomicInteger();
+    private final AtomicInteger retryCount = new AtomicInteger();
+
+    /**
+     * Open or create the shared cache
+     *
+     * @param path      file shared by the processes, for example in context.getCacheDir()
+     * @param slotCount number of items the cache can hold, rounded up to a multiple of 4
+     * @param slotSize  size in bytes of a slot, an item bigger than slotSize - 32 is not cached
+     * @throws IOException if the file can not be mapped or was created with other parameters
+     */
+    public SharedMappedItemCache(File path, int slotCount, int slotSize) throws IOException {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("slotCount <= 0");
+        }
+        if (slotSize <= DATA || slotSize % 8 != 0) {
+            throw new IllegalArgumentException("slotSize must be a multiple of 8 greater than " + DATA);
+        }
+        this.bucketCount = (slotCount + WAYS - 1) / WAYS;
+        this.slotSize = slotSize;
+
+        long length = HEADER_SIZE + (long) bucketCount * WAYS * slotSize;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("slotCount * slotSize exceeds 2 GB");
+        }
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+        try {
+            synchronized (headerLock) {
+                FileLock lock = channel.lock(0, HEADER_SIZE, false);
+                try {
+                    if (file.length() < HEADER_SIZE) {
+                        file.setLength(length);
+                        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                        buffer.putInt(4, VERSION);
+                        buffer.putInt(8, bucketCount);
+                        buffer.putInt(12, slotSize);
+                        buffer.putInt(0, MAGIC);
+                        buffer.force();
+                    } else {
+                        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                                || buffer.getInt(8) != bucketCount || buffer.getInt(12) != slotSize) {
+                            throw new IOException("Shared cache " + path + " was created with other parameters");
+                        }
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public JsonObject get(String itemType, String id) {
+        byte[] key = key(itemType, id);
+        long hash = hash(key);
+        int bucket = bucketOf(hash);
+        byte[] value = null;
+        for (int way = 0; way < WAYS && value == null; way++) {
+            value = read(slotOffset(bucket * WAYS + way), hash, key);
+        }
+        if (value == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return new JsonParser().parse(new String(value, UTF_8)).getAsJsonObject();
+    }
+
+    @Override
+    public void put(String itemType, String id, JsonObject item) {
+        byte[] key = key(itemType, id);
+        byte[] value = item.toString().getBytes(UTF_8);
+        long hash = hash(key);
+        int bucket = bucketOf(hash);
+        if (DATA + key.length + value.length > slotSize) {
+            // too large to be cached, drop the previous version so it is not served
+            invalidate(itemType, id);
+            return;
+        }
+
+        synchronized (locks[bucket % LOCK_STRIPES]) {
+            FileLock lock = lockBucket(bucket);
+            try {
+                int offset = slotOffset(chooseSlot(bucket, hash, key));
+                int version = beginWrite(offset);
+                buffer.putLong(offset + HASH, hash);
+                buffer.putLong(offset + STAMP, System.currentTimeMillis());
+                buffer.putInt(offset + KEY_LENGTH, key.length);
+                buffer.putInt(offset + VALUE_LENGTH, value.length);
+                buffer.putInt(offset + CHECKSUM, checksum(key, value));
+                for (int i = 0; i < key.length; i++) {
+                    buffer.put(offset + DATA + i, key[i]);
+                }
+                int valueOffset = offset + DATA + key.length;
+                for (int i = 0; i < value.length; i++) {
+                    buffer.put(valueOffset + i, value[i]);
+                }
+                buffer.putInt(offset + SLOT_VERSION, version + 1);
+            } finally {
+                release(lock);
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(String itemType, String id) {
+        byte[] key = key(itemType, id);
+        long hash = hash(key);
+        int bucket = bucketOf(hash);
+        synchronized (locks[bucket % LOCK_STRIPES]) {
+            FileLock lock = lockBucket(bucket);
+            try {
+                for (int way = 0; way < WAYS; way++) {
+                    int offset = slotOffset(bucket * WAYS + way);
+                    if (buffer.getLong(offset + HASH) == hash && sameKey(offset, key)) {
+                        empty(offset);
+                    }
+                }
+            } finally {
+                release(lock);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            synchronized (locks[bucket % LOCK_STRIPES]) {
+                FileLock lock = lockBucket(bucket);
+                try {
+                    for (int way = 0; way < WAYS; way++) {
+                        int offset = slotOffset(bucket * WAYS + way);
+                        if (buffer.getLong(offset + HASH) != 0) {
+                            empty(offset);
+                        }
+                    }
+                } finally {
+                    release(lock);
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the file, the items stay available to the other processes
+     *
+     * @throws IOException if the file can not be closed
+     */
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * @return number of get that found the item
+     */
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of get that did not find the item
+     */
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of reads copied again because a writer changed the slot meanwhile
+     */
+    public int getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Copy the value of the slot if it holds the key, without lock: the copy is retried while a
+     * writer changes the slot and must match the checksum of the slot
+     *
+     * @return the value or null when the slot holds another key or could not be read
+     */
+    private byte[] read(int offset, long hash, byte[] key) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                retryCount.incrementAndGet();
+                Thread.yield();
+            }
+            int version = buffer.getInt(offset + SLOT_VERSION);
+            if ((version & 1) != 0) {
+                // being written, or left half written by a process that died
+                continue;
+            }
+            if (buffer.getLong(offset + HASH) != hash) {
+                if (buffer.getInt(offset + SLOT_VERSION) == version) {
+                    return null;
+                }
+                continue;
+            }
+            int keyLength = buffer.getInt(offset + KEY_LENGTH);
+            int valueLength = buffer.getInt(offset + VALUE_LENGTH);
+            int checksum = buffer.getInt(offset + CHECKSUM);
+            if (keyLength != key.length || valueLength < 0 || DATA + keyLength + valueLength > slotSize) {
+                continue;
+            }
+            byte[] stored = new byte[keyLength];
+            for (int i = 0; i < keyLength; i++) {
+                stored[i] = buffer.get(offset + DATA + i);
+            }
+            byte[] value = new byte[valueLength];
+            int valueOffset = offset + DATA + keyLength;
+            for (int i = 0; i < valueLength; i++) {
+                value[i] = buffer.get(valueOffset + i);
+            }
+            if (buffer.getInt(offset + SLOT_VERSION) != version) {
+                continue;
+            }
+            if (checksum(stored, value) != checksum) {
+                // torn copy: the accesses were reordered, or the writer died
+                continue;
+            }
+            return Arrays.equals(stored, key) ? value : null;
+        }
+        return null;
+    }
+
+    /**
+     * Make the version of the slot odd before changing it
+     *
+     * @return the odd version, the writer sets version + 1 once done
+     */
+    private int beginWrite(int offset) {
+        int version = buffer.getInt(offset + SLOT_VERSION);
+        // an odd version was left by a writer that died, it stays odd
+        version += (version & 1) == 0 ? 1 : 2;
+        buffer.putInt(offset + SLOT_VERSION, version);
+        return version;
+    }
+
+    private void empty(int offset) {
+        int version = beginWrite(offset);
+        buffer.putLong(offset + HASH, 0);
+        buffer.putInt(offset + SLOT_VERSION, version + 1);
+    }
+
+    private static int checksum(byte[] key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * The slot holding the key, else an empty slot, else the oldest slot of the bucket
+     */
+    private int chooseSlot(int bucket, long hash, byte[] key) {
+        int first = bucket * WAYS;
+        int victim = first;
+        long oldest = Long.MAX_VALUE;
+        for (int way = 0; way < WAYS; way++) {
+            int offset = slotOffset(first + way);
+            long slotHash = buffer.getLong(offset + HASH);
+            if (slotHash == hash && sameKey(offset, key)) {
+                return first + way;
+            }
+            boolean unusable = slotHash == 0 || (buffer.getInt(offset + SLOT_VERSION) & 1) != 0;
+            long stamp = unusable ? Long.MIN_VALUE : buffer.getLong(offset + STAMP);
+            if (stamp < oldest) {
+                oldest = stamp;
+                victim = first + way;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Lock the bucket against the writers of the other processes, the caller holds the lock of
+     * the bucket inside the process
+     *
+     * @return the lock or null when the file locks are not supported
+     */
+    private FileLock lockBucket(int bucket) {
+        long position = slotOffset(bucket * WAYS);
+        try {
+            return channel.lock(position, (long) WAYS * slotSize, false);
+        } catch (IOException ex) {
+            // the file lock is not supported, the other processes are not excluded
+            return null;
+        } catch (OverlappingFileLockException ex) {
+            // already held by this process on another channel, the lock of the bucket inside
+            // the process excludes it
+            return null;
+        }
+    }
+
+    private static void release(FileLock lock) {
+        if (lock != null) {
+            try {
+                lock.release();
+            } catch (IOException ignored) {
+                // the lock is released when the channel is closed
+            }
+        }
+    }
+
+    private boolean sameKey(int offset, byte[] key) {
+        if (buffer.getInt(offset + KEY_LENGTH) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + DATA + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bucketOf(long hash) {
+        return (int) (((hash ^ (hash >>> 32)) & 0x7fffffffL) % bucketCount);
+    }
+
+    private int slotOffset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private static byte[] key(String itemType, String id) {
+        return (itemType + "/" + id).getBytes(UTF_8);
+    }
+
+    /**
+     * 64 bits FNV-1a hash, 0 marks the empty slots
+     */
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,131 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Apply the successful writes of addItems, updateItems and deleteItems to an {@link ItemCache}.
+ *
+ * The cache is only invalidated, it is never filled from a write: the responses of addItems
+ * and updateItems hold the ids and a message, not the stored items, and the server fills the
+ * default values, date_mod and the normalized fields. The next getItem of a written item goes
+ * to the server and caches the item it returns.
+ */
+public final class WriteThrough {
+
+    /**
+     * add private constructor
+     */
+    private WriteThrough() {
+    }
+
+    /**
+     * Forget the items created. A new id is usually not cached yet, this only drops an entry
+     * left for an id the server gives again (an item purged then recreated with a forced id).
+     *
+     * @param cache    the item cache
+     * @param itemType name of the item type
+     * @param response response of addItems with the id of each created item
+     */
+    public static void added(ItemCache cache, String itemType, JsonArray response) {
+        for (JsonElement element : response) {
+            if (element.isJsonObject() && element.getAsJsonObject().has("id")) {
+                JsonElement id = element.getAsJsonObject().get("id");
+                if (id.isJsonPrimitive() && !id.getAsJsonPrimitive().isBoolean()) {
+                    cache.invalidate(itemType, id.getAsString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the updated items, the server sets fields like date_mod and normalizes the values
+     * so the payload sent does not give the stored item
+     *
+     * @param cache    the item cache
+     * @param itemType name of the item type
+     * @param id       id given to updateItems, can be null or empty for a multiple update
+     * @param payload  the payload sent, {"input": {...}} or {"input": [{...}, ...]}
+     */
+    public static void updated(ItemCache cache, String itemType, String id, JsonElement payload) {
+        if (id != null && !id.isEmpty()) {
+            cache.invalidate(itemType, id);
+        }
+        for (JsonObject input : inputs(payload)) {
+            if (input.has("id")) {
+                cache.invalidate(itemType, input.get("id").getAsString());
+            }
+        }
+    }
+
+    /**
+     * Remove the deleted items
+     *
+     * @param cache    the item cache
+     * @param itemType name of the item type
+     * @param id       id given to deleteItems, null for a multiple delete
+     * @param payload  the payload sent for a multiple delete, null otherwise
+     */
+    public static void deleted(ItemCache cache, String itemType, String id, JsonElement payload) {
+        if (id != null) {
+            cache.invalidate(itemType, id);
+        }
+        for (JsonObject input : inputs(payload)) {
+            if (input.has("id")) {
+                cache.invalidate(itemType, input.get("id").getAsString());
+            }
+        }
+    }
+
+    private static List<JsonObject> inputs(JsonElement payload) {
+        List<JsonObject> inputs = new ArrayList<>();
+        if (payload == null || !payload.isJsonObject()) {
+            return inputs;
+        }
+
+        JsonElement input = payload.getAsJsonObject().get("input");
+        if (input == null) {
+            return inputs;
+        }
+
+        if (input.isJsonObject()) {
+            inputs.add(input.getAsJsonObject());
+        } else if (input.isJsonArray()) {
+            for (JsonElement element : input.getAsJsonArray()) {
+                if (element.isJsonObject()) {
+                    inputs.add(element.getAsJsonObject());
+                }
+            }
+        }
+        return inputs;
+    }
+}
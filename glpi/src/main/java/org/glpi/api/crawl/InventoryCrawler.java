@@ -0,0 +1,614 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.crawl;
+
+import android.content.Context;
+
+import com.google.gson.JsonArray;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetAllItemQuery;
+import org.glpi.api.response.ItemPage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Export all the items of many item types with a fixed number of worker threads, each one
+ * running one request at a time.
+ *
+ * Every item type starts with a task reading its first page, which gives the total number of
+ * items, the rest of the item type becomes a range task. A worker taking a range bigger than a
+ * page keeps the first half and pushes the second half on its own deque, where idle workers
+ * steal it, so big item types are spread on all the workers while small ones end in one
+ * request.
+ *
+ * The pages received are saved in a checkpoint file, a crawl started again with the same file
+ * only requests the pages still missing. The pages are sorted by id, items added or deleted
+ * during the crawl can shift the ranges.
+ */
+public class InventoryCrawler {
+
+    private static final String RANGE_EXCEEDED = "ERROR_RANGE_EXCEED_TOTAL";
+    private static final char TOTAL = 'T';
+    private static final char PAGE = 'P';
+
+    private final GLPI glpi;
+    private final Context context;
+    private int workerCount = 4;
+    private int pageSize = 500;
+    private int maxAttempts = 3;
+    private boolean expandDropdowns = false;
+    private File checkpointFile;
+
+    private LinkedBlockingDeque<Task>[] deques;
+    private Thread[] workers;
+    private Listener listener;
+    private Writer checkpoint;
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+
+    private final AtomicInteger typeCount = new AtomicInteger();
+    private final AtomicInteger pageCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger stealCount = new AtomicInteger();
+    private final AtomicLong rowCount = new AtomicLong();
+    private long startTime;
+
+    /**
+     * Create a crawler
+     *
+     * @param glpi    the glpi instance with an active session
+     * @param context the context used to build the queries
+     */
+    public InventoryCrawler(GLPI glpi, Context context) {
+        this.glpi = glpi;
+        this.context = context;
+    }
+
+    /**
+     * (default: 4): number of workers, which is the maximum number of requests in flight
+     *
+     * @param workerCount number of threads
+     */
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+    }
+
+    /**
+     * (default: 500): number of items per request
+     *
+     * @param pageSize number of items
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * (default: 3): number of tries of a page before it is reported as failed
+     *
+     * @param maxAttempts number of tries
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * (default: false): show dropdown names instead of ids
+     *
+     * @param expandDropdowns true to expand the dropdowns
+     */
+    public void setExpandDropdowns(boolean expandDropdowns) {
+        this.expandDropdowns = expandDropdowns;
+    }
+
+    /**
+     * (default: none): file where the received pages are saved to resume an interrupted crawl,
+     * it is deleted once the crawl ends without failure
+     *
+     * @param checkpointFile the checkpoint file, null to disable it
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Crawl all the item types of the enumeration
+     *
+     * @param listener receive the pages, called from the worker threads
+     * @throws IOException if the checkpoint file can not be read
+     */
+    public void start(Listener listener) throws IOException {
+        List<String> itemTypes = new ArrayList<>();
+        for (itemType itemType : itemType.values()) {
+            itemTypes.add(itemType.name());
+        }
+        start(itemTypes, listener);
+    }
+
+    /**
+     * Start the crawl in background
+     *
+     * @param itemTypes the item types to export
+     * @param listener  receive the pages, called from the worker threads
+     * @throws IOException if the checkpoint file can not be read
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public synchronized void start(List<String> itemTypes, Listener listener) throws IOException {
+        if (workers != null && !finished) {
+            throw new IllegalStateException("The crawler is already running");
+        }
+        this.listener = listener;
+        this.cancelled = false;
+        this.finished = false;
+        typeCount.set(0);
+        pageCount.set(0);
+        failedCount.set(0);
+        stealCount.set(0);
+        rowCount.set(0);
+        startTime = System.nanoTime();
+
+        deques = new LinkedBlockingDeque[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            deques[i] = new LinkedBlockingDeque<>();
+        }
+
+        List<Task> tasks = resume(itemTypes);
+        pendingTasks.set(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            deques[i % workerCount].addLast(tasks.get(i));
+        }
+        if (checkpointFile != null) {
+            checkpoint = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(checkpointFile, true), "UTF-8"));
+        }
+
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(new Worker(i), "glpi-crawler-" + i);
+            workers[i].start();
+        }
+        if (tasks.isEmpty()) {
+            finish();
+        }
+    }
+
+    /**
+     * Stop taking new pages, the requests in flight end first
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Wait for the end of the crawl
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return true if the crawl ended
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Thread[] threads;
+        synchronized (this) {
+            threads = workers;
+        }
+        if (threads == null) {
+            return true;
+        }
+        for (Thread thread : threads) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return !thread.isAlive() && finished;
+            }
+            thread.join(remaining);
+        }
+        return finished;
+    }
+
+    /**
+     * @return the progress of the current or last crawl
+     */
+    public Stats getStats() {
+        return new Stats(typeCount.get(), pageCount.get(), failedCount.get(), stealCount.get(),
+                rowCount.get(), (System.nanoTime() - startTime) / 1000000);
+    }
+
+    /**
+     * Build the tasks from the checkpoint: the pages missing of the item types with a known
+     * total and a first page task for the others
+     */
+    private List<Task> resume(List<String> itemTypes) throws IOException {
+        Map<String, Integer> totals = new HashMap<>();
+        Map<String, List<int[]>> pages = new HashMap<>();
+        if (checkpointFile != null && checkpointFile.isFile()) {
+            // the last line can be cut by the interruption, "P Computer 0 5" for "P Computer 0 500":
+            // it is dropped so its page is requested again and the next lines start on a new line
+            long complete = completeLength(checkpointFile);
+            if (complete < checkpointFile.length()) {
+                RandomAccessFile file = new RandomAccessFile(checkpointFile, "rw");
+                try {
+                    file.setLength(complete);
+                } finally {
+                    file.close();
+                }
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checkpointFile), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    try {
+                        if (parts.length == 3 && line.charAt(0) == TOTAL) {
+                            totals.put(parts[1], Integer.parseInt(parts[2]));
+                        } else if (parts.length == 4 && line.charAt(0) == PAGE) {
+                            int[] page = new int[]{Integer.parseInt(parts[2]), Integer.parseInt(parts[3])};
+                            List<int[]> done = pages.get(parts[1]);
+                            if (done == null) {
+                                done = new ArrayList<>();
+                                pages.put(parts[1], done);
+                            }
+                            done.add(page);
+                        }
+                    } catch (NumberFormatException ex) {
+                        // not a line of the crawler, its page is requested again
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        for (String itemType : itemTypes) {
+            typeCount.incrementAndGet();
+            Integer total = totals.get(itemType);
+            if (total == null) {
+                tasks.add(new Task(itemType, 0, -1));
+                continue;
+            }
+            List<int[]> done = pages.containsKey(itemType) ? pages.get(itemType) : new ArrayList<int[]>();
+            Collections.sort(done, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] a, int[] b) {
+                    return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+                }
+            });
+            int start = 0;
+            for (int[] page : done) {
+                if (page[0] > start) {
+                    tasks.add(new Task(itemType, start, page[0]));
+                }
+                start = Math.max(start, page[1]);
+            }
+            if (start < total) {
+                tasks.add(new Task(itemType, start, total));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Length of the file up to its last line feed
+     */
+    private static long completeLength(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            long position = input.length();
+            while (position > 0) {
+                input.seek(position - 1);
+                if (input.read() == '\n') {
+                    return position;
+                }
+                position--;
+            }
+            return 0;
+        } finally {
+            input.close();
+        }
+    }
+
+    private void process(int worker, Task task) {
+        while (task.end >= 0 && task.end - task.start > pageSize) {
+            // keep the first half, the second half can be stolen
+            int pages = (task.end - task.start + pageSize - 1) / pageSize;
+            int middle = task.start + (pages / 2) * pageSize;
+            pendingTasks.incrementAndGet();
+            deques[worker].addFirst(new Task(task.itemType, middle, task.end));
+            task = new Task(task.itemType, task.start, middle);
+        }
+
+        int end = task.end >= 0 ? task.end : pageSize;
+        GetAllItemQuery query = new GetAllItemQuery(context);
+        query.setRange(task.start, end - 1);
+        query.setSort("id");
+        query.setOrder(GetAllItemQuery.Order.ASC);
+        if (expandDropdowns) {
+            query.setExpandDropdowns(true);
+        }
+
+        String errorMessage = null;
+        ItemPage page = null;
+        for (int attempt = 0; attempt < maxAttempts && page == null && !cancelled; attempt++) {
+            try {
+                page = glpi.getItemPage(task.itemType, query);
+            } catch (IOException ex) {
+                errorMessage = ex.getMessage();
+                if (errorMessage != null && errorMessage.contains(RANGE_EXCEEDED)) {
+                    // the item type is empty or shrank since its total was read
+                    page = new ItemPage(new JsonArray(), task.start);
+                }
+            }
+        }
+        if (page == null) {
+            if (!cancelled) {
+                failedCount.incrementAndGet();
+                listener.onError(task.itemType, task.start, end, errorMessage);
+            }
+            return;
+        }
+
+        if (task.end < 0) {
+            int total = page.getTotalCount() >= 0 ? page.getTotalCount() : page.getRows().size();
+            save(TOTAL + " " + task.itemType + " " + total);
+            if (total > end) {
+                pendingTasks.incrementAndGet();
+                deques[worker].addFirst(new Task(task.itemType, end, total));
+            }
+        }
+        pageCount.incrementAndGet();
+        rowCount.addAndGet(page.getRows().size());
+        listener.onPage(task.itemType, task.start, page.getRows());
+        save(PAGE + " " + task.itemType + " " + task.start + " " + end);
+    }
+
+    private synchronized void save(String line) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.write(line);
+            checkpoint.write('\n');
+            checkpoint.flush();
+        } catch (IOException ex) {
+            // the crawl goes on, a resume would request the pages again
+        }
+    }
+
+    private void finish() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (checkpoint != null) {
+                try {
+                    checkpoint.close();
+                } catch (IOException ignored) {
+                    // nothing more is written
+                }
+                checkpoint = null;
+                if (!cancelled && failedCount.get() == 0 && !checkpointFile.delete()) {
+                    checkpointFile.deleteOnExit();
+                }
+            }
+        }
+        listener.onComplete(getStats(), cancelled);
+    }
+
+    /**
+     * Take a task of its own deque, last pushed first, or steal the oldest task of another
+     * worker
+     */
+    private Task next(int worker) throws InterruptedException {
+        while (!finished) {
+            Task task = deques[worker].pollFirst();
+            if (task != null) {
+                return task;
+            }
+            for (int i = 1; i < deques.length; i++) {
+                task = deques[(worker + i) % deques.length].pollLast();
+                if (task != null) {
+                    stealCount.incrementAndGet();
+                    return task;
+                }
+            }
+            task = deques[worker].pollFirst(10, TimeUnit.MILLISECONDS);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private class Worker implements Runnable {
+        private final int index;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Task task;
+                while ((task = next(index)) != null) {
+                    try {
+                        if (!cancelled) {
+                            process(index, task);
+                        }
+                    } catch (RuntimeException ex) {
+                        failedCount.incrementAndGet();
+                        listener.onError(task.itemType, task.start, task.end, ex.getMessage());
+                    }
+                    if (pendingTasks.decrementAndGet() == 0) {
+                        finish();
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Items of an item type from start included to end excluded, end is -1 for the first page
+     * when the total is not known yet
+     */
+    private static class Task {
+        private final String itemType;
+        private final int start;
+        private final int end;
+
+        Task(String itemType, int start, int end) {
+            this.itemType = itemType;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Receive the results of a crawl, the methods are called from the worker threads
+     */
+    public interface Listener {
+        /**
+         * A page of items
+         *
+         * @param itemType the item type
+         * @param start    position of the first item of the page
+         * @param rows     the items
+         */
+        void onPage(String itemType, int start, JsonArray rows);
+
+        /**
+         * A page failed after all the tries, it is requested again by a resumed crawl
+         *
+         * @param itemType     the item type
+         * @param start        position of the first item of the page
+         * @param end          position after the last item of the page
+         * @param errorMessage the last error
+         */
+        void onError(String itemType, int start, int end, String errorMessage);
+
+        /**
+         * The crawl ended
+         *
+         * @param stats     the final progress
+         * @param cancelled true if the crawl was cancelled
+         */
+        void onComplete(Stats stats, boolean cancelled);
+    }
+
+    /**
+     * Progress of a crawl
+     */
+    public static class Stats {
+        private final int typeCount;
+        private final int pageCount;
+        private final int failedCount;
+        private final int stealCount;
+        private final long rowCount;
+        private final long elapsedMillis;
+
+        Stats(int typeCount, int pageCount, int failedCount, int stealCount, long rowCount, long elapsedMillis) {
+            this.typeCount = typeCount;
+            this.pageCount = pageCount;
+            this.failedCount = failedCount;
+            this.stealCount = stealCount;
+            this.rowCount = rowCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * @return number of item types of the crawl
+         */
+        public int getTypeCount() {
+            return typeCount;
+        }
+
+        /**
+         * @return number of pages received
+         */
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        /**
+         * @return number of pages failed after all the tries
+         */
+        public int getFailedCount() {
+            return failedCount;
+        }
+
+        /**
+         * @return number of tasks taken from the deque of another worker
+         */
+        public int getStealCount() {
+            return stealCount;
+        }
+
+        /**
+         * @return number of items received
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return milliseconds since the start
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return items received per second
+         */
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? 0 : rowCount * 1000.0 / elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.crawl;
+
+import com.google.gson.JsonArray;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetSubItemQuery;
+import org.glpi.api.response.ItemPage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Get the sub items of many parent items, for example the disks, network ports and software
+ * versions of thousands of computers.
+ *
+ * The parent ids are read from an iterator only when a request slot is free, so the ids can be
+ * streamed. Up to maxConcurrency requests are in flight at the same time, the per host limit of
+ * the http client is set with {@link GLPI#setMaxRequests(int, int)}. The rows are given to the
+ * listener as soon as each request ends, in the order of completion.
+ *
+ * The sub items are read page after page until the total of the Content-Range header is
+ * reached, a parent with more sub items than the page size takes several requests one after
+ * the other.
+ */
+public class SubItemFanOut {
+
+    private final GLPI glpi;
+    private GetSubItemQuery query;
+    private int maxConcurrency = 8;
+    private int pageSize = 50;
+
+    private String itemType;
+    private Iterator<String> parentIds;
+    private List<String> subItemTypes;
+    private Listener listener;
+    private String currentParentId;
+    private int nextSubItemType;
+    private boolean running = false;
+    private boolean cancelled = false;
+
+    private int inFlight = 0;
+    private int completed = 0;
+    private int failed = 0;
+    private long rowCount = 0;
+    private int parentCount = 0;
+    private long startTime;
+    private long endTime;
+
+    /**
+     * Create a fan out
+     *
+     * @param glpi the glpi instance with an active session
+     */
+    public SubItemFanOut(GLPI glpi) {
+        this.glpi = glpi;
+    }
+
+    /**
+     * (default: 8): maximum number of requests in flight
+     *
+     * @param maxConcurrency number of requests
+     */
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    /**
+     * (default: 50): number of sub items asked by each request
+     *
+     * @param pageSize number of sub items
+     */
+    public synchronized void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * (default: the default options): options of every sub item request, for example
+     * expand_dropdowns, the range is replaced by the one of each page
+     *
+     * @param query the options of the requests
+     */
+    public synchronized void setQuery(GetSubItemQuery query) {
+        this.query = query;
+    }
+
+    /**
+     * Start the requests
+     *
+     * @param itemType     These are the item type available on GLPI
+     * @param parentIds    the ids of the parent items, read while the requests progress
+     * @param subItemTypes the sub item types requested for every parent
+     * @param listener     receive the rows, the errors and the end
+     */
+    public void run(itemType itemType, Iterator<String> parentIds, List<itemType> subItemTypes, Listener listener) {
+        List<String> names = new ArrayList<>();
+        for (itemType subItemType : subItemTypes) {
+            names.add(subItemType.name());
+        }
+        run(itemType.name(), parentIds, names, listener);
+    }
+
+    /**
+     * Start the requests
+     *
+     * @param itemType     These are the item type available on GLPI
+     * @param parentIds    the ids of the parent items, read while the requests progress
+     * @param subItemTypes the sub item types requested for every parent
+     * @param listener     receive the rows, the errors and the end
+     */
+    public void run(String itemType, Iterator<String> parentIds, List<String> subItemTypes, Listener listener) {
+        synchronized (this) {
+            if (running) {
+                throw new IllegalStateException("The fan out is already running");
+            }
+            if (subItemTypes.isEmpty()) {
+                throw new IllegalArgumentException("No sub item type");
+            }
+            this.itemType = itemType;
+            this.parentIds = parentIds;
+            this.subItemTypes = new ArrayList<>(subItemTypes);
+            this.listener = listener;
+            this.currentParentId = null;
+            this.nextSubItemType = 0;
+            this.running = true;
+            this.cancelled = false;
+            this.inFlight = 0;
+            this.completed = 0;
+            this.failed = 0;
+            this.rowCount = 0;
+            this.parentCount = 0;
+            this.startTime = System.nanoTime();
+            this.endTime = 0;
+        }
+        schedule();
+    }
+
+    /**
+     * Do not start new requests, the requests in flight still end and the listener is
+     * completed after them. The next pages of the sub items read when cancelled are not
+     * requested.
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+        }
+        schedule();
+    }
+
+    /**
+     * @return the progress of the current or last run
+     */
+    public synchronized Stats getStats() {
+        long end = endTime != 0 ? endTime : System.nanoTime();
+        return new Stats(parentCount, completed, failed, inFlight, rowCount, (end - startTime) / 1000000);
+    }
+
+    /**
+     * Start requests until maxConcurrency is reached or there is nothing left, then complete the
+     * listener when the last request ended
+     */
+    private void schedule() {
+        List<String[]> calls = new ArrayList<>();
+        Stats done = null;
+        Listener doneListener = null;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            while (!cancelled && inFlight < maxConcurrency) {
+                if (currentParentId == null || nextSubItemType >= subItemTypes.size()) {
+                    if (!parentIds.hasNext()) {
+                        break;
+                    }
+                    currentParentId = parentIds.next();
+                    nextSubItemType = 0;
+                    parentCount++;
+                }
+                calls.add(new String[]{currentParentId, subItemTypes.get(nextSubItemType++)});
+                inFlight++;
+            }
+            if (calls.isEmpty() && inFlight == 0) {
+                running = false;
+                endTime = System.nanoTime();
+                done = getStats();
+                doneListener = listener;
+            }
+        }
+
+        if (done != null) {
+            doneListener.onComplete(done);
+            return;
+        }
+        for (String[] call : calls) {
+            request(call[0], call[1], 0);
+        }
+    }
+
+    private void request(final String parentId, final String subItemType, final int start) {
+        final Listener callListener;
+        final GetSubItemQuery callQuery;
+        final int callPageSize;
+        synchronized (this) {
+            callListener = listener;
+            callQuery = query;
+            callPageSize = pageSize;
+        }
+        glpi.getSubItemPage(itemType, parentId, subItemType, callQuery, start, start + callPageSize - 1, new GLPI.ResponseHandle<ItemPage, String>() {
+            @Override
+            public void onResponse(ItemPage page) {
+                JsonArray rows = page.getRows();
+                int next = start + rows.size();
+                // without Content-Range a full page may not be the last one
+                boolean more = !rows.isEmpty()
+                        && (page.getTotalCount() >= 0 ? next < page.getTotalCount() : rows.size() >= callPageSize);
+                synchronized (SubItemFanOut.this) {
+                    completed++;
+                    rowCount += rows.size();
+                    more = more && !cancelled;
+                    if (!more) {
+                        inFlight--;
+                    }
+                }
+                callListener.onRows(parentId, subItemType, rows);
+                if (more) {
+                    // the next page keeps the request slot
+                    request(parentId, subItemType, next);
+                } else {
+                    schedule();
+                }
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                synchronized (SubItemFanOut.this) {
+                    inFlight--;
+                    failed++;
+                }
+                callListener.onError(parentId, subItemType, errorMessage);
+                schedule();
+            }
+        });
+    }
+
+    /**
+     * Receive the results of a run
+     */
+    public interface Listener {
+        /**
+         * The rows of one page of one sub item type of one parent, called once per page when the
+         * sub items do not fit in one page
+         *
+         * @param parentId    id of the parent item
+         * @param subItemType the sub item type
+         * @param rows        the sub items, empty when there is none
+         */
+        void onRows(String parentId, String subItemType, JsonArray rows);
+
+        /**
+         * A request failed, the run continues with the other requests, the next pages of the
+         * sub item type are not requested
+         *
+         * @param parentId     id of the parent item
+         * @param subItemType  the sub item type
+         * @param errorMessage the error of the request
+         */
+        void onError(String parentId, String subItemType, String errorMessage);
+
+        /**
+         * All the requests ended, or the run was cancelled and the requests in flight ended
+         *
+         * @param stats the final progress
+         */
+        void onComplete(Stats stats);
+    }
+
+    /**
+     * Progress of a run
+     */
+    public static class Stats {
+        private final int parentCount;
+        private final int completedCount;
+        private final int failedCount;
+        private final int inFlightCount;
+        private final long rowCount;
+        private final long elapsedMillis;
+
+        Stats(int parentCount, int completedCount, int failedCount, int inFlightCount, long rowCount, long elapsedMillis) {
+            this.parentCount = parentCount;
+            this.completedCount = completedCount;
+            this.failedCount = failedCount;
+            this.inFlightCount = inFlightCount;
+            this.rowCount = rowCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * @return number of parent ids read from the iterator
+         */
+        public int getParentCount() {
+            return parentCount;
+        }
+
+        /**
+         * @return number of requests answered
+         */
+        public int getCompletedCount() {
+            return completedCount;
+        }
+
+        /**
+         * @return number of requests failed
+         */
+        public int getFailedCount() {
+            return failedCount;
+        }
+
+        /**
+         * @return number of requests waiting for a response
+         */
+        public int getInFlightCount() {
+            return inFlightCount;
+        }
+
+        /**
+         * @return number of sub items received
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return milliseconds since the start, until the end once completed
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return requests ended per second
+         */
+        public double getRequestsPerSecond() {
+            return elapsedMillis == 0 ? 0 : (completedCount + failedCount) * 1000.0 / elapsedMillis;
+        }
+
+        /**
+         * @return sub items received per second
+         */
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? 0 : rowCount * 1000.0 / elapsedMillis;
+        }
+    }
+}
@@ -52,6 +52,22 @@ public class GetAllItemQuery {
         this.context = context;
     }
 
+    /**
+     * Copy the parameters of another query
+     * @param query the query to copy
+     */
+    public GetAllItemQuery(GetAllItemQuery query) {
+        this.expandDropdowns = query.expandDropdowns;
+        this.getHateoas = query.getHateoas;
+        this.onlyId = query.onlyId;
+        this.range = query.range;
+        this.sort = query.sort;
+        this.order = query.order;
+        this.searchText = query.searchText;
+        this.isDeleted = query.isDeleted;
+        this.context = query.context;
+    }
+
     /**
      * Get a map with all the parameters available to work with the all items endpoint
      * @return Map<String, String> with the parameters selected
@@ -125,7 +141,7 @@ public class GetAllItemQuery {
      * @param max
      */
     public void setRange(int min, int max) {
-        if(max>=min) {
+        if(min>max) {
             throw new RuntimeException(context.getResources().getString(R.string.error_range));
         }
 
@@ -140,6 +156,14 @@ public class GetAllItemQuery {
         this.sort = String.valueOf(sort);
     }
 
+    /**
+     * (default id): name of the field to sort by, for example date_mod.
+     * @param sort String
+     */
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
     /**
      * (default ASC): ASC - Ascending sort / DESC Descending sort.
      * @param order Order type with ASC or DESC values
@@ -0,0 +1,97 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GetMultipleItemsQuery {
+
+    private final List<String[]> items = new ArrayList<>();
+    private Boolean expandDropdowns;
+    private Boolean getHateoas;
+
+    /**
+     * Get a map with all the parameters available to work with the get multiple items endpoint
+     * @return Map<String, String> with the parameters selected
+     */
+    public Map<String, String> getQuery() {
+
+        Map<String, String> map = new HashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            map.put("items[" + i + "][itemtype]", items.get(i)[0]);
+            map.put("items[" + i + "][items_id]", items.get(i)[1]);
+        }
+
+        if (expandDropdowns != null) {
+            map.put("expand_dropdowns", expandDropdowns.toString());
+        }
+
+        if (getHateoas != null) {
+            map.put("get_hateoas", getHateoas.toString());
+        }
+
+        return map;
+    }
+
+    /**
+     * Add an item to get, the items are returned in the order they are added
+     *
+     * @param itemType name of the item type
+     * @param id       unique identifier of the item
+     */
+    public void addItem(String itemType, String id) {
+        items.add(new String[]{itemType, id});
+    }
+
+    /**
+     * @return the number of items added
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * (default: false): show dropdown name instead of id.
+     *
+     * @param expandDropdowns
+     */
+    public void setExpandDropdowns(Boolean expandDropdowns) {
+        this.expandDropdowns = expandDropdowns;
+    }
+
+    /**
+     * (default: true): Show relations of the item in a links attribute.
+     *
+     * @param getHateoas
+     */
+    public void setGetHateoas(Boolean getHateoas) {
+        this.getHateoas = getHateoas;
+    }
+}
@@ -115,7 +115,7 @@ public class GetSubItemQuery {
      * @param max
      */
     public void setRange(int min, int max) {
-        if(max>=min) {
+        if(min>max) {
             throw new RuntimeException(context.getResources().getString(R.string.error_range));
         }
 
@@ -0,0 +1,242 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.query;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.itemType;
+import org.glpi.api.utils.ForeignKeys;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fields of the items a caller reads, the other fields are not requested when the route
+ * allows it (only_id, forcedisplay of the search) and are dropped while the response is decoded
+ * otherwise, so they are never built in memory.
+ */
+public class Projection {
+
+    private final Set<String> fields;
+
+    /**
+     * Create a projection
+     *
+     * @param fields names of the fields to keep, for example id, name and serial
+     */
+    public Projection(String... fields) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("No field");
+        }
+        this.fields = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(fields)));
+    }
+
+    /**
+     * @return the names of the fields to keep
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return true if only the id is read, the only_id option gives it without the other fields
+     */
+    public boolean isOnlyId() {
+        return fields.size() == 1 && fields.contains("id");
+    }
+
+    /**
+     * Get a copy of a query of getAllItems with the options matching the projection
+     *
+     * @param query the query of getAllItems, not changed
+     * @return the new query
+     */
+    public GetAllItemQuery apply(GetAllItemQuery query) {
+        GetAllItemQuery projected = new GetAllItemQuery(query);
+        if (isOnlyId()) {
+            projected.setOnlyId(true);
+        }
+        return projected;
+    }
+
+    /**
+     * Copy an item with only the fields of the projection
+     *
+     * @param item the complete item
+     * @return the projected item
+     */
+    public JsonObject project(JsonObject item) {
+        JsonObject projected = new JsonObject();
+        for (String field : fields) {
+            JsonElement value = item.get(field);
+            if (value != null) {
+                projected.add(field, value);
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * Find the searchoptions showing the fields of the projection: the option of the field on
+     * the table of the item type, or for a foreign key the name of the referenced item joined
+     * by this foreign key, users_id and users_id_tech are two options of glpi_users. The fields
+     * without option are not returned.
+     *
+     * @param itemType      the item type searched
+     * @param searchOptions the response of listSearchOptions for the item type
+     * @return the field name by searchoption id
+     */
+    public Map<String, String> searchColumns(String itemType, JsonObject searchOptions) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (String field : fields) {
+            itemType target = ForeignKeys.itemTypeOf(field);
+            String option = target != null
+                    ? findLinkOption(searchOptions, tableOf(target.name()), field)
+                    : findOption(searchOptions, tableOf(itemType), field);
+            if (option != null) {
+                columns.put(option, field);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Get a copy of a search with the columns of the projection
+     *
+     * @param query   the query of the search, not changed
+     * @param columns the columns given by {@link #searchColumns(String, JsonObject)}
+     * @return the new query
+     */
+    public SearchItemQuery apply(SearchItemQuery query, Map<String, String> columns) {
+        SearchItemQuery projected = new SearchItemQuery(query);
+        for (String option : columns.keySet()) {
+            projected.addForceDisplay(Integer.parseInt(option));
+        }
+        return projected;
+    }
+
+    /**
+     * Convert the data of a search response, keyed by searchoption id, to items keyed by the
+     * fields of the projection
+     *
+     * @param searchResponse the response of the search
+     * @param columns        the columns given by {@link #searchColumns(String, JsonObject)}
+     * @return the items
+     */
+    public JsonArray rows(JsonObject searchResponse, Map<String, String> columns) {
+        JsonArray rows = new JsonArray();
+        JsonElement data = searchResponse.get("data");
+        if (data == null || !data.isJsonArray()) {
+            return rows;
+        }
+        for (JsonElement element : data.getAsJsonArray()) {
+            if (!element.isJsonObject()) {
+                continue;
+            }
+            JsonObject row = new JsonObject();
+            for (Map.Entry<String, String> column : columns.entrySet()) {
+                JsonElement value = element.getAsJsonObject().get(column.getKey());
+                if (value != null) {
+                    row.add(column.getValue(), value);
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Table of an item type: glpi_ followed by the item type in lower case and plural
+     */
+    private static String tableOf(String itemType) {
+        String name = itemType.toLowerCase(Locale.ROOT);
+        return "glpi_" + (name.endsWith("y") ? name.substring(0, name.length() - 1) + "ies" : name + "s");
+    }
+
+    /**
+     * The option of a field of a table
+     */
+    private static String findOption(JsonObject searchOptions, String table, String field) {
+        for (Map.Entry<String, JsonElement> option : searchOptions.entrySet()) {
+            JsonObject definition = definition(option.getValue(), table);
+            if (definition != null && field.equals(text(definition, "field"))) {
+                return option.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The option of the complete name, or else of the name, of a table joined by a foreign key.
+     * The server joins by the linkfield of the option, by default the foreign key of the table.
+     */
+    private static String findLinkOption(JsonObject searchOptions, String table, String foreignKey) {
+        String defaultLink = table.substring("glpi_".length()) + "_id";
+        String nameOption = null;
+        for (Map.Entry<String, JsonElement> option : searchOptions.entrySet()) {
+            JsonObject definition = definition(option.getValue(), table);
+            if (definition == null) {
+                continue;
+            }
+            String linkField = text(definition, "linkfield");
+            if (!foreignKey.equals(linkField != null ? linkField : defaultLink)) {
+                continue;
+            }
+            String name = text(definition, "field");
+            if ("completename".equals(name)) {
+                return option.getKey();
+            }
+            if ("name".equals(name) && nameOption == null) {
+                nameOption = option.getKey();
+            }
+        }
+        return nameOption;
+    }
+
+    /**
+     * The definition of an option on the table, null for the other tables and for the headers
+     * of the option groups, which are texts
+     */
+    private static JsonObject definition(JsonElement option, String table) {
+        if (!option.isJsonObject()) {
+            return null;
+        }
+        JsonObject definition = option.getAsJsonObject();
+        return table.equals(text(definition, "table")) ? definition : null;
+    }
+
+    private static String text(JsonObject definition, String field) {
+        JsonElement value = definition.get(field);
+        return value == null || !value.isJsonPrimitive() ? null : value.getAsString();
+    }
+}
@@ -0,0 +1,185 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.query;
+
+import android.content.Context;
+
+import org.glpi.api.R;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SearchItemQuery {
+
+    private final List<String[]> criteria = new ArrayList<>();
+    private final List<Integer> forceDisplay = new ArrayList<>();
+    private String range;
+    private String sort;
+    private String order;
+    private Boolean isDeleted;
+    private Context context;
+
+    /**
+     * Get all the parameters available to work with the search endpoint
+     * @param context
+     */
+    public SearchItemQuery(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Copy the criteria and the parameters of another query
+     * @param query the query to copy
+     */
+    public SearchItemQuery(SearchItemQuery query) {
+        this.criteria.addAll(query.criteria);
+        this.forceDisplay.addAll(query.forceDisplay);
+        this.range = query.range;
+        this.sort = query.sort;
+        this.order = query.order;
+        this.isDeleted = query.isDeleted;
+        this.context = query.context;
+    }
+
+    /**
+     * Get a map with all the parameters available to work with the search endpoint
+     * @return Map<String, String> with the parameters selected
+     */
+    public Map<String, String> getQuery() {
+
+        Map<String, String> map = new HashMap<>();
+
+        for (int i = 0; i < criteria.size(); i++) {
+            String[] criterion = criteria.get(i);
+            if (criterion[0] != null) {
+                map.put("criteria[" + i + "][link]", criterion[0]);
+            }
+            map.put("criteria[" + i + "][field]", criterion[1]);
+            map.put("criteria[" + i + "][searchtype]", criterion[2]);
+            map.put("criteria[" + i + "][value]", criterion[3]);
+        }
+
+        for (int i = 0; i < forceDisplay.size(); i++) {
+            map.put("forcedisplay[" + i + "]", forceDisplay.get(i).toString());
+        }
+
+        if(range!=null) {
+            map.put("range", range);
+        }
+
+        if(sort!=null) {
+            map.put("sort", sort);
+        }
+
+        if(order!=null) {
+            map.put("order", order);
+        }
+
+        if(isDeleted!=null) {
+            map.put("is_deleted", isDeleted.toString());
+        }
+
+        return map;
+    }
+
+    /**
+     * Add a criterion, see listSearchOptions for the ids of the fields
+     *
+     * @param link       AND, OR, AND NOT or OR NOT, ignored for the first criterion
+     * @param field      id of the searchoption
+     * @param searchType contains, equals, notequals, lessthan, morethan or under
+     * @param value      the value to search
+     */
+    public void addCriteria(Link link, int field, String searchType, String value) {
+        criteria.add(new String[]{link == null ? null : link.value, String.valueOf(field), searchType, value});
+    }
+
+    /**
+     * Add a column to the result, see listSearchOptions for the ids of the fields
+     *
+     * @param field id of the searchoption
+     */
+    public void addForceDisplay(int field) {
+        if (!forceDisplay.contains(field)) {
+            forceDisplay.add(field);
+        }
+    }
+
+    /**
+     * (default: 0-50): a range with a couple of number for start and end of pagination
+     * @param min
+     * @param max
+     */
+    public void setRange(int min, int max) {
+        if(min>max) {
+            throw new RuntimeException(context.getResources().getString(R.string.error_range));
+        }
+
+        this.range = min + "-" + max;
+    }
+
+    /**
+     * (default 1): id of the searchoption to sort by.
+     * @param sort int
+     */
+    public void setSort(int sort) {
+        this.sort = String.valueOf(sort);
+    }
+
+    /**
+     * (default ASC): ASC - Ascending sort / DESC Descending sort.
+     * @param order Order type with ASC or DESC values
+     */
+    public void setOrder(GetAllItemQuery.Order order) {
+        this.order = order.name();
+    }
+
+    /**
+     * (default: false): Search in the deleted items.
+     * @param deleted boolean
+     */
+    public void setDeleted(Boolean deleted) {
+        isDeleted = deleted;
+    }
+
+    /**
+     * Enum definition with the logical operators between criteria
+     */
+    public enum Link {
+        AND("AND"),
+        OR("OR"),
+        AND_NOT("AND NOT"),
+        OR_NOT("OR NOT");
+
+        private final String value;
+
+        Link(String value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,572 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.report;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming group by over rows of items, for reports like computers per model per entity or
+ * tickets per category per week.
+ *
+ * The rows are added page by page, for example from the listener of
+ * {@link org.glpi.api.crawl.InventoryCrawler}, and are not kept: the memory depends on the
+ * number of groups, not on the number of rows. Each thread adds to its own partial aggregate,
+ * without lock contention, and the partials are merged by {@link #getResult()}. The groups are
+ * kept in hash tables keyed by the codes of the dimensions packed in a long.
+ *
+ * Each group has the number of rows, and the metrics added with {@link #sum(String)},
+ * {@link #min(String)}, {@link #max(String)} and {@link #distinct(String)}. The values of the
+ * metrics can be numbers or numeric texts, the other values are ignored.
+ */
+public class Aggregator {
+
+    private static final int SUM = 0;
+    private static final int MIN = 1;
+    private static final int MAX = 2;
+    private static final int DISTINCT = 3;
+    private static final String[] OPERATION_NAMES = {"sum", "min", "max", "distinct"};
+    private static final int DEFAULT_PRECISION = 10;
+
+    private final Dimension[] dimensions;
+    private final Dictionary dictionary = new Dictionary();
+    private final Dictionary tuples = new Dictionary();
+    private final List<Metric> metrics = new ArrayList<>();
+    private final List<Partial> partials = new ArrayList<>();
+    private final ThreadLocal<Partial> partial = new ThreadLocal<Partial>() {
+        @Override
+        protected Partial initialValue() {
+            Partial created = new Partial();
+            synchronized (partials) {
+                partials.add(created);
+            }
+            return created;
+        }
+    };
+    private volatile boolean started = false;
+
+    /**
+     * Create an aggregation
+     *
+     * @param dimensions the group by, none to aggregate all the rows in one group
+     */
+    public Aggregator(Dimension... dimensions) {
+        this.dimensions = dimensions.clone();
+    }
+
+    /**
+     * Create an aggregation grouped by the values of fields
+     *
+     * @param fields the fields of the group by, for example computermodels_id and entities_id
+     * @return the aggregation
+     */
+    public static Aggregator groupBy(String... fields) {
+        Dimension[] dimensions = new Dimension[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            dimensions[i] = Dimension.field(fields[i]);
+        }
+        return new Aggregator(dimensions);
+    }
+
+    /**
+     * Add the sum of a field, named sum_field in the result
+     *
+     * @param field name of the field
+     * @return this aggregation
+     */
+    public Aggregator sum(String field) {
+        return addMetric(SUM, field, 0);
+    }
+
+    /**
+     * Add the minimum of a field, named min_field in the result
+     *
+     * @param field name of the field
+     * @return this aggregation
+     */
+    public Aggregator min(String field) {
+        return addMetric(MIN, field, 0);
+    }
+
+    /**
+     * Add the maximum of a field, named max_field in the result
+     *
+     * @param field name of the field
+     * @return this aggregation
+     */
+    public Aggregator max(String field) {
+        return addMetric(MAX, field, 0);
+    }
+
+    /**
+     * Add the approximate number of distinct values of a field, named distinct_field in the
+     * result, with 1 KB per group and a standard error of 3.25%
+     *
+     * @param field name of the field
+     * @return this aggregation
+     */
+    public Aggregator distinct(String field) {
+        return addMetric(DISTINCT, field, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Add the approximate number of distinct values of a field, named distinct_field in the
+     * result
+     *
+     * @param field     name of the field
+     * @param precision 2^precision bytes per group, see {@link HyperLogLog}
+     * @return this aggregation
+     */
+    public Aggregator distinct(String field, int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        return addMetric(DISTINCT, field, precision);
+    }
+
+    private Aggregator addMetric(int operation, String field, int precision) {
+        if (started) {
+            throw new IllegalStateException("Metrics must be added before the rows");
+        }
+        metrics.add(new Metric(operation, field, precision));
+        return this;
+    }
+
+    /**
+     * Add a row to the group it belongs to
+     *
+     * @param row the item
+     */
+    public void add(JsonObject row) {
+        started = true;
+        Partial current = partial.get();
+        synchronized (current) {
+            current.add(row);
+        }
+    }
+
+    /**
+     * Add rows, the objects of the array, to the groups they belong to
+     *
+     * @param rows the items, for example a page of getAllItems
+     */
+    public void add(JsonArray rows) {
+        started = true;
+        Partial current = partial.get();
+        synchronized (current) {
+            for (JsonElement row : rows) {
+                if (row.isJsonObject()) {
+                    current.add(row.getAsJsonObject());
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge the partial aggregates of the threads, to call once the rows are all added
+     *
+     * @return the groups
+     */
+    public Result getResult() {
+        Partial merged = new Partial();
+        List<Partial> all;
+        synchronized (partials) {
+            all = new ArrayList<>(partials);
+        }
+        for (Partial other : all) {
+            synchronized (other) {
+                merged.merge(other);
+            }
+        }
+        return merged.toResult();
+    }
+
+    /**
+     * Pack the codes of the dimensions in a key: one or two codes are stored directly, more
+     * codes are numbered in the tuple dictionary
+     */
+    private long key(JsonObject row) {
+        switch (dimensions.length) {
+            case 0:
+                return 0;
+            case 1:
+                return code(0, row);
+            case 2:
+                return ((long) code(0, row) << 32) | (code(1, row) & 0xffffffffL);
+            default:
+                StringBuilder tuple = new StringBuilder();
+                for (int i = 0; i < dimensions.length; i++) {
+                    tuple.append(code(i, row)).append(',');
+                }
+                return tuples.code(tuple.toString());
+        }
+    }
+
+    private int code(int dimension, JsonObject row) {
+        Dimension d = dimensions[dimension];
+        return d.code(row.get(d.getField()), dictionary);
+    }
+
+    private int[] codes(long key) {
+        switch (dimensions.length) {
+            case 0:
+                return new int[0];
+            case 1:
+                return new int[]{(int) key};
+            case 2:
+                return new int[]{(int) (key >> 32), (int) key};
+            default:
+                String[] parts = tuples.text((int) key).split(",");
+                int[] codes = new int[dimensions.length];
+                for (int i = 0; i < codes.length; i++) {
+                    codes[i] = Integer.parseInt(parts[i]);
+                }
+                return codes;
+        }
+    }
+
+    private static double number(JsonElement value) {
+        if (value == null || !value.isJsonPrimitive()) {
+            return Double.NaN;
+        }
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            return primitive.getAsDouble();
+        }
+        if (primitive.isString()) {
+            try {
+                return Double.parseDouble(primitive.getAsString());
+            } catch (NumberFormatException ex) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static long hash(JsonElement value) {
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            double number = primitive.getAsDouble();
+            long integer = (long) number;
+            return HyperLogLog.hash(integer == number ? integer : Double.doubleToLongBits(number));
+        }
+        String text = primitive.getAsString();
+        int length = text.length();
+        if (length > 0 && length < 19 && (length == 1 || text.charAt(0) != '0')) {
+            // "12" and 12 are the same id, but "007" and "7" are different texts
+            long integer = 0;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return HyperLogLog.hash(text);
+                }
+                integer = integer * 10 + c - '0';
+            }
+            return HyperLogLog.hash(integer);
+        }
+        return HyperLogLog.hash(text);
+    }
+
+    private static class Metric {
+        private final int operation;
+        private final String field;
+        private final int precision;
+
+        Metric(int operation, String field, int precision) {
+            this.operation = operation;
+            this.field = field;
+            this.precision = precision;
+        }
+
+        String name() {
+            return OPERATION_NAMES[operation] + "_" + field;
+        }
+    }
+
+    /**
+     * Groups of one thread: open addressing table from the keys to group numbers, and the
+     * aggregates of the groups in arrays indexed by group number
+     */
+    private class Partial {
+        private long[] keys = new long[64];
+        private int[] slots = new int[64];
+        private int size = 0;
+        private long[] counts = new long[32];
+        private double[][] values = new double[metrics.size()][32];
+        private HyperLogLog[][] sketches = new HyperLogLog[metrics.size()][];
+
+        Partial() {
+            for (int m = 0; m < sketches.length; m++) {
+                if (metrics.get(m).operation == DISTINCT) {
+                    sketches[m] = new HyperLogLog[counts.length];
+                }
+            }
+        }
+
+        void add(JsonObject row) {
+            int group = group(key(row));
+            counts[group]++;
+            for (int m = 0; m < values.length; m++) {
+                Metric metric = metrics.get(m);
+                JsonElement value = row.get(metric.field);
+                if (metric.operation == DISTINCT) {
+                    if (value != null && value.isJsonPrimitive()) {
+                        sketch(m, group).add(hash(value));
+                    }
+                    continue;
+                }
+                double number = number(value);
+                if (!Double.isNaN(number)) {
+                    accumulate(metric.operation, m, group, number);
+                }
+            }
+        }
+
+        void merge(Partial other) {
+            for (int slot = 0; slot < other.slots.length; slot++) {
+                if (other.slots[slot] == 0) {
+                    continue;
+                }
+                int from = other.slots[slot] - 1;
+                int group = group(other.keys[slot]);
+                counts[group] += other.counts[from];
+                for (int m = 0; m < values.length; m++) {
+                    int operation = metrics.get(m).operation;
+                    if (operation == DISTINCT) {
+                        HyperLogLog sketch = other.sketches[m][from];
+                        if (sketch != null) {
+                            sketch(m, group).merge(sketch);
+                        }
+                    } else if (!Double.isNaN(other.values[m][from])) {
+                        accumulate(operation, m, group, other.values[m][from]);
+                    }
+                }
+            }
+        }
+
+        Result toResult() {
+            List<Group> groups = new ArrayList<>(size);
+            for (int slot = 0; slot < slots.length; slot++) {
+                if (slots[slot] == 0) {
+                    continue;
+                }
+                int group = slots[slot] - 1;
+                int[] codes = codes(keys[slot]);
+                JsonElement[] labels = new JsonElement[codes.length];
+                for (int i = 0; i < codes.length; i++) {
+                    labels[i] = dimensions[i].label(codes[i], dictionary);
+                }
+                double[] aggregates = new double[values.length];
+                for (int m = 0; m < values.length; m++) {
+                    if (metrics.get(m).operation == DISTINCT) {
+                        HyperLogLog sketch = sketches[m][group];
+                        aggregates[m] = sketch == null ? 0 : sketch.estimate();
+                    } else {
+                        aggregates[m] = values[m][group];
+                    }
+                }
+                groups.add(new Group(labels, counts[group], aggregates));
+            }
+            return new Result(groups);
+        }
+
+        private void accumulate(int operation, int metric, int group, double number) {
+            double current = values[metric][group];
+            if (Double.isNaN(current)) {
+                values[metric][group] = number;
+            } else if (operation == SUM) {
+                values[metric][group] = current + number;
+            } else if (operation == MIN ? number < current : number > current) {
+                values[metric][group] = number;
+            }
+        }
+
+        private HyperLogLog sketch(int metric, int group) {
+            HyperLogLog sketch = sketches[metric][group];
+            if (sketch == null) {
+                sketch = new HyperLogLog(metrics.get(metric).precision);
+                sketches[metric][group] = sketch;
+            }
+            return sketch;
+        }
+
+        /**
+         * Number of the group of a key, created when it is new
+         */
+        private int group(long key) {
+            int mask = slots.length - 1;
+            int slot = (int) HyperLogLog.hash(key) & mask;
+            while (slots[slot] != 0) {
+                if (keys[slot] == key) {
+                    return slots[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int group = size++;
+            keys[slot] = key;
+            slots[slot] = group + 1;
+            if (group == counts.length) {
+                grow();
+            }
+            for (int m = 0; m < values.length; m++) {
+                values[m][group] = Double.NaN;
+            }
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return group;
+        }
+
+        private void grow() {
+            int capacity = counts.length * 2;
+            counts = Arrays.copyOf(counts, capacity);
+            for (int m = 0; m < values.length; m++) {
+                values[m] = Arrays.copyOf(values[m], capacity);
+                if (sketches[m] != null) {
+                    sketches[m] = Arrays.copyOf(sketches[m], capacity);
+                }
+            }
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[oldKeys.length * 2];
+            slots = new int[oldSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] == 0) {
+                    continue;
+                }
+                int slot = (int) HyperLogLog.hash(oldKeys[i]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                slots[slot] = oldSlots[i];
+            }
+        }
+    }
+
+    /**
+     * One group of the result
+     */
+    public static class Group {
+        private final JsonElement[] key;
+        private final long count;
+        private final double[] values;
+
+        Group(JsonElement[] key, long count, double[] values) {
+            this.key = key;
+            this.count = count;
+            this.values = values;
+        }
+
+        /**
+         * @param dimension index of the dimension in the group by
+         * @return the value of the dimension for this group, null for the rows without value
+         */
+        public JsonElement getKey(int dimension) {
+            return key[dimension];
+        }
+
+        /**
+         * @return number of rows of the group
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @param metric index of the metric, in the order they were added
+         * @return the aggregate, NaN for sum, min and max when no row had a numeric value
+         */
+        public double getValue(int metric) {
+            return values[metric];
+        }
+    }
+
+    /**
+     * The groups of an aggregation
+     */
+    public class Result {
+        private final List<Group> groups;
+
+        Result(List<Group> groups) {
+            this.groups = Collections.unmodifiableList(groups);
+        }
+
+        /**
+         * @return the groups, in no particular order
+         */
+        public List<Group> getGroups() {
+            return groups;
+        }
+
+        /**
+         * @return number of groups
+         */
+        public int size() {
+            return groups.size();
+        }
+
+        /**
+         * Rows with the fields of the group by, count, and the metrics named like sum_field
+         *
+         * @return the groups as rows
+         */
+        public JsonArray toJsonArray() {
+            JsonArray rows = new JsonArray();
+            for (Group group : groups) {
+                JsonObject row = new JsonObject();
+                for (int i = 0; i < dimensions.length; i++) {
+                    row.add(dimensions[i].getField(), group.key[i]);
+                }
+                row.addProperty("count", group.count);
+                for (int m = 0; m < metrics.size(); m++) {
+                    double value = group.values[m];
+                    if (Double.isNaN(value)) {
+                        row.add(metrics.get(m).name(), null);
+                    } else if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+                        row.addProperty(metrics.get(m).name(), (long) value);
+                    } else {
+                        row.addProperty(metrics.get(m).name(), value);
+                    }
+                }
+                rows.add(row);
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.report;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * A column of the group by of an {@link Aggregator}. The value of each row is turned into an int
+ * code: ids and other integers, given as numbers or as texts of digits without a leading zero, are
+ * their own code, the other values are numbered in the dictionary of the aggregator.
+ */
+public abstract class Dimension {
+
+    static final int MISSING = -1;
+
+    private final String field;
+
+    Dimension(String field) {
+        this.field = field;
+    }
+
+    /**
+     * Group by the value of a field, for example locations_id or status
+     *
+     * @param field name of the field
+     * @return the dimension
+     */
+    public static Dimension field(String field) {
+        return new Dimension(field) {
+            @Override
+            int code(JsonElement value, Dictionary dictionary) {
+                return valueCode(value, dictionary);
+            }
+
+            @Override
+            JsonElement label(int code, Dictionary dictionary) {
+                return valueLabel(code, dictionary);
+            }
+        };
+    }
+
+    /**
+     * Group by the week of a date field like 2017-05-04 10:12:00, the weeks start on monday and
+     * are named by the date of their monday
+     *
+     * @param field name of the date field, for example date or date_creation
+     * @return the dimension
+     */
+    public static Dimension week(String field) {
+        return new Dimension(field) {
+            @Override
+            int code(JsonElement value, Dictionary dictionary) {
+                long days = epochDay(value);
+                if (days == Long.MIN_VALUE) {
+                    return MISSING;
+                }
+                // 1970-01-01 is a thursday
+                return (int) Math.floor((days + 3) / 7.0) + 1;
+            }
+
+            @Override
+            JsonElement label(int code, Dictionary dictionary) {
+                return code == MISSING ? null : new JsonPrimitive(formatDay((code - 1) * 7L - 3));
+            }
+        };
+    }
+
+    /**
+     * Group by the month of a date field like 2017-05-04 10:12:00, named like 2017-05
+     *
+     * @param field name of the date field, for example date or date_creation
+     * @return the dimension
+     */
+    public static Dimension month(String field) {
+        return new Dimension(field) {
+            @Override
+            int code(JsonElement value, Dictionary dictionary) {
+                String text = text(value);
+                if (text == null || text.length() < 7 || text.charAt(4) != '-') {
+                    return MISSING;
+                }
+                int year = digits(text, 0, 4);
+                int month = digits(text, 5, 7);
+                return year < 0 || month < 1 || month > 12 ? MISSING : year * 12 + month - 1;
+            }
+
+            @Override
+            JsonElement label(int code, Dictionary dictionary) {
+                if (code == MISSING) {
+                    return null;
+                }
+                int month = code % 12 + 1;
+                return new JsonPrimitive(code / 12 + (month < 10 ? "-0" : "-") + month);
+            }
+        };
+    }
+
+    /**
+     * @return name of the field of the rows
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Code of the value of a row, {@link #MISSING} when the row has no value
+     */
+    abstract int code(JsonElement value, Dictionary dictionary);
+
+    /**
+     * Value shown in the result for a code
+     */
+    abstract JsonElement label(int code, Dictionary dictionary);
+
+    static int valueCode(JsonElement value, Dictionary dictionary) {
+        if (value == null || value.isJsonNull()) {
+            return MISSING;
+        }
+        if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isNumber()) {
+                double number = primitive.getAsDouble();
+                if (number >= 0 && number < Integer.MAX_VALUE && number == Math.rint(number)) {
+                    return (int) number;
+                }
+            }
+            String text = primitive.getAsString();
+            int number = digits(text, 0, text.length());
+            // "12" and 12 are the same id, like in Aggregator.hash, but "007" is a serial, not 7
+            if (text.length() > 0 && text.length() < 10 && number >= 0
+                    && (text.length() == 1 || text.charAt(0) != '0')) {
+                return number;
+            }
+            return -2 - dictionary.code(text);
+        }
+        return -2 - dictionary.code(value.toString());
+    }
+
+    static JsonElement valueLabel(int code, Dictionary dictionary) {
+        if (code == MISSING) {
+            return null;
+        }
+        return code >= 0 ? new JsonPrimitive(code) : new JsonPrimitive(dictionary.text(-2 - code));
+    }
+
+    private static String text(JsonElement value) {
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date like 2017-05-04, Long.MIN_VALUE if it is not a date
+     */
+    private static long epochDay(JsonElement value) {
+        String text = text(value);
+        if (text == null || text.length() < 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return Long.MIN_VALUE;
+        }
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Date like 2017-05-01 of a number of days since 1970-01-01
+     */
+    private static String formatDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year + (month < 10 ? "-0" : "-") + month + (day < 10 ? "-0" : "-") + day;
+    }
+}
@@ -0,0 +1,118 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.request;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Iterator;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Request body {"input": [...]} written item by item into the socket, the items are taken
+ * from the iterator only while the body is sent so the memory used does not depend on the
+ * number of items.
+ *
+ * The iterator can be consumed only once, the body can not be sent again on retry: a second
+ * write fails with an IOException so the call ends in its onFailure callback. The errors of the
+ * iterator and of the serialization are reported the same way.
+ */
+public class StreamingItemsRequest extends RequestBody {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+
+    private final Iterator<?> items;
+    private final Gson gson;
+    private boolean written = false;
+
+    /**
+     * Create a request body for a multiple items payload
+     *
+     * @param items iterator on the objects with the fields of itemtype
+     */
+    public StreamingItemsRequest(Iterator<?> items) {
+        this(items, new Gson());
+    }
+
+    /**
+     * Create a request body for a multiple items payload
+     *
+     * @param items iterator on the objects with the fields of itemtype
+     * @param gson  gson instance used to serialize each item
+     */
+    public StreamingItemsRequest(Iterator<?> items, Gson gson) {
+        this.items = items;
+        this.gson = gson;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        // unknown, the body is sent with chunked transfer encoding
+        return -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        synchronized (this) {
+            if (written) {
+                throw new IOException("The items were already sent, the body can not be sent again");
+            }
+            written = true;
+        }
+
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(sink.outputStream(), "UTF-8"));
+        writer.beginObject();
+        writer.name("input");
+        writer.beginArray();
+        try {
+            while (items.hasNext()) {
+                Object item = items.next();
+                if (item == null) {
+                    // keep the position of the other items, the server reports this one as failed
+                    writer.nullValue();
+                } else {
+                    gson.toJson(item, item.getClass(), writer);
+                }
+            }
+        } catch (RuntimeException ex) {
+            // thrown on the dispatcher thread it would skip the callback of the call
+            throw new IOException("Can not write the items: " + ex.getMessage(), ex);
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+}
@@ -0,0 +1,83 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.response;
+
+import com.google.gson.JsonArray;
+
+/**
+ * One page of getAllItems or of the sub items with the total number of items given by the
+ * Content-Range header
+ */
+public class ItemPage {
+
+    private final JsonArray rows;
+    private final int totalCount;
+
+    /**
+     * Create a page
+     *
+     * @param rows       the items of the page
+     * @param totalCount total number of items of the item type, -1 when unknown
+     */
+    public ItemPage(JsonArray rows, int totalCount) {
+        this.rows = rows;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * get the items of the page
+     * @return the items, empty when there is none
+     */
+    public JsonArray getRows() {
+        return rows;
+    }
+
+    /**
+     * get the total number of items
+     * @return the number of items matching the request on the server, -1 when unknown
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Read the total of a Content-Range header like 0-49/1234
+     *
+     * @param contentRange the header value, can be null
+     * @return the total or -1
+     */
+    public static int parseTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        try {
+            return slash < 0 ? -1 : Integer.parseInt(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.session;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.response.InitSession;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keep one session per active profile and entity instead of switching one session with
+ * changeActiveProfile and changeActiveEntities before each call, so calls needing different
+ * profiles or entities run in parallel.
+ *
+ * A session is opened the first time its scope is asked, with the login then
+ * changeActiveProfile and changeActiveEntities when the scope sets them, and reused by the next
+ * calls of the same scope. Up to maxSessions
+ * sessions are kept, the least recently used one is killed to open a new one.
+ *
+ * Every session received from {@link #session(SessionScope, GLPI.ResponseHandle)} must be given
+ * back with {@link #release(GLPI)} once the calls using it ended: only the sessions nobody
+ * holds are killed, by the eviction, {@link #invalidate(SessionScope)} or {@link #close()}, the
+ * others are killed when their last holder releases them. A session never released is never
+ * evicted and the router then keeps more than maxSessions sessions.
+ */
+public class SessionRouter {
+
+    private final GLPI glpi;
+    private final Login login;
+    private final LinkedHashMap<SessionScope, Entry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<GLPI, Entry> held = new IdentityHashMap<>();
+    private int maxSessions = 8;
+
+    private int hitCount = 0;
+    private int openCount = 0;
+    private int evictionCount = 0;
+
+    /**
+     * Create a router
+     *
+     * @param glpi  the glpi instance whose http client is shared by the sessions
+     * @param login open the session of a new instance, see {@link #byUserToken(String)} and
+     *              {@link #byCredentials(String, String)}
+     */
+    public SessionRouter(GLPI glpi, Login login) {
+        this.glpi = glpi;
+        this.login = login;
+    }
+
+    /**
+     * Login with the remote access key of a user
+     *
+     * @param userToken defined in User Preference (See 'Remote access key' on GLPI)
+     * @return the login
+     */
+    public static Login byUserToken(final String userToken) {
+        return new Login() {
+            @Override
+            public void login(GLPI session, GLPI.ResponseHandle<InitSession, String> callback) {
+                session.initSessionByUserToken(userToken, callback);
+            }
+        };
+    }
+
+    /**
+     * Login with a user and a password
+     *
+     * @param user     valid user on GLPI
+     * @param password valid password on GLPI
+     * @return the login
+     */
+    public static Login byCredentials(final String user, final String password) {
+        return new Login() {
+            @Override
+            public void login(GLPI session, GLPI.ResponseHandle<InitSession, String> callback) {
+                session.initSessionByCredentials(user, password, callback);
+            }
+        };
+    }
+
+    /**
+     * (default: 8): maximum number of sessions kept open
+     *
+     * @param maxSessions number of sessions
+     */
+    public synchronized void setMaxSessions(int maxSessions) {
+        this.maxSessions = Math.max(1, maxSessions);
+    }
+
+    /**
+     * Get the session of a scope, opened on the first call. The callers waiting for the same
+     * scope share the opening.
+     *
+     * @param scope    the active profile and entity needed by the calls
+     * @param callback receive the session, ready to be used, to give back with
+     *                 {@link #release(GLPI)}
+     */
+    public void session(final SessionScope scope, GLPI.ResponseHandle<GLPI, String> callback) {
+        Entry entry;
+        GLPI session = null;
+        synchronized (this) {
+            entry = sessions.get(scope);
+            if (entry != null && entry.waiters == null) {
+                hitCount++;
+                hold(entry);
+                session = entry.session;
+            } else if (entry != null) {
+                hold(entry);
+                entry.waiters.add(callback);
+                return;
+            } else {
+                openCount++;
+                entry = new Entry(glpi.newSession());
+                hold(entry);
+                entry.waiters.add(callback);
+                sessions.put(scope, entry);
+                evict();
+            }
+        }
+        if (session != null) {
+            callback.onResponse(session);
+            return;
+        }
+        open(scope, entry);
+    }
+
+    /**
+     * Give back a session received from {@link #session(SessionScope, GLPI.ResponseHandle)}, it
+     * can be killed once no caller holds it
+     *
+     * @param session the session, not used by the caller after this call
+     */
+    public synchronized void release(GLPI session) {
+        Entry entry = held.get(session);
+        if (entry == null || entry.holders == 0) {
+            throw new IllegalStateException("The session is not held");
+        }
+        entry.holders--;
+        if (entry.holders > 0) {
+            return;
+        }
+        if (entry.removed) {
+            held.remove(session);
+            kill(entry.session);
+        } else {
+            evict();
+        }
+    }
+
+    /**
+     * Forget the session of a scope, for example after an invalid session token error, the next
+     * call opens a new one. The session is killed once released by its holders.
+     *
+     * @param scope the scope of the session
+     */
+    public synchronized void invalidate(SessionScope scope) {
+        Entry entry = sessions.get(scope);
+        if (entry == null || entry.waiters != null) {
+            return;
+        }
+        sessions.remove(scope);
+        remove(entry);
+    }
+
+    /**
+     * Kill all the sessions, the sessions held or still opening are killed when their callers
+     * release them
+     */
+    public synchronized void close() {
+        List<Entry> entries = new ArrayList<>(sessions.values());
+        sessions.clear();
+        for (Entry entry : entries) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * @return number of sessions open or opening, more than maxSessions when the others are held
+     */
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @return number of calls served by a session already open
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of sessions opened
+     */
+    public synchronized int getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * @return number of sessions killed to respect the maximum number of sessions
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Login, then set the active profile, then the active entity since changing the profile
+     * resets it
+     */
+    private void open(final SessionScope scope, final Entry entry) {
+        login.login(entry.session, new GLPI.ResponseHandle<InitSession, String>() {
+            @Override
+            public void onResponse(InitSession response) {
+                if (scope.getProfilesId() == null) {
+                    changeEntity(scope, entry);
+                    return;
+                }
+                entry.session.changeActiveProfile(scope.getProfilesId(), new GLPI.ResponseHandle<String, String>() {
+                    @Override
+                    public void onResponse(String response) {
+                        changeEntity(scope, entry);
+                    }
+
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        failed(scope, entry, errorMessage);
+                        kill(entry.session);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                failed(scope, entry, errorMessage);
+            }
+        });
+    }
+
+    private void changeEntity(final SessionScope scope, final Entry entry) {
+        if (scope.getEntitiesId() == null) {
+            ready(entry);
+            return;
+        }
+        entry.session.changeActiveEntities(scope.getEntitiesId(), scope.isRecursive(), new GLPI.ResponseHandle<String, String>() {
+            @Override
+            public void onResponse(String response) {
+                ready(entry);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                failed(scope, entry, errorMessage);
+                kill(entry.session);
+            }
+        });
+    }
+
+    private void ready(Entry entry) {
+        List<GLPI.ResponseHandle<GLPI, String>> waiters;
+        synchronized (this) {
+            waiters = entry.waiters;
+            entry.waiters = null;
+        }
+        for (GLPI.ResponseHandle<GLPI, String> waiter : waiters) {
+            waiter.onResponse(entry.session);
+        }
+    }
+
+    private void failed(SessionScope scope, Entry entry, String errorMessage) {
+        List<GLPI.ResponseHandle<GLPI, String>> waiters;
+        synchronized (this) {
+            waiters = entry.waiters;
+            entry.waiters = null;
+            // the waiters do not receive the session, they do not release it
+            entry.holders = 0;
+            held.remove(entry.session);
+            if (sessions.get(scope) == entry) {
+                sessions.remove(scope);
+            }
+        }
+        for (GLPI.ResponseHandle<GLPI, String> waiter : waiters) {
+            waiter.onFailure(errorMessage);
+        }
+    }
+
+    private void hold(Entry entry) {
+        entry.holders++;
+        held.put(entry.session, entry);
+    }
+
+    /**
+     * Kill the session of an entry no longer in the sessions now, or when it is released
+     */
+    private void remove(Entry entry) {
+        if (entry.holders == 0 && entry.waiters == null) {
+            held.remove(entry.session);
+            kill(entry.session);
+        } else {
+            entry.removed = true;
+        }
+    }
+
+    /**
+     * Kill the least recently used open sessions above the maximum, the opening and held ones
+     * are kept
+     */
+    private void evict() {
+        Iterator<Map.Entry<SessionScope, Entry>> iterator = sessions.entrySet().iterator();
+        int excess = sessions.size() - maxSessions;
+        while (excess > 0 && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.waiters == null && entry.holders == 0) {
+                iterator.remove();
+                held.remove(entry.session);
+                evictionCount++;
+                excess--;
+                kill(entry.session);
+            }
+        }
+    }
+
+    private static void kill(GLPI session) {
+        session.killSession(new GLPI.ResponseHandle<String, String>() {
+            @Override
+            public void onResponse(String response) {
+                // nothing to do
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                // the session expires on the server
+            }
+        });
+    }
+
+    /**
+     * Open the session of a new instance
+     */
+    public interface Login {
+        /**
+         * Call one of the initSession methods of the session
+         *
+         * @param session  the new instance
+         * @param callback to give to the initSession method
+         */
+        void login(GLPI session, GLPI.ResponseHandle<InitSession, String> callback);
+    }
+
+    private static class Entry {
+        private final GLPI session;
+        private List<GLPI.ResponseHandle<GLPI, String>> waiters = new ArrayList<>();
+        private int holders = 0;
+        private boolean removed = false;
+
+        Entry(GLPI session) {
+            this.session = session;
+        }
+    }
+}
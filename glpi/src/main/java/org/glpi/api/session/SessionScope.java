@@ -0,0 +1,129 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.session;
+
+/**
+ * Active profile and active entity of a session, used by {@link SessionRouter} to find the
+ * session of a call
+ */
+public final class SessionScope {
+
+    private final String profilesId;
+    private final String entitiesId;
+    private final boolean recursive;
+
+    /**
+     * Create a scope with the default profile of the user
+     *
+     * @param entitiesId ID of the active entity, "all" to load all possible entities
+     * @param recursive  also display sub entities of the active entity
+     */
+    public SessionScope(String entitiesId, boolean recursive) {
+        this(null, entitiesId, recursive);
+        if (entitiesId == null) {
+            throw new IllegalArgumentException("entitiesId is null");
+        }
+    }
+
+    /**
+     * Create a scope
+     *
+     * @param profilesId ID of the active profile, null for the default profile of the user
+     * @param entitiesId ID of the active entity, "all" to load all possible entities, null for
+     *                   the default entity of the profile
+     * @param recursive  also display sub entities of the active entity
+     */
+    public SessionScope(String profilesId, String entitiesId, boolean recursive) {
+        this.profilesId = profilesId;
+        this.entitiesId = entitiesId;
+        this.recursive = recursive;
+    }
+
+    /**
+     * Create a scope with a profile and its default entity
+     *
+     * @param profilesId ID of the active profile
+     * @return the scope
+     */
+    public static SessionScope profile(String profilesId) {
+        if (profilesId == null) {
+            throw new IllegalArgumentException("profilesId is null");
+        }
+        return new SessionScope(profilesId, null, false);
+    }
+
+    /**
+     * get the active profile
+     * @return ID of the active profile, null for the default profile
+     */
+    public String getProfilesId() {
+        return profilesId;
+    }
+
+    /**
+     * get the active entity
+     * @return ID of the active entity, null for the default entity of the profile
+     */
+    public String getEntitiesId() {
+        return entitiesId;
+    }
+
+    /**
+     * get if the sub entities are visible
+     * @return true if the sub entities of the active entity are visible
+     */
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SessionScope)) {
+            return false;
+        }
+        SessionScope scope = (SessionScope) other;
+        return recursive == scope.recursive
+                && (profilesId == null ? scope.profilesId == null : profilesId.equals(scope.profilesId))
+                && (entitiesId == null ? scope.entitiesId == null : entitiesId.equals(scope.entitiesId));
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = profilesId == null ? 0 : profilesId.hashCode();
+        hash = 31 * hash + (entitiesId == null ? 0 : entitiesId.hashCode());
+        return 31 * hash + (recursive ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "profile " + (profilesId == null ? "default" : profilesId)
+                + ", entity " + (entitiesId == null ? "default" : entitiesId)
+                + (recursive ? " recursive" : "");
+    }
+}
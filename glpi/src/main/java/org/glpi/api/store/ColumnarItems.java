@@ -0,0 +1,554 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.store;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only columnar copy of getAllItems rows.
+ *
+ * Integer fields (id, *_id, is_*...) are kept in primitive int or long arrays, the other
+ * fields are dictionary encoded: each distinct text is stored once, packed with the others of
+ * the column in one UTF-8 array, and the rows keep an int code. Rows are rebuilt on demand
+ * with {@link #row(int)}. Nested values (links), booleans and decimal numbers are kept as their
+ * JSON text with a tag telling they are not strings, so {@link Row#toJsonObject()} gives back
+ * the values with their original type.
+ */
+public class ColumnarItems {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int size;
+    private final Map<String, Column> columns;
+
+    private ColumnarItems(int size, Map<String, Column> columns) {
+        this.size = size;
+        this.columns = columns;
+    }
+
+    /**
+     * Build the columns from rows
+     *
+     * @param rows response of getAllItems
+     * @return the columnar items
+     */
+    public static ColumnarItems from(JsonArray rows) {
+        Builder builder = new Builder();
+        builder.addAll(rows);
+        return builder.build();
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return names of the fields, in the order they were first seen
+     */
+    public Set<String> fields() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * Get a view on a row
+     *
+     * @param index position of the row
+     * @return the row
+     */
+    public Row row(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("row " + index + " of " + size);
+        }
+        return new Row(index);
+    }
+
+    /**
+     * Get the values of an integer field, the array must not be modified
+     *
+     * @param field name of the field
+     * @return one value per row, 0 for the missing values, see {@link #isNull(String, int)}
+     * @throws IllegalArgumentException if the field is not an int column
+     */
+    public int[] intColumn(String field) {
+        Column column = columns.get(field);
+        if (!(column instanceof IntColumn)) {
+            throw new IllegalArgumentException(field + " is not an int column");
+        }
+        return ((IntColumn) column).values;
+    }
+
+    /**
+     * Get the values of an integer field as long
+     *
+     * @param field name of the field
+     * @return a new array with one value per row, 0 for the missing values
+     * @throws IllegalArgumentException if the field is not an integer column
+     */
+    public long[] longColumn(String field) {
+        Column column = columns.get(field);
+        if (column instanceof LongColumn) {
+            return Arrays.copyOf(((LongColumn) column).values, size);
+        }
+        long[] values = new long[size];
+        int[] ints = intColumn(field);
+        for (int i = 0; i < size; i++) {
+            values[i] = ints[i];
+        }
+        return values;
+    }
+
+    /**
+     * Tell if a field has no value in a row
+     *
+     * @param field name of the field
+     * @param index position of the row
+     * @return true if the field is missing or null
+     */
+    public boolean isNull(String field, int index) {
+        Column column = columns.get(field);
+        return column == null || column.isNull(index);
+    }
+
+    /**
+     * Count the rows whose field is equal to the value, without building the rows
+     *
+     * @param field name of the field
+     * @param value expected value, compared as text
+     * @return number of rows
+     */
+    public int count(String field, String value) {
+        Column column = columns.get(field);
+        if (column == null) {
+            return 0;
+        }
+        return column.count(value);
+    }
+
+    /**
+     * Approximate heap used by the columns, without the object headers
+     *
+     * @return size in bytes
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Column column : columns.values()) {
+            bytes += column.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * View on one row
+     */
+    public class Row {
+        private final int index;
+
+        Row(int index) {
+            this.index = index;
+        }
+
+        /**
+         * @param field name of the field
+         * @return the value as text, null if missing
+         */
+        public String getString(String field) {
+            Column column = columns.get(field);
+            return column == null || column.isNull(index) ? null : column.text(index);
+        }
+
+        /**
+         * @param field name of the field
+         * @return the value of an integer field, 0 if missing
+         */
+        public long getLong(String field) {
+            Column column = columns.get(field);
+            if (column instanceof IntColumn) {
+                return ((IntColumn) column).values[index];
+            }
+            if (column instanceof LongColumn) {
+                return ((LongColumn) column).values[index];
+            }
+            String text = getString(field);
+            return text == null ? 0 : Long.parseLong(text);
+        }
+
+        /**
+         * @param field name of the field
+         * @return the value of an integer field, 0 if missing
+         */
+        public int getInt(String field) {
+            return (int) getLong(field);
+        }
+
+        /**
+         * @param field name of the field
+         * @return true if the field is missing or null
+         */
+        public boolean isNull(String field) {
+            return ColumnarItems.this.isNull(field, index);
+        }
+
+        /**
+         * @return a new JsonObject with the fields of the row
+         */
+        public JsonObject toJsonObject() {
+            JsonObject item = new JsonObject();
+            for (Map.Entry<String, Column> column : columns.entrySet()) {
+                if (!column.getValue().isNull(index)) {
+                    item.add(column.getKey(), column.getValue().json(index));
+                }
+            }
+            return item;
+        }
+    }
+
+    /**
+     * Build the columns page after page, each column starts as int and is promoted to long or
+     * dictionary when a value does not fit
+     */
+    public static class Builder {
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+        private int size = 0;
+
+        /**
+         * Add the rows of a page
+         *
+         * @param rows response of getAllItems
+         * @return the same builder
+         */
+        public Builder addAll(JsonArray rows) {
+            for (JsonElement row : rows) {
+                add(row.getAsJsonObject());
+            }
+            return this;
+        }
+
+        /**
+         * Add a row
+         *
+         * @param row the fields of an item
+         * @return the same builder
+         */
+        public Builder add(JsonObject row) {
+            for (Map.Entry<String, JsonElement> field : row.entrySet()) {
+                JsonElement value = field.getValue();
+                if (value == null || value.isJsonNull()) {
+                    continue;
+                }
+                Column column = columns.get(field.getKey());
+                if (column == null) {
+                    column = new IntColumn();
+                }
+                column = column.set(size, value);
+                columns.put(field.getKey(), column);
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * @return the columnar items, the builder must not be used after
+         */
+        public ColumnarItems build() {
+            for (Column column : columns.values()) {
+                column.trim(size);
+            }
+            return new ColumnarItems(size, columns);
+        }
+    }
+
+    private static long integer(JsonElement value) {
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            throw new NumberFormatException();
+        }
+        String text = value.getAsString();
+        if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0) {
+            throw new NumberFormatException();
+        }
+        return Long.parseLong(text);
+    }
+
+    private static int capacity(int current, int index) {
+        int capacity = Math.max(16, current);
+        while (capacity <= index) {
+            capacity += capacity >> 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Values of one field
+     */
+    private abstract static class Column {
+        final BitSet present = new BitSet();
+
+        /**
+         * Set the value of a row, return the column to use from now on
+         */
+        abstract Column set(int index, JsonElement value);
+
+        abstract String text(int index);
+
+        abstract JsonElement json(int index);
+
+        abstract void trim(int size);
+
+        abstract long estimatedBytes();
+
+        boolean isNull(int index) {
+            return !present.get(index);
+        }
+
+        int count(String value) {
+            int count = 0;
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                if (value.equals(text(i))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static class IntColumn extends Column {
+        int[] values = new int[0];
+
+        @Override
+        Column set(int index, JsonElement value) {
+            long number;
+            try {
+                number = integer(value);
+            } catch (NumberFormatException ex) {
+                return DictColumn.promote(this, index, value);
+            }
+            if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+                return LongColumn.promote(this).set(index, value);
+            }
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, capacity(values.length, index));
+            }
+            values[index] = (int) number;
+            present.set(index);
+            return this;
+        }
+
+        @Override
+        String text(int index) {
+            return String.valueOf(values[index]);
+        }
+
+        @Override
+        JsonElement json(int index) {
+            return new JsonPrimitive(values[index]);
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 4L * values.length + present.size() / 8;
+        }
+    }
+
+    private static class LongColumn extends Column {
+        long[] values = new long[0];
+
+        static LongColumn promote(IntColumn ints) {
+            LongColumn column = new LongColumn();
+            column.values = new long[ints.values.length];
+            for (int i = 0; i < ints.values.length; i++) {
+                column.values[i] = ints.values[i];
+            }
+            column.present.or(ints.present);
+            return column;
+        }
+
+        @Override
+        Column set(int index, JsonElement value) {
+            long number;
+            try {
+                number = integer(value);
+            } catch (NumberFormatException ex) {
+                return DictColumn.promote(this, index, value);
+            }
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, capacity(values.length, index));
+            }
+            values[index] = number;
+            present.set(index);
+            return this;
+        }
+
+        @Override
+        String text(int index) {
+            return String.valueOf(values[index]);
+        }
+
+        @Override
+        JsonElement json(int index) {
+            return new JsonPrimitive(values[index]);
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 8L * values.length + present.size() / 8;
+        }
+    }
+
+    private static class DictColumn extends Column {
+        int[] codes = new int[0];
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> lookup = new HashMap<>();
+        Map<String, Integer> jsonLookup = new HashMap<>();
+        // entries holding the JSON text of a value that is not a string
+        final BitSet json = new BitSet();
+        // once built the distinct texts are packed in one UTF-8 array
+        byte[] data;
+        int[] offsets;
+
+        static Column promote(Column numbers, int index, JsonElement value) {
+            DictColumn column = new DictColumn();
+            for (int i = numbers.present.nextSetBit(0); i >= 0; i = numbers.present.nextSetBit(i + 1)) {
+                column.put(i, numbers.text(i), true);
+            }
+            return column.set(index, value);
+        }
+
+        @Override
+        Column set(int index, JsonElement value) {
+            if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+                put(index, value.getAsString(), false);
+            } else {
+                put(index, value.toString(), true);
+            }
+            return this;
+        }
+
+        private void put(int index, String text, boolean isJson) {
+            Map<String, Integer> entries = isJson ? jsonLookup : lookup;
+            Integer code = entries.get(text);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(text);
+                entries.put(text, code);
+                json.set(code, isJson);
+            }
+            if (index >= codes.length) {
+                codes = Arrays.copyOf(codes, capacity(codes.length, index));
+            }
+            codes[index] = code;
+            present.set(index);
+        }
+
+        @Override
+        String text(int index) {
+            return entry(codes[index]);
+        }
+
+        private String entry(int code) {
+            if (data == null) {
+                return dictionary.get(code);
+            }
+            return new String(data, offsets[code], offsets[code + 1] - offsets[code], UTF_8);
+        }
+
+        @Override
+        JsonElement json(int index) {
+            int code = codes[index];
+            return json.get(code) ? new JsonParser().parse(entry(code)) : new JsonPrimitive(entry(code));
+        }
+
+        @Override
+        int count(String value) {
+            // the text can be both a string and a number entry, "1" and 1
+            BitSet matching = new BitSet();
+            for (int i = 0; i < offsets.length - 1; i++) {
+                if (value.equals(entry(i))) {
+                    matching.set(i);
+                }
+            }
+            if (matching.isEmpty()) {
+                return 0;
+            }
+            int count = 0;
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+                if (matching.get(codes[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        void trim(int size) {
+            codes = Arrays.copyOf(codes, size);
+            byte[][] texts = new byte[dictionary.size()][];
+            offsets = new int[dictionary.size() + 1];
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = dictionary.get(i).getBytes(UTF_8);
+                offsets[i + 1] = offsets[i] + texts[i].length;
+            }
+            data = new byte[offsets[texts.length]];
+            for (int i = 0; i < texts.length; i++) {
+                System.arraycopy(texts[i], 0, data, offsets[i], texts[i].length);
+            }
+            dictionary = null;
+            lookup = null;
+            jsonLookup = null;
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 4L * codes.length + present.size() / 8 + json.size() / 8 + data.length + 4L * offsets.length;
+        }
+    }
+}
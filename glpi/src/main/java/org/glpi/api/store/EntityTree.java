@@ -0,0 +1,371 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.store;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree of the entities answering "is X under Y" and "all the descendants of Z" without request.
+ *
+ * The tree is built from the Entity items (getAllItems of Entity, with the id, entities_id
+ * and completename fields). Every entity gets the interval of its subtree in the depth first
+ * order (nested sets), so an ancestor test compares two positions and the descendants of an
+ * entity are a contiguous slice. The changes update the parent links right away and the
+ * intervals are computed again once, on the next query.
+ */
+public class EntityTree {
+
+    private static final String ID = "id";
+    private static final String PARENT = "entities_id";
+    private static final String COMPLETE_NAME = "completename";
+    private static final String NAME = "name";
+
+    private final Map<Integer, Integer> parents = new LinkedHashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+
+    private boolean dirty = true;
+    private Map<Integer, Integer> positions;
+    private int[] order;
+    private int[] ends;
+    private int[] depths;
+
+    /**
+     * Create an empty tree, add the entities with {@link #put(JsonObject)}
+     */
+    public EntityTree() {
+    }
+
+    /**
+     * Create the tree of the entities
+     *
+     * @param entities the Entity items, with the fields id and entities_id
+     */
+    public EntityTree(JsonArray entities) {
+        for (JsonElement entity : entities) {
+            if (entity.isJsonObject()) {
+                put(entity.getAsJsonObject());
+            }
+        }
+    }
+
+    /**
+     * Read the entity ids of the getMyEntities response
+     *
+     * @param myEntities the response of getMyEntities
+     * @return the ids of the entities of the user
+     */
+    public static int[] myEntityIds(JsonObject myEntities) {
+        JsonElement list = myEntities.get("myentities");
+        if (list == null || !list.isJsonArray()) {
+            return new int[0];
+        }
+        int[] ids = new int[list.getAsJsonArray().size()];
+        int count = 0;
+        for (JsonElement entity : list.getAsJsonArray()) {
+            Integer id = entity.isJsonObject() ? intValue(entity.getAsJsonObject().get(ID)) : null;
+            if (id != null) {
+                ids[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Add or update an entity
+     *
+     * @param entity the Entity item, with the fields id and entities_id
+     */
+    public synchronized void put(JsonObject entity) {
+        Integer id = intValue(entity.get(ID));
+        if (id == null) {
+            throw new IllegalArgumentException("Entity without id");
+        }
+        Integer parent = intValue(entity.get(PARENT));
+        // the root entity has no parent, or itself as parent on the old versions
+        put(id, parent == null || parent.equals(id) ? -1 : parent);
+        JsonElement name = entity.has(COMPLETE_NAME) ? entity.get(COMPLETE_NAME) : entity.get(NAME);
+        if (name != null && name.isJsonPrimitive()) {
+            names.put(id, name.getAsString());
+        }
+    }
+
+    /**
+     * Add or move an entity
+     *
+     * @param id       id of the entity
+     * @param parentId id of the parent entity, -1 for a root entity
+     */
+    public synchronized void put(int id, int parentId) {
+        Integer previous = parents.put(id, parentId);
+        if (previous == null || previous != parentId) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Remove an entity, its children become roots until they are moved or removed
+     *
+     * @param id id of the entity
+     */
+    public synchronized void remove(int id) {
+        if (parents.remove(id) != null) {
+            names.remove(id);
+            dirty = true;
+        }
+    }
+
+    /**
+     * @return number of entities
+     */
+    public synchronized int size() {
+        return parents.size();
+    }
+
+    /**
+     * @param id id of the entity
+     * @return true if the entity is in the tree
+     */
+    public synchronized boolean contains(int id) {
+        return parents.containsKey(id);
+    }
+
+    /**
+     * @param id id of the entity
+     * @return the complete name of the entity, or its name, null when unknown
+     */
+    public synchronized String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @param id id of the entity
+     * @return id of the parent entity, -1 for a root or an unknown entity
+     */
+    public synchronized int getParent(int id) {
+        Integer parent = parents.get(id);
+        return parent == null || !parents.containsKey(parent) ? -1 : parent;
+    }
+
+    /**
+     * @param id id of the entity
+     * @return number of ancestors of the entity, -1 for an unknown entity
+     */
+    public synchronized int getDepth(int id) {
+        rebuild();
+        Integer position = positions.get(id);
+        return position == null ? -1 : depths[position];
+    }
+
+    /**
+     * Test if an entity is the ancestor of another one, in constant time
+     *
+     * @param ancestorId   id of the ancestor entity
+     * @param descendantId id of the descendant entity
+     * @param orSelf       true to accept the same entity
+     * @return true if descendantId is under ancestorId
+     */
+    public synchronized boolean isAncestor(int ancestorId, int descendantId, boolean orSelf) {
+        rebuild();
+        Integer ancestor = positions.get(ancestorId);
+        Integer descendant = positions.get(descendantId);
+        if (ancestor == null || descendant == null) {
+            return false;
+        }
+        return (orSelf ? descendant >= ancestor : descendant > ancestor) && descendant < ends[ancestor];
+    }
+
+    /**
+     * Get the descendants of an entity, in depth first order
+     *
+     * @param id     id of the entity
+     * @param orSelf true to include the entity
+     * @return the ids, empty for an unknown entity
+     */
+    public synchronized int[] getDescendants(int id, boolean orSelf) {
+        rebuild();
+        Integer position = positions.get(id);
+        if (position == null) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(order, orSelf ? position : position + 1, ends[position]);
+    }
+
+    /**
+     * Get the ancestors of an entity, from its parent to the root
+     *
+     * @param id id of the entity
+     * @return the ids, empty for a root or an unknown entity
+     */
+    public synchronized int[] getAncestors(int id) {
+        rebuild();
+        Integer position = positions.get(id);
+        if (position == null) {
+            return new int[0];
+        }
+        int[] ancestors = new int[depths[position]];
+        int current = id;
+        for (int i = 0; i < ancestors.length; i++) {
+            current = parents.get(current);
+            ancestors[i] = current;
+        }
+        return ancestors;
+    }
+
+    /**
+     * Keep the rows whose entity is the entity or, with recursive, one of its descendants, like
+     * the server does for an active entity
+     *
+     * @param rows      the items to filter
+     * @param field     the field holding the entity id of a row, usually entities_id
+     * @param entityId  id of the entity
+     * @param recursive true to keep the rows of the descendants
+     * @return the rows kept, in the same order
+     */
+    public synchronized List<JsonObject> filter(JsonArray rows, String field, int entityId, boolean recursive) {
+        rebuild();
+        List<JsonObject> kept = new ArrayList<>();
+        Integer start = positions.get(entityId);
+        if (start == null) {
+            return kept;
+        }
+        int end = recursive ? ends[start] : start + 1;
+        for (JsonElement row : rows) {
+            if (!row.isJsonObject()) {
+                continue;
+            }
+            Integer id = intValue(row.getAsJsonObject().get(field));
+            Integer position = id == null ? null : positions.get(id);
+            if (position != null && position >= start && position < end) {
+                kept.add(row.getAsJsonObject());
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Number the entities in depth first order, the subtree of the entity at position p is
+     * between p and ends[p] excluded
+     */
+    private void rebuild() {
+        if (!dirty) {
+            return;
+        }
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        List<Integer> roots = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entity : parents.entrySet()) {
+            Integer parent = entity.getValue();
+            if (parent < 0 || !parents.containsKey(parent)) {
+                roots.add(entity.getKey());
+                continue;
+            }
+            List<Integer> list = children.get(parent);
+            if (list == null) {
+                list = new ArrayList<>();
+                children.put(parent, list);
+            }
+            list.add(entity.getKey());
+        }
+
+        int size = parents.size();
+        positions = new HashMap<>(size * 2);
+        order = new int[size];
+        ends = new int[size];
+        depths = new int[size];
+        int next = 0;
+        for (Integer root : roots) {
+            next = number(root, next, children);
+        }
+        // the entities of a cycle are not reached from a root, number them from any of them
+        for (Integer id : parents.keySet()) {
+            if (!positions.containsKey(id)) {
+                next = number(id, next, children);
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     * Iterative depth first numbering of a subtree
+     *
+     * @return the next free position
+     */
+    private int number(int root, int next, Map<Integer, List<Integer>> children) {
+        int[] stack = new int[16];
+        int[] childIndexes = new int[16];
+        int top = 0;
+        stack[0] = root;
+        childIndexes[0] = 0;
+        positions.put(root, next);
+        order[next] = root;
+        depths[next] = 0;
+        next++;
+        while (top >= 0) {
+            int current = stack[top];
+            List<Integer> list = children.get(current);
+            if (list != null && childIndexes[top] < list.size()) {
+                int child = list.get(childIndexes[top]++);
+                if (positions.containsKey(child)) {
+                    continue;
+                }
+                if (++top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                    childIndexes = Arrays.copyOf(childIndexes, top * 2);
+                }
+                stack[top] = child;
+                childIndexes[top] = 0;
+                positions.put(child, next);
+                order[next] = child;
+                depths[next] = top;
+                next++;
+            } else {
+                ends[positions.get(current)] = next;
+                top--;
+            }
+        }
+        return next;
+    }
+
+    private static Integer intValue(JsonElement value) {
+        if (value == null || !value.isJsonPrimitive()) {
+            return null;
+        }
+        try {
+            return value.getAsInt();
+        } catch (NumberFormatException ex) {
+            // a name given by expand_dropdowns
+            return null;
+        }
+    }
+}
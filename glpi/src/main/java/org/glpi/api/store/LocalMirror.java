@@ -0,0 +1,603 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.store;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.glpi.api.itemType;
+import org.glpi.api.sync.SyncStore;
+import org.glpi.api.utils.Helpers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local copy of selected item types kept in memory with secondary indexes and saved in a
+ * directory, one append-only file per item type. {@link #snapshot()} saves the items in the
+ * binary {@link Snapshot} format and empties the append-only files, the next start then reads
+ * the snapshot and only the changes done after it. {@link #compact()} rewrites the append-only
+ * files with all the items and deletes the snapshots.
+ *
+ * The mirror is a {@link SyncStore} so it can be fed by {@link org.glpi.api.sync.InventorySync},
+ * the files are flushed each time a high-water mark is saved.
+ */
+public class LocalMirror implements SyncStore {
+
+    /**
+     * Fields indexed by default
+     */
+    public static final List<String> DEFAULT_INDEXES = Collections.unmodifiableList(
+            Arrays.asList("name", "serial", "entities_id", "states_id", "users_id"));
+
+    private static final String MARKS = "marks.properties";
+    private static final String EXTENSION = ".jsonl";
+    private static final String SNAPSHOT_EXTENSION = ".snap";
+    private static final char UPSERT = 'U';
+    private static final char DELETE = 'D';
+    /**
+     * First line of a compacted file, the items read before it, from the snapshot, are dropped
+     */
+    private static final char RESET = 'R';
+
+    private final File directory;
+    private final Set<String> indexedFields;
+    private final Map<String, Table> tables = new HashMap<>();
+    private final Properties marks = new Properties();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Open or create a mirror indexing the default fields
+     *
+     * @param directory where the files of the mirror are saved
+     * @throws IOException if the files can not be read
+     */
+    public LocalMirror(File directory) throws IOException {
+        this(directory, DEFAULT_INDEXES);
+    }
+
+    /**
+     * Open or create a mirror
+     *
+     * @param directory     where the files of the mirror are saved
+     * @param indexedFields the fields with a secondary index
+     * @throws IOException if the files can not be read
+     */
+    public LocalMirror(File directory, List<String> indexedFields) throws IOException {
+        this.directory = directory;
+        this.indexedFields = new LinkedHashSet<>(indexedFields);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        load();
+    }
+
+    @Override
+    public String getHighWaterMark(String itemType) {
+        lock.readLock().lock();
+        try {
+            return marks.getProperty(itemType);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void setHighWaterMark(String itemType, String dateMod) {
+        lock.writeLock().lock();
+        try {
+            marks.setProperty(itemType, dateMod);
+            flush();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can not save the mirror", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(String itemType, JsonObject item) {
+        lock.writeLock().lock();
+        try {
+            Table table = table(itemType);
+            // a copy, the caller can change its item without touching the rows and indexes
+            table.put(Helpers.deepCopy(item));
+            table.append(UPSERT + item.toString());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can not save the mirror", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String itemType, String id) {
+        lock.writeLock().lock();
+        try {
+            Table table = table(itemType);
+            if (table.remove(id)) {
+                table.append(DELETE + id);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can not save the mirror", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> ids(String itemType) {
+        lock.readLock().lock();
+        try {
+            Table table = tables.get(itemType);
+            return table == null ? new HashSet<String>() : new HashSet<>(table.rows.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get an item
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param id       unique identifier of the item
+     * @return a copy of the item, changing it does not change the mirror, or null
+     */
+    public JsonObject get(itemType itemType, String id) {
+        lock.readLock().lock();
+        try {
+            Table table = tables.get(itemType.name());
+            return table == null ? null : Helpers.deepCopy(table.rows.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Start a query on the items of an item type
+     *
+     * @param itemType These are the item type available on GLPI
+     * @return the query, add conditions then call list, ids or count
+     */
+    public Query query(itemType itemType) {
+        return new Query(itemType.name());
+    }
+
+    /**
+     * Write the pending changes to the files
+     *
+     * @throws IOException if a file can not be written
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Table table : tables.values()) {
+                if (table.writer != null) {
+                    table.writer.flush();
+                }
+            }
+            FileOutputStream out = new FileOutputStream(new File(directory, MARKS));
+            try {
+                marks.store(out, null);
+            } finally {
+                out.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the files with only the current items, the changes replaced by a newer one are
+     * dropped and the snapshots are deleted
+     *
+     * @throws IOException if a file can not be written
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Table table : tables.values()) {
+                table.compact();
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Save the current items in a binary snapshot per item type and empty the append-only
+     * files once the snapshot replaced the previous one, faster to load than {@link #compact()}
+     *
+     * @throws IOException if a file can not be written
+     */
+    public void snapshot() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Table table : tables.values()) {
+                Snapshot.write(table.snapshot, table.rows.values());
+                table.truncate();
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flush and close the files
+     *
+     * @throws IOException if a file can not be written
+     */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            flush();
+            for (Table table : tables.values()) {
+                table.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Table table(String itemType) {
+        Table table = tables.get(itemType);
+        if (table == null) {
+            table = new Table(new File(directory, itemType + EXTENSION),
+                    new File(directory, itemType + SNAPSHOT_EXTENSION));
+            tables.put(itemType, table);
+        }
+        return table;
+    }
+
+    private void load() throws IOException {
+        File marksFile = new File(directory, MARKS);
+        if (marksFile.isFile()) {
+            FileInputStream in = new FileInputStream(marksFile);
+            try {
+                marks.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> itemTypes = new LinkedHashSet<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(EXTENSION)) {
+                itemTypes.add(name.substring(0, name.length() - EXTENSION.length()));
+            } else if (name.endsWith(SNAPSHOT_EXTENSION)) {
+                itemTypes.add(name.substring(0, name.length() - SNAPSHOT_EXTENSION.length()));
+            }
+        }
+
+        JsonParser parser = new JsonParser();
+        for (String itemType : itemTypes) {
+            Table table = table(itemType);
+            if (table.snapshot.isFile()) {
+                for (JsonObject item : Snapshot.read(table.snapshot)) {
+                    table.put(item);
+                }
+            }
+            if (!table.file.isFile()) {
+                continue;
+            }
+            // the changes done after the snapshot, replaying older ones gives the same items, a
+            // compacted file left with an older snapshot by a crash replaces its items
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(table.file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (line.charAt(0) == UPSERT) {
+                        table.put(parser.parse(line.substring(1)).getAsJsonObject());
+                    } else if (line.charAt(0) == DELETE) {
+                        table.remove(line.substring(1));
+                    } else if (line.charAt(0) == RESET) {
+                        table.clear();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static String value(JsonObject item, String field) {
+        JsonElement value = item.get(field);
+        return value == null || value.isJsonNull() || !value.isJsonPrimitive() ? null : value.getAsString();
+    }
+
+    /**
+     * Items of one item type with their indexes
+     */
+    private class Table {
+        private final File file;
+        private final File snapshot;
+        private final Map<String, JsonObject> rows = new LinkedHashMap<>();
+        private final Map<String, Map<String, Set<String>>> indexes = new HashMap<>();
+        private Writer writer;
+
+        Table(File file, File snapshot) {
+            this.file = file;
+            this.snapshot = snapshot;
+            for (String field : indexedFields) {
+                indexes.put(field, new HashMap<String, Set<String>>());
+            }
+        }
+
+        void put(JsonObject item) {
+            String id = item.get("id").getAsString();
+            JsonObject previous = rows.put(id, item);
+            for (Map.Entry<String, Map<String, Set<String>>> index : indexes.entrySet()) {
+                if (previous != null) {
+                    unindex(index.getValue(), value(previous, index.getKey()), id);
+                }
+                String value = value(item, index.getKey());
+                if (value != null) {
+                    Set<String> ids = index.getValue().get(value);
+                    if (ids == null) {
+                        ids = new HashSet<>();
+                        index.getValue().put(value, ids);
+                    }
+                    ids.add(id);
+                }
+            }
+        }
+
+        boolean remove(String id) {
+            JsonObject previous = rows.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            for (Map.Entry<String, Map<String, Set<String>>> index : indexes.entrySet()) {
+                unindex(index.getValue(), value(previous, index.getKey()), id);
+            }
+            return true;
+        }
+
+        void clear() {
+            rows.clear();
+            for (Map<String, Set<String>> index : indexes.values()) {
+                index.clear();
+            }
+        }
+
+        private void unindex(Map<String, Set<String>> index, String value, String id) {
+            if (value == null) {
+                return;
+            }
+            Set<String> ids = index.get(value);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    index.remove(value);
+                }
+            }
+        }
+
+        void append(String line) throws IOException {
+            if (writer == null) {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+            }
+            writer.write(line);
+            writer.write('\n');
+        }
+
+        void compact() throws IOException {
+            close();
+            File temporary = new File(file.getPath() + ".tmp");
+            FileOutputStream stream = new FileOutputStream(temporary);
+            Writer out = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"));
+            try {
+                out.write(RESET);
+                out.write('\n');
+                for (JsonObject item : rows.values()) {
+                    out.write(UPSERT + item.toString());
+                    out.write('\n');
+                }
+                out.flush();
+                stream.getFD().sync();
+            } finally {
+                out.close();
+            }
+            Snapshot.replace(temporary, file);
+            // the file holds all the items, the snapshot would bring back the deleted ones
+            if (snapshot.exists() && !snapshot.delete()) {
+                throw new IOException("Can not delete " + snapshot);
+            }
+        }
+
+        void truncate() throws IOException {
+            close();
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Can not delete " + file);
+            }
+        }
+
+        void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+    }
+
+    /**
+     * Conditions on the items of an item type, the conditions on indexed fields are answered
+     * by the indexes and the others by a scan of the candidates
+     */
+    public class Query {
+        private final String itemType;
+        private final Map<String, String> conditions = new LinkedHashMap<>();
+        private int limit = Integer.MAX_VALUE;
+
+        Query(String itemType) {
+            this.itemType = itemType;
+        }
+
+        /**
+         * Keep the items whose field is equal to the value
+         *
+         * @param field name of the field
+         * @param value expected value, compared as text
+         * @return the same query
+         */
+        public Query where(String field, String value) {
+            conditions.put(field, value);
+            return this;
+        }
+
+        /**
+         * Keep the items whose field is equal to the value
+         *
+         * @param field name of the field
+         * @param value expected value
+         * @return the same query
+         */
+        public Query where(String field, long value) {
+            return where(field, String.valueOf(value));
+        }
+
+        /**
+         * Return at most limit items
+         *
+         * @param limit maximum number of items
+         * @return the same query
+         */
+        public Query limit(int limit) {
+            this.limit = Math.max(0, limit);
+            return this;
+        }
+
+        /**
+         * @return copies of the items matching all the conditions
+         */
+        public List<JsonObject> list() {
+            lock.readLock().lock();
+            try {
+                List<JsonObject> items = new ArrayList<>();
+                Table table = tables.get(itemType);
+                if (table == null) {
+                    return items;
+                }
+                for (String id : match(table)) {
+                    items.add(Helpers.deepCopy(table.rows.get(id)));
+                }
+                return items;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return the ids of the items matching all the conditions
+         */
+        public List<String> ids() {
+            lock.readLock().lock();
+            try {
+                Table table = tables.get(itemType);
+                return table == null ? new ArrayList<String>() : match(table);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return the number of items matching all the conditions
+         */
+        public int count() {
+            return ids().size();
+        }
+
+        private List<String> match(Table table) {
+            // start from the smallest indexed set, or from all the rows
+            Set<String> candidates = null;
+            for (Map.Entry<String, String> condition : conditions.entrySet()) {
+                Map<String, Set<String>> index = table.indexes.get(condition.getKey());
+                if (index == null) {
+                    continue;
+                }
+                Set<String> ids = index.get(condition.getValue());
+                if (ids == null) {
+                    return new ArrayList<>();
+                }
+                if (candidates == null || ids.size() < candidates.size()) {
+                    candidates = ids;
+                }
+            }
+
+            List<String> result = new ArrayList<>();
+            for (String id : candidates != null ? candidates : table.rows.keySet()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                JsonObject item = table.rows.get(id);
+                if (matches(item)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        private boolean matches(JsonObject item) {
+            for (Map.Entry<String, String> condition : conditions.entrySet()) {
+                if (!condition.getValue().equals(value(item, condition.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.store;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary copy of a list of items, read back much faster than the JSON text.
+ *
+ * The file starts with a dictionary holding the field names and the texts repeated in several
+ * items, the most frequent first, then the items where the texts are replaced by their index in
+ * the dictionary and the integers, ids included, are written as variable length integers. The
+ * file is memory mapped to be read.
+ */
+public final class Snapshot {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x474c5053; // GLPS
+    private static final int VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INTEGER = 3;
+    private static final int NUMBER = 4;
+    private static final int TEXT = 5;
+    private static final int TEXT_REFERENCE = 6;
+    private static final int OBJECT = 7;
+    private static final int ARRAY = 8;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Write the items, the file is replaced only once it is complete and synced to the disk
+     *
+     * @param file  destination file
+     * @param items the items to save
+     * @throws IOException if the file can not be written
+     */
+    public static void write(File file, Collection<JsonObject> items) throws IOException {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (JsonObject item : items) {
+            count(counts, item);
+        }
+        List<String> dictionary = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) {
+                dictionary.add(entry.getKey());
+            }
+        }
+        Collections.sort(dictionary, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return counts.get(b).compareTo(counts.get(a));
+            }
+        });
+        Map<String, Integer> references = new HashMap<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+            references.put(dictionary.get(i), i);
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temporary);
+        OutputStream out = new BufferedOutputStream(stream, 64 * 1024);
+        try {
+            writeInt(out, MAGIC);
+            writeVarLong(out, VERSION);
+            writeVarLong(out, dictionary.size());
+            for (String text : dictionary) {
+                writeText(out, text);
+            }
+            writeVarLong(out, items.size());
+            for (JsonObject item : items) {
+                writeObject(out, item, references);
+            }
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            out.close();
+        }
+        replace(temporary, file);
+    }
+
+    /**
+     * Rename the complete temporary file over the file, the file is never missing where the
+     * rename replaces an existing file
+     *
+     * @param temporary the new content, synced to the disk
+     * @param file      the file to replace
+     * @throws IOException if the file can not be replaced
+     */
+    static void replace(File temporary, File file) throws IOException {
+        if (temporary.renameTo(file)) {
+            return;
+        }
+        // the systems where the rename does not replace an existing file
+        if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+            throw new IOException("Can not replace " + file);
+        }
+    }
+
+    /**
+     * Read the items of a snapshot
+     *
+     * @param file the snapshot file
+     * @return the items in the order they were written
+     * @throws IOException if the file can not be read or is not a snapshot
+     */
+    public static List<JsonObject> read(File file) throws IOException {
+        ByteBuffer buffer;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            // the mapping stays valid after the file is closed
+            raf.close();
+        }
+
+        try {
+            if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a snapshot");
+            }
+            if (readVarLong(buffer) != VERSION) {
+                throw new IOException("Unsupported snapshot version in " + file);
+            }
+            String[] dictionary = new String[(int) readVarLong(buffer)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readText(buffer);
+            }
+            int count = (int) readVarLong(buffer);
+            List<JsonObject> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(readObject(buffer, dictionary));
+            }
+            return items;
+        } catch (RuntimeException ex) {
+            // BufferUnderflowException or index out of bounds on a truncated file
+            throw new IOException(file + " is corrupted", ex);
+        }
+    }
+
+    private static void count(Map<String, Integer> counts, JsonElement element) {
+        if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> field : element.getAsJsonObject().entrySet()) {
+                increment(counts, field.getKey());
+                count(counts, field.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            for (JsonElement value : element.getAsJsonArray()) {
+                count(counts, value);
+            }
+        } else if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+            increment(counts, element.getAsString());
+        }
+    }
+
+    private static void increment(Map<String, Integer> counts, String text) {
+        Integer count = counts.get(text);
+        counts.put(text, count == null ? 1 : count + 1);
+    }
+
+    private static void writeObject(OutputStream out, JsonObject object, Map<String, Integer> references) throws IOException {
+        writeVarLong(out, object.entrySet().size());
+        for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+            Integer reference = references.get(field.getKey());
+            if (reference != null) {
+                writeVarLong(out, reference + 1);
+            } else {
+                writeVarLong(out, 0);
+                writeText(out, field.getKey());
+            }
+            writeValue(out, field.getValue(), references);
+        }
+    }
+
+    private static void writeValue(OutputStream out, JsonElement value, Map<String, Integer> references) throws IOException {
+        if (value == null || value.isJsonNull()) {
+            out.write(NULL);
+        } else if (value.isJsonObject()) {
+            out.write(OBJECT);
+            writeObject(out, value.getAsJsonObject(), references);
+        } else if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+            out.write(ARRAY);
+            writeVarLong(out, array.size());
+            for (JsonElement element : array) {
+                writeValue(out, element, references);
+            }
+        } else {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                String number = primitive.getAsString();
+                if (isInteger(number)) {
+                    out.write(INTEGER);
+                    long integer = Long.parseLong(number);
+                    writeVarLong(out, (integer << 1) ^ (integer >> 63));
+                } else {
+                    out.write(NUMBER);
+                    writeText(out, number);
+                }
+            } else {
+                String text = primitive.getAsString();
+                Integer reference = references.get(text);
+                if (reference != null) {
+                    out.write(TEXT_REFERENCE);
+                    writeVarLong(out, reference);
+                } else {
+                    out.write(TEXT);
+                    writeText(out, text);
+                }
+            }
+        }
+    }
+
+    private static JsonObject readObject(ByteBuffer buffer, String[] dictionary) {
+        JsonObject object = new JsonObject();
+        int size = (int) readVarLong(buffer);
+        for (int i = 0; i < size; i++) {
+            int reference = (int) readVarLong(buffer);
+            String name = reference == 0 ? readText(buffer) : dictionary[reference - 1];
+            object.add(name, readValue(buffer, dictionary));
+        }
+        return object;
+    }
+
+    private static JsonElement readValue(ByteBuffer buffer, String[] dictionary) {
+        int tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            case INTEGER:
+                long zigzag = readVarLong(buffer);
+                return new JsonPrimitive((zigzag >>> 1) ^ -(zigzag & 1));
+            case NUMBER:
+                return new JsonPrimitive(new LazilyParsedNumber(readText(buffer)));
+            case TEXT:
+                return new JsonPrimitive(readText(buffer));
+            case TEXT_REFERENCE:
+                return new JsonPrimitive(dictionary[(int) readVarLong(buffer)]);
+            case OBJECT:
+                return readObject(buffer, dictionary);
+            case ARRAY:
+                JsonArray array = new JsonArray();
+                int size = (int) readVarLong(buffer);
+                for (int i = 0; i < size; i++) {
+                    array.add(readValue(buffer, dictionary));
+                }
+                return array;
+            default:
+                throw new IllegalStateException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Integer that fits in a long, without sign, exponent or fraction so it is written back
+     * identically
+     */
+    private static boolean isInteger(String number) {
+        int length = number.length();
+        int start = number.startsWith("-") ? 1 : 0;
+        if (length == start || length - start > 18 || (number.charAt(start) == '0' && length - start > 1)) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return !"-0".equals(number);
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static void writeText(OutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) readVarLong(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
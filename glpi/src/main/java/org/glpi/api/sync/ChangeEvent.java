@@ -0,0 +1,81 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.sync;
+
+/**
+ * Changes of one item seen in the Log entries of a poll
+ */
+public class ChangeEvent {
+
+    private final String itemType;
+    private final String itemsId;
+    private int entries;
+    private long lastLogId;
+
+    /**
+     * Create an event
+     *
+     * @param itemType name of the item type changed
+     * @param itemsId  id of the item changed
+     */
+    public ChangeEvent(String itemType, String itemsId) {
+        this.itemType = itemType;
+        this.itemsId = itemsId;
+    }
+
+    void add(long logId) {
+        entries++;
+        lastLogId = Math.max(lastLogId, logId);
+    }
+
+    /**
+     * @return name of the item type changed
+     */
+    public String getItemType() {
+        return itemType;
+    }
+
+    /**
+     * @return id of the item changed
+     */
+    public String getItemsId() {
+        return itemsId;
+    }
+
+    /**
+     * @return number of Log entries grouped in this event
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return id of the most recent Log entry of the item
+     */
+    public long getLastLogId() {
+        return lastLogId;
+    }
+}
@@ -0,0 +1,310 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.sync;
+
+import android.content.Context;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.cache.ItemCache;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetAllItemQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follow the Log item type to know which items changed.
+ *
+ * Each poll reads the Log entries after the last seen id, groups them by (itemtype, items_id)
+ * and emits one {@link ChangeEvent} per item. The interval between polls goes back to the
+ * minimum when entries are found and doubles up to the maximum while the log is idle.
+ */
+public class ChangeFeed {
+
+    private static final String RANGE_EXCEEDED = "ERROR_RANGE_EXCEED_TOTAL";
+
+    private final GLPI glpi;
+    private final Context context;
+    private ScheduledExecutorService scheduler;
+    private int generation = 0;
+    private long lastSeenId;
+    private long minInterval = 2000;
+    private long maxInterval = 60000;
+    private long interval = minInterval;
+    private int pageSize = 200;
+    private boolean running = false;
+
+    /**
+     * Listener of the changes
+     */
+    public interface Listener {
+        /**
+         * Items changed since the previous poll, ordered by their most recent Log entry
+         *
+         * @param events one event per changed item
+         */
+        void onChanges(List<ChangeEvent> events);
+
+        /**
+         * A poll failed, the next poll starts again from the same id
+         *
+         * @param errorMessage the error
+         */
+        void onFailure(String errorMessage);
+    }
+
+    /**
+     * Create a feed starting after the given Log id
+     *
+     * @param glpi       the glpi instance with an active session
+     * @param context    is the context
+     * @param lastSeenId id of the last Log entry already handled, -1 to start from the most
+     *                   recent entry without emitting the past ones
+     */
+    public ChangeFeed(GLPI glpi, Context context, long lastSeenId) {
+        this.glpi = glpi;
+        this.context = context;
+        this.lastSeenId = lastSeenId;
+    }
+
+    /**
+     * (default: 2000 - 60000): bounds in milliseconds of the interval between two polls
+     *
+     * @param minInterval interval when the log is busy
+     * @param maxInterval interval when the log is idle
+     */
+    public synchronized void setInterval(long minInterval, long maxInterval) {
+        this.minInterval = Math.max(1, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.interval = this.minInterval;
+    }
+
+    /**
+     * (default: 200): number of Log entries per request
+     *
+     * @param pageSize number of entries
+     */
+    public synchronized void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * @return id of the last Log entry handled, to start a new feed at the same place
+     */
+    public synchronized long getLastSeenId() {
+        return lastSeenId;
+    }
+
+    /**
+     * Start polling, the feed can be started again after {@link #stop()} and goes on from the
+     * last seen id
+     *
+     * @param listener here you are going to get the changes
+     */
+    public synchronized void start(Listener listener) {
+        if (running) {
+            throw new IllegalStateException("The change feed is already running");
+        }
+        running = true;
+        generation++;
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "glpi-change-feed");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        schedule(listener, 0, generation);
+    }
+
+    /**
+     * Stop polling, a poll in flight still delivers its changes
+     */
+    public synchronized void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return true between {@link #start(Listener)} and {@link #stop()}
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Listener removing the changed items from an item cache
+     *
+     * @param cache the item cache to invalidate
+     * @return the listener
+     */
+    public static Listener invalidating(final ItemCache cache) {
+        return new Listener() {
+            @Override
+            public void onChanges(List<ChangeEvent> events) {
+                for (ChangeEvent event : events) {
+                    cache.invalidate(event.getItemType(), event.getItemsId());
+                }
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                // the entries are read again by the next poll
+            }
+        };
+    }
+
+    private synchronized void schedule(final Listener listener, long delay, final int generation) {
+        // a poll of a stopped run must not schedule the next one in a new run
+        if (!running || generation != this.generation) {
+            return;
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                new Poll(listener, generation).fetch(0);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void polled(Listener listener, long newestId, boolean busy, int generation) {
+        lastSeenId = Math.max(lastSeenId, newestId);
+        interval = busy ? minInterval : Math.min(maxInterval, interval * 2);
+        schedule(listener, interval, generation);
+    }
+
+    /**
+     * State of one poll
+     */
+    private class Poll {
+        private final Listener listener;
+        private final int generation;
+        private final long after;
+        private final int size;
+        private final Map<String, ChangeEvent> events = new LinkedHashMap<>();
+        private long newestId;
+
+        Poll(Listener listener, int generation) {
+            this.listener = listener;
+            this.generation = generation;
+            synchronized (ChangeFeed.this) {
+                this.after = lastSeenId;
+                this.size = pageSize;
+            }
+            this.newestId = after;
+        }
+
+        void fetch(final int start) {
+            GetAllItemQuery query = new GetAllItemQuery(context);
+            query.setSort("id");
+            query.setOrder(GetAllItemQuery.Order.DESC);
+            query.setRange(start, start + size - 1);
+
+            glpi.getAllItems(itemType.Log, query, new GLPI.ResponseHandle<JsonArray, String>() {
+                @Override
+                public void onResponse(JsonArray rows) {
+                    boolean reachedSeen = false;
+                    for (JsonElement element : rows) {
+                        JsonObject row = element.getAsJsonObject();
+                        long id = row.get("id").getAsLong();
+                        newestId = Math.max(newestId, id);
+                        if (id <= after) {
+                            reachedSeen = true;
+                            continue;
+                        }
+                        if (after >= 0) {
+                            group(row, id);
+                        }
+                    }
+
+                    if (after < 0 || reachedSeen || rows.size() < size) {
+                        emit();
+                    } else {
+                        fetch(start + size);
+                    }
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    if (errorMessage != null && errorMessage.contains(RANGE_EXCEEDED)) {
+                        emit();
+                        return;
+                    }
+                    listener.onFailure(errorMessage);
+                    polled(listener, after, false, generation);
+                }
+            });
+        }
+
+        private void group(JsonObject row, long id) {
+            String type = row.get("itemtype").getAsString();
+            String itemsId = row.get("items_id").getAsString();
+            String key = type + "/" + itemsId;
+            ChangeEvent event = events.get(key);
+            if (event == null) {
+                event = new ChangeEvent(type, itemsId);
+                events.put(key, event);
+            }
+            event.add(id);
+        }
+
+        private void emit() {
+            List<ChangeEvent> changes = new ArrayList<>(events.values());
+            Collections.sort(changes, new Comparator<ChangeEvent>() {
+                @Override
+                public int compare(ChangeEvent left, ChangeEvent right) {
+                    return left.getLastLogId() < right.getLastLogId() ? -1
+                            : left.getLastLogId() == right.getLastLogId() ? 0 : 1;
+                }
+            });
+            synchronized (ChangeFeed.this) {
+                // seen before the listener runs, a feed stopped and started again from the
+                // listener does not read the same entries
+                lastSeenId = Math.max(lastSeenId, newestId);
+            }
+            if (!changes.isEmpty()) {
+                listener.onChanges(changes);
+            }
+            polled(listener, newestId, !changes.isEmpty(), generation);
+        }
+    }
+}
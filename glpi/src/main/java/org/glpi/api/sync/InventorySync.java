@@ -0,0 +1,436 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.sync;
+
+import android.content.Context;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetAllItemQuery;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keep a {@link SyncStore} up to date with the items of GLPI, downloading only what changed.
+ *
+ * For each item type the store remembers the most recent date_mod applied (high-water mark).
+ * A sync reads the rows sorted by date_mod, newest first, and stops at the mark. The rows sent
+ * to the trash since the mark (is_deleted) are removed from the store. Every reconcileEvery
+ * sync the ids of the store are compared with the ids of the server (only_id) to remove the
+ * purged items. Item types without date_mod are fully read and reconciled on each sync.
+ *
+ * The pages overlap by one row. When the first row of a page is not the last row of the
+ * previous page, rows moved between the two requests (an item trashed, restored or purged
+ * during the sync) and a row may have been skipped: the high-water mark is then not moved so
+ * the next sync reads the same changes again, and the ids are not purged.
+ */
+public class InventorySync {
+
+    private static final String DATE_MOD = "date_mod";
+    private static final String RANGE_EXCEEDED = "ERROR_RANGE_EXCEED_TOTAL";
+
+    private final GLPI glpi;
+    private final Context context;
+    private final SyncStore store;
+    private final Map<itemType, Integer> syncCount = new HashMap<>();
+    private int pageSize = 500;
+    private int reconcileEvery = 10;
+
+    /**
+     * Listener of a sync
+     */
+    public interface SyncListener {
+        /**
+         * The store has all the changes of the item type
+         *
+         * @param itemType the item type synchronized
+         * @param result   what was applied to the store
+         */
+        void onComplete(itemType itemType, SyncResult result);
+
+        /**
+         * The sync stopped, the high-water mark was not moved so the next sync applies the
+         * changes again
+         *
+         * @param itemType     the item type synchronized
+         * @param errorMessage the error
+         */
+        void onFailure(itemType itemType, String errorMessage);
+    }
+
+    /**
+     * What a sync applied to the store
+     */
+    public static class SyncResult {
+        private int upserted;
+        private int deleted;
+        private int requests;
+        private boolean reconciled;
+        private long durationMillis;
+
+        /**
+         * @return number of items added or replaced
+         */
+        public int getUpserted() {
+            return upserted;
+        }
+
+        /**
+         * @return number of items removed, trashed or purged
+         */
+        public int getDeleted() {
+            return deleted;
+        }
+
+        /**
+         * @return number of requests sent to the server
+         */
+        public int getRequests() {
+            return requests;
+        }
+
+        /**
+         * @return true if the ids were reconciled with the server
+         */
+        public boolean isReconciled() {
+            return reconciled;
+        }
+
+        /**
+         * @return duration of the sync
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    /**
+     * Create a sync engine
+     *
+     * @param glpi    the glpi instance with an active session
+     * @param context is the context
+     * @param store   the local store to update
+     */
+    public InventorySync(GLPI glpi, Context context, SyncStore store) {
+        this.glpi = glpi;
+        this.context = context;
+        this.store = store;
+    }
+
+    /**
+     * (default: 500): number of rows per request, at least 2 since the pages overlap by one row
+     *
+     * @param pageSize number of rows
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(2, pageSize);
+    }
+
+    /**
+     * (default: 10): reconcile the ids with the server every n sync, 0 to reconcile only
+     * when asked
+     *
+     * @param reconcileEvery number of sync between two reconciliations
+     */
+    public void setReconcileEvery(int reconcileEvery) {
+        this.reconcileEvery = Math.max(0, reconcileEvery);
+    }
+
+    /**
+     * Apply the changes of an item type to the store
+     *
+     * @param itemType These are the item type available on GLPI
+     * @param listener here you are going to get the asynchronous result
+     */
+    public void sync(itemType itemType, SyncListener listener) {
+        boolean reconcile;
+        synchronized (syncCount) {
+            Integer count = syncCount.get(itemType);
+            count = count == null ? 1 : count + 1;
+            syncCount.put(itemType, count);
+            reconcile = reconcileEvery > 0 && count % reconcileEvery == 0;
+        }
+        sync(itemType, reconcile, listener);
+    }
+
+    /**
+     * Apply the changes of an item type to the store
+     *
+     * @param itemType  These are the item type available on GLPI
+     * @param reconcile true to compare the ids of the store with the server
+     * @param listener  here you are going to get the asynchronous result
+     */
+    public void sync(itemType itemType, boolean reconcile, SyncListener listener) {
+        new Run(itemType, reconcile, listener).changed(0);
+    }
+
+    private static String dateMod(JsonObject row) {
+        JsonElement dateMod = row.get(DATE_MOD);
+        return dateMod == null || dateMod.isJsonNull() ? null : dateMod.getAsString();
+    }
+
+    /**
+     * State of one sync
+     */
+    private class Run {
+        private final itemType itemType;
+        private final SyncListener listener;
+        private final String mark;
+        private final long started = System.nanoTime();
+        private final SyncResult result = new SyncResult();
+        private final Set<String> serverIds = new HashSet<>();
+        private boolean reconcile;
+        private String newest;
+        private String lastId;
+        private boolean shifted = false;
+        private boolean idsShifted = false;
+
+        Run(itemType itemType, boolean reconcile, SyncListener listener) {
+            this.itemType = itemType;
+            this.reconcile = reconcile;
+            this.listener = listener;
+            this.mark = store.getHighWaterMark(itemType.name());
+        }
+
+        /**
+         * Read the rows changed since the mark, newest first
+         */
+        void changed(final int start) {
+            fetch(start, false, false, new GLPI.ResponseHandle<JsonArray, String>() {
+                @Override
+                public void onResponse(JsonArray rows) {
+                    boolean reachedMark = false;
+                    int first = overlap(start, rows);
+                    if (first < 0) {
+                        shifted = true;
+                        first = 0;
+                    }
+                    for (int i = first; i < rows.size(); i++) {
+                        JsonObject row = rows.get(i).getAsJsonObject();
+                        if (!row.has(DATE_MOD)) {
+                            // no date_mod on this item type, everything is read and reconciled
+                            reconcile = true;
+                        } else if (isOlderThanMark(row)) {
+                            reachedMark = true;
+                            continue;
+                        }
+                        store.upsert(itemType.name(), row);
+                        result.upserted++;
+                        keepNewest(row);
+                    }
+
+                    if (reachedMark || rows.size() < pageSize) {
+                        trashed(0);
+                    } else {
+                        changed(start + pageSize - 1);
+                    }
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    if (errorMessage != null && errorMessage.contains(RANGE_EXCEEDED)) {
+                        // past the end of a full page: rows were removed since that page
+                        shifted = shifted || start > 0;
+                        trashed(0);
+                    } else {
+                        listener.onFailure(itemType, errorMessage);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Remove the rows sent to the trash since the mark
+         */
+        void trashed(final int start) {
+            if (mark == null) {
+                reconcile(0);
+                return;
+            }
+
+            fetch(start, true, false, new GLPI.ResponseHandle<JsonArray, String>() {
+                @Override
+                public void onResponse(JsonArray rows) {
+                    boolean reachedMark = false;
+                    int first = overlap(start, rows);
+                    if (first < 0) {
+                        shifted = true;
+                        first = 0;
+                    }
+                    for (int i = first; i < rows.size(); i++) {
+                        JsonObject row = rows.get(i).getAsJsonObject();
+                        if (isOlderThanMark(row)) {
+                            reachedMark = true;
+                            continue;
+                        }
+                        store.delete(itemType.name(), row.get("id").getAsString());
+                        result.deleted++;
+                        keepNewest(row);
+                    }
+
+                    if (reachedMark || rows.size() < pageSize) {
+                        reconcile(0);
+                    } else {
+                        trashed(start + pageSize - 1);
+                    }
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    if (errorMessage != null && errorMessage.contains(RANGE_EXCEEDED)) {
+                        // past the end of a full page: rows were removed since that page
+                        shifted = shifted || start > 0;
+                        reconcile(0);
+                    } else {
+                        listener.onFailure(itemType, errorMessage);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Remove the ids of the store unknown by the server
+         */
+        void reconcile(final int start) {
+            if (!reconcile) {
+                complete();
+                return;
+            }
+
+            fetch(start, false, true, new GLPI.ResponseHandle<JsonArray, String>() {
+                @Override
+                public void onResponse(JsonArray rows) {
+                    if (overlap(start, rows) < 0) {
+                        idsShifted = true;
+                    }
+                    for (JsonElement element : rows) {
+                        serverIds.add(element.getAsJsonObject().get("id").getAsString());
+                    }
+                    if (rows.size() < pageSize) {
+                        purge();
+                    } else {
+                        reconcile(start + pageSize - 1);
+                    }
+                }
+
+                @Override
+                public void onFailure(String errorMessage) {
+                    if (errorMessage != null && errorMessage.contains(RANGE_EXCEEDED)) {
+                        // past the end of a full page: rows were removed since that page
+                        idsShifted = idsShifted || start > 0;
+                        purge();
+                    } else {
+                        listener.onFailure(itemType, errorMessage);
+                    }
+                }
+            });
+        }
+
+        private void purge() {
+            if (idsShifted) {
+                // an id may be missing because the rows moved, not because it was purged
+                complete();
+                return;
+            }
+            for (String id : store.ids(itemType.name())) {
+                if (!serverIds.contains(id)) {
+                    store.delete(itemType.name(), id);
+                    result.deleted++;
+                }
+            }
+            result.reconciled = true;
+            complete();
+        }
+
+        private void complete() {
+            if (newest != null && !shifted) {
+                store.setHighWaterMark(itemType.name(), newest);
+            }
+            result.durationMillis = (System.nanoTime() - started) / 1000000;
+            listener.onComplete(itemType, result);
+        }
+
+        private void fetch(int start, boolean deleted, boolean onlyId, GLPI.ResponseHandle<JsonArray, String> callback) {
+            GetAllItemQuery query = new GetAllItemQuery(context);
+            query.setRange(start, start + pageSize - 1);
+            query.setDeleted(deleted);
+            if (onlyId) {
+                query.setOnlyId(true);
+            } else {
+                query.setSort(DATE_MOD);
+                query.setOrder(GetAllItemQuery.Order.DESC);
+            }
+            result.requests++;
+            glpi.getAllItems(itemType, query, callback);
+        }
+
+        /**
+         * Check the row shared with the previous page of the same pass
+         *
+         * @return index of the first new row of the page, -1 if the first row is not the last
+         * row of the previous page: rows moved and one may have been skipped
+         */
+        private int overlap(int start, JsonArray rows) {
+            String previous = start == 0 ? null : lastId;
+            if (rows.size() > 0) {
+                lastId = rows.get(rows.size() - 1).getAsJsonObject().get("id").getAsString();
+            }
+            if (previous == null) {
+                return 0;
+            }
+            if (rows.size() == 0 || !previous.equals(rows.get(0).getAsJsonObject().get("id").getAsString())) {
+                return -1;
+            }
+            return 1;
+        }
+
+        /**
+         * Rows at the mark are applied again, a row changed during the same second as the
+         * mark is never missed
+         */
+        private boolean isOlderThanMark(JsonObject row) {
+            if (mark == null) {
+                return false;
+            }
+            String dateMod = dateMod(row);
+            return dateMod == null || dateMod.compareTo(mark) < 0;
+        }
+
+        private void keepNewest(JsonObject row) {
+            String dateMod = dateMod(row);
+            if (dateMod != null && (newest == null || dateMod.compareTo(newest) > 0)) {
+                newest = dateMod;
+            }
+        }
+    }
+}
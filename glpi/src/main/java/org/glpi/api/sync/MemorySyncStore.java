@@ -0,0 +1,89 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.sync;
+
+import com.google.gson.JsonObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link SyncStore} kept in memory
+ */
+public class MemorySyncStore implements SyncStore {
+
+    private final Map<String, String> highWaterMarks = new HashMap<>();
+    private final Map<String, Map<String, JsonObject>> items = new HashMap<>();
+
+    @Override
+    public synchronized String getHighWaterMark(String itemType) {
+        return highWaterMarks.get(itemType);
+    }
+
+    @Override
+    public synchronized void setHighWaterMark(String itemType, String dateMod) {
+        highWaterMarks.put(itemType, dateMod);
+    }
+
+    @Override
+    public synchronized void upsert(String itemType, JsonObject item) {
+        Map<String, JsonObject> rows = items.get(itemType);
+        if (rows == null) {
+            rows = new LinkedHashMap<>();
+            items.put(itemType, rows);
+        }
+        rows.put(item.get("id").getAsString(), item);
+    }
+
+    @Override
+    public synchronized void delete(String itemType, String id) {
+        Map<String, JsonObject> rows = items.get(itemType);
+        if (rows != null) {
+            rows.remove(id);
+        }
+    }
+
+    @Override
+    public synchronized Set<String> ids(String itemType) {
+        Map<String, JsonObject> rows = items.get(itemType);
+        return rows == null ? new HashSet<String>() : new HashSet<>(rows.keySet());
+    }
+
+    /**
+     * Get an item
+     *
+     * @param itemType name of the item type
+     * @param id       unique identifier of the item
+     * @return the item or null
+     */
+    public synchronized JsonObject get(String itemType, String id) {
+        Map<String, JsonObject> rows = items.get(itemType);
+        return rows == null ? null : rows.get(id);
+    }
+}
@@ -0,0 +1,76 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.sync;
+
+import com.google.gson.JsonObject;
+
+import java.util.Set;
+
+/**
+ * Local copy of the items kept up to date by {@link InventorySync}
+ */
+public interface SyncStore {
+
+    /**
+     * Get the most recent date_mod applied for an item type
+     *
+     * @param itemType name of the item type
+     * @return the date as sent by GLPI ("yyyy-MM-dd HH:mm:ss") or null before the first sync
+     */
+    String getHighWaterMark(String itemType);
+
+    /**
+     * Save the most recent date_mod applied for an item type
+     *
+     * @param itemType name of the item type
+     * @param dateMod  the date as sent by GLPI
+     */
+    void setHighWaterMark(String itemType, String dateMod);
+
+    /**
+     * Add or replace an item
+     *
+     * @param itemType name of the item type
+     * @param item     the fields of the item, with its id
+     */
+    void upsert(String itemType, JsonObject item);
+
+    /**
+     * Remove an item
+     *
+     * @param itemType name of the item type
+     * @param id       unique identifier of the item
+     */
+    void delete(String itemType, String id);
+
+    /**
+     * Get the ids of the items stored
+     *
+     * @param itemType name of the item type
+     * @return the ids
+     */
+    Set<String> ids(String itemType);
+}
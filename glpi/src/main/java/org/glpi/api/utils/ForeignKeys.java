@@ -0,0 +1,92 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import org.glpi.api.itemType;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Find the item type referenced by a foreign key field, following the GLPI naming: the field
+ * is the table name of the item type without the glpi_ prefix, followed by _id and an optional
+ * suffix, for example manufacturers_id, entities_id or users_id_tech.
+ */
+public final class ForeignKeys {
+
+    private static final Map<String, itemType> ITEM_TYPES = new HashMap<>();
+
+    static {
+        for (itemType type : itemType.values()) {
+            ITEM_TYPES.put(type.name().toLowerCase(Locale.ROOT), type);
+        }
+    }
+
+    private ForeignKeys() {
+    }
+
+    /**
+     * Get the item type referenced by a field
+     *
+     * @param field name of the field
+     * @return the item type or null when the field is not a foreign key of a known item type,
+     * items_id is polymorphic and gives null too
+     */
+    public static itemType itemTypeOf(String field) {
+        int index = field.indexOf("_id");
+        if (index <= 0 || (index + 3 < field.length() && field.charAt(index + 3) != '_')) {
+            return null;
+        }
+        String table = field.substring(0, index).toLowerCase(Locale.ROOT);
+        if (table.endsWith("ies")) {
+            itemType type = ITEM_TYPES.get(table.substring(0, table.length() - 3) + "y");
+            if (type != null) {
+                return type;
+            }
+        }
+        if (table.endsWith("es")) {
+            itemType type = ITEM_TYPES.get(table.substring(0, table.length() - 2));
+            if (type != null) {
+                return type;
+            }
+        }
+        if (table.endsWith("s")) {
+            return ITEM_TYPES.get(table.substring(0, table.length() - 1));
+        }
+        return null;
+    }
+
+    /**
+     * Test if a field is a foreign key of a known item type
+     *
+     * @param field name of the field
+     * @return true if {@link #itemTypeOf(String)} gives an item type
+     */
+    public static boolean isForeignKey(String field) {
+        return itemTypeOf(field) != null;
+    }
+}
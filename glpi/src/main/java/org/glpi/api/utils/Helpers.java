@@ -28,12 +28,17 @@ package org.glpi.api.utils;
 
 import android.util.Base64;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Map;
 
 import okhttp3.ResponseBody;
 
@@ -130,4 +135,32 @@ public class Helpers {
             return false;
         }
     }
+
+    /**
+     * Copy a JSON tree so the copy can be modified without touching the original, primitives
+     * and nulls are immutable and shared
+     * @param element the tree to copy
+     * @return the copy
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends JsonElement> T deepCopy(T element) {
+        if (element == null) {
+            return null;
+        }
+        if (element.isJsonObject()) {
+            JsonObject copy = new JsonObject();
+            for (Map.Entry<String, JsonElement> field : element.getAsJsonObject().entrySet()) {
+                copy.add(field.getKey(), deepCopy(field.getValue()));
+            }
+            return (T) copy;
+        }
+        if (element.isJsonArray()) {
+            JsonArray copy = new JsonArray();
+            for (JsonElement value : element.getAsJsonArray()) {
+                copy.add(deepCopy(value));
+            }
+            return (T) copy;
+        }
+        return element;
+    }
 }
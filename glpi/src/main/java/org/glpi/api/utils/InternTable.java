@@ -0,0 +1,150 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded table sharing one String instance per distinct text.
+ *
+ * Only the texts up to maxLength characters are interned, the long texts are rarely repeated.
+ * The keys of the objects are interned at once, see {@link #internKey(String)}. A value is
+ * stored only the second time it is seen, a small bloom filter remembers the values seen once
+ * and is cleared when it gets full: the serials, dates and names that never repeat do not take
+ * the room of the repeated manufacturer, model or state names. Once maxEntries texts are stored the new ones are
+ * returned as they are, so a high cardinality field can not grow the table without limit.
+ */
+public class InternTable {
+
+    private final ConcurrentMap<String, String> texts;
+    private final int maxEntries;
+    private final int maxLength;
+    // bloom filter of the values seen once, a race only delays an admission
+    private final long[] seen;
+    private final int mask;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * Create a table of 50000 texts up to 64 characters
+     */
+    public InternTable() {
+        this(50000, 64);
+    }
+
+    /**
+     * Create a table
+     *
+     * @param maxEntries maximum number of distinct texts kept
+     * @param maxLength  maximum length of a text to intern
+     */
+    public InternTable(int maxEntries, int maxLength) {
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+        this.texts = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+        int bits = 4096;
+        while (bits < 4L * maxEntries && bits < (1 << 22)) {
+            bits <<= 1;
+        }
+        this.seen = new long[bits / 64];
+        this.mask = bits - 1;
+    }
+
+    /**
+     * Get the shared instance of a value, the value is stored the second time it is seen
+     *
+     * @param text the text
+     * @return the shared instance, or the text itself when it is not interned
+     */
+    public String intern(String text) {
+        if (text == null || text.length() > maxLength) {
+            return text;
+        }
+        String shared = texts.get(text);
+        if (shared != null) {
+            return shared;
+        }
+        int hash = text.hashCode() * 0x9e3779b9;
+        int first = (hash ^ (hash >>> 16)) & mask;
+        int second = ((hash >>> 11) ^ (hash * 0x85ebca6b)) & mask;
+        if (isSeen(first) && isSeen(second)) {
+            return store(text);
+        }
+        if (additions.incrementAndGet() > seen.length * 2) {
+            // at most 1 bit of 16 set, clear before the false admissions grow
+            additions.set(0);
+            Arrays.fill(seen, 0);
+        }
+        seen[first >>> 6] |= 1L << first;
+        seen[second >>> 6] |= 1L << second;
+        return text;
+    }
+
+    /**
+     * Get the shared instance of an object key, the keys are few and repeated on every item
+     * so they are stored the first time
+     *
+     * @param text the key
+     * @return the shared instance, or the text itself when it is not interned
+     */
+    public String internKey(String text) {
+        if (text == null || text.length() > maxLength) {
+            return text;
+        }
+        String shared = texts.get(text);
+        return shared != null ? shared : store(text);
+    }
+
+    private boolean isSeen(int bit) {
+        return (seen[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private String store(String text) {
+        if (texts.size() >= maxEntries) {
+            return text;
+        }
+        String shared = texts.putIfAbsent(text, text);
+        return shared != null ? shared : text;
+    }
+
+    /**
+     * @return number of distinct texts stored
+     */
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * Remove all the texts
+     */
+    public void clear() {
+        texts.clear();
+        Arrays.fill(seen, 0);
+        additions.set(0);
+    }
+}
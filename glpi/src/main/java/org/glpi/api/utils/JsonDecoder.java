@@ -0,0 +1,197 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Set;
+
+/**
+ * Decode JSON into a JsonElement tree, the keys and the short repeated strings can be shared
+ * through an {@link InternTable} so the same manufacturer, model or state name is kept once in
+ * memory. The numbers are not interned, ids and counters rarely repeat.
+ */
+public class JsonDecoder {
+
+    private volatile InternTable internTable;
+
+    /**
+     * Create a decoder without interning
+     */
+    public JsonDecoder() {
+        this(null);
+    }
+
+    /**
+     * Create a decoder
+     *
+     * @param internTable table of the shared texts, null to disable the interning
+     */
+    public JsonDecoder(InternTable internTable) {
+        this.internTable = internTable;
+    }
+
+    /**
+     * Change the table of the shared texts
+     *
+     * @param internTable the table, null to disable the interning
+     */
+    public void setInternTable(InternTable internTable) {
+        this.internTable = internTable;
+    }
+
+    /**
+     * @return the table of the shared texts or null
+     */
+    public InternTable getInternTable() {
+        return internTable;
+    }
+
+    /**
+     * Decode a document
+     *
+     * @param reader the JSON text
+     * @return the tree
+     * @throws IOException if the text can not be read or is not valid JSON
+     */
+    public JsonElement decode(Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            return read(json, internTable);
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Decode a document keeping only some fields of the items, the other fields are skipped
+     * while reading and never built. The items are the document when it is an object, or the
+     * objects of the document when it is an array.
+     *
+     * @param reader the JSON text
+     * @param fields the names of the fields to keep
+     * @return the tree
+     * @throws IOException if the text can not be read or is not valid JSON
+     */
+    public JsonElement decode(Reader reader, Set<String> fields) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            InternTable table = internTable;
+            switch (json.peek()) {
+                case BEGIN_OBJECT:
+                    return readItem(json, table, fields);
+                case BEGIN_ARRAY:
+                    JsonArray array = new JsonArray();
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        array.add(json.peek() == JsonToken.BEGIN_OBJECT
+                                ? readItem(json, table, fields) : read(json, table));
+                    }
+                    json.endArray();
+                    return array;
+                default:
+                    return read(json, table);
+            }
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Decode the next value of a reader
+     *
+     * @param reader the JSON reader
+     * @return the tree
+     * @throws IOException if the text can not be read or is not valid JSON
+     */
+    public JsonElement read(JsonReader reader) throws IOException {
+        return read(reader, internTable);
+    }
+
+    private static JsonElement read(JsonReader reader, InternTable table) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                JsonObject object = new JsonObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    object.add(internKey(table, reader.nextName()), read(reader, table));
+                }
+                reader.endObject();
+                return object;
+            case BEGIN_ARRAY:
+                JsonArray array = new JsonArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.add(read(reader, table));
+                }
+                reader.endArray();
+                return array;
+            case STRING:
+                return new JsonPrimitive(intern(table, reader.nextString()));
+            case NUMBER:
+                return new JsonPrimitive(new LazilyParsedNumber(reader.nextString()));
+            case BOOLEAN:
+                return new JsonPrimitive(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return JsonNull.INSTANCE;
+            default:
+                throw new IOException("Unexpected " + reader.peek() + " at " + reader.getPath());
+        }
+    }
+
+    private static JsonObject readItem(JsonReader reader, InternTable table, Set<String> fields) throws IOException {
+        JsonObject item = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (fields.contains(name)) {
+                item.add(internKey(table, name), read(reader, table));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return item;
+    }
+
+    private static String intern(InternTable table, String text) {
+        return table == null ? text : table.intern(text);
+    }
+
+    private static String internKey(InternTable table, String text) {
+        return table == null ? text : table.internKey(text);
+    }
+}
@@ -0,0 +1,77 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Converter decoding the JsonElement, JsonObject and JsonArray responses with a
+ * {@link JsonDecoder}, the other types are left to the Gson converter.
+ */
+public class JsonDecoderConverterFactory extends Converter.Factory {
+
+    private final JsonDecoder decoder;
+
+    /**
+     * Create the factory
+     *
+     * @param decoder the decoder of the responses
+     */
+    public JsonDecoderConverterFactory(JsonDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(final Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (!(type instanceof Class) || !JsonElement.class.isAssignableFrom((Class<?>) type)) {
+            return null;
+        }
+
+        final Class<?> target = (Class<?>) type;
+        return new Converter<ResponseBody, Object>() {
+            @Override
+            public Object convert(ResponseBody body) throws IOException {
+                try {
+                    JsonElement element = decoder.decode(body.charStream());
+                    if (!target.isInstance(element)) {
+                        throw new IOException("Expected " + target.getSimpleName() + " but was " + element);
+                    }
+                    return element;
+                } finally {
+                    body.close();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import android.util.Log;
+
+import com.google.gson.JsonElement;
+
+import org.glpi.api.GLPI;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Request;
+
+/**
+ * Keep track of the requests in flight so identical calls share one network round trip.
+ * Each caller gets its own copy of a JSON response, and a callback that throws does not
+ * prevent the other callers from being called.
+ *
+ * @param <T> type of the response shared between the callers
+ */
+public class RequestCoalescer<T> {
+
+    private final Map<String, List<GLPI.ResponseHandle<T, String>>> inFlight = new HashMap<>();
+
+    /**
+     * Build the key of a request: method, path with query and the session identity
+     *
+     * @param request the http request
+     * @return the key used to find identical requests
+     */
+    public static String key(Request request) {
+        return request.method()
+                + " " + request.url().toString()
+                + " " + request.header("Session-Token")
+                + " " + request.header("App-Token");
+    }
+
+    /**
+     * Attach a callback to the request identified by key
+     *
+     * @param key      the key of the request, see {@link #key(Request)}
+     * @param callback the callback of the caller
+     * @return the callback to give to the network call, or null when an identical call is
+     * already in flight and the caller was attached to it
+     */
+    public GLPI.ResponseHandle<T, String> join(final String key, GLPI.ResponseHandle<T, String> callback) {
+        synchronized (inFlight) {
+            List<GLPI.ResponseHandle<T, String>> waiters = inFlight.get(key);
+            if (waiters != null) {
+                waiters.add(callback);
+                return null;
+            }
+            waiters = new ArrayList<>();
+            waiters.add(callback);
+            inFlight.put(key, waiters);
+        }
+
+        return new GLPI.ResponseHandle<T, String>() {
+            @Override
+            public void onResponse(T response) {
+                List<GLPI.ResponseHandle<T, String>> waiters = release(key);
+                for (int i = 0; i < waiters.size(); i++) {
+                    // every waiter but the last one gets its own copy, a caller can modify its
+                    // response without changing the one of the others
+                    T own = i == waiters.size() - 1 ? response : copy(response);
+                    try {
+                        waiters.get(i).onResponse(own);
+                    } catch (RuntimeException ex) {
+                        Log.e("RequestCoalescer", "callback failed", ex);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                for (GLPI.ResponseHandle<T, String> waiter : release(key)) {
+                    try {
+                        waiter.onFailure(errorMessage);
+                    } catch (RuntimeException ex) {
+                        Log.e("RequestCoalescer", "callback failed", ex);
+                    }
+                }
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private T copy(T response) {
+        return response instanceof JsonElement ? (T) Helpers.deepCopy((JsonElement) response) : response;
+    }
+
+    /**
+     * Number of distinct requests waiting for a response
+     *
+     * @return the number of requests in flight
+     */
+    public int size() {
+        synchronized (inFlight) {
+            return inFlight.size();
+        }
+    }
+
+    private List<GLPI.ResponseHandle<T, String>> release(String key) {
+        synchronized (inFlight) {
+            List<GLPI.ResponseHandle<T, String>> waiters = inFlight.remove(key);
+            return waiters != null ? waiters : new ArrayList<GLPI.ResponseHandle<T, String>>();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.bulk;
+
+import android.content.Context;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BulkExecutorTest {
+
+    private static List<JsonObject> computers(int count) {
+        List<JsonObject> items = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            JsonObject item = new JsonObject();
+            item.addProperty("id", i);
+            item.addProperty("name", "computer " + i);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static JsonArray execute(FakeServer server, BulkExecutor.Operation operation, int count) {
+        BulkExecutor executor = new BulkExecutor(server);
+        executor.setItemsPerBatch(count, count);
+        executor.setMaxConcurrentBatches(1);
+        Listener listener = new Listener();
+        executor.execute(itemType.Computer, operation, computers(count), listener);
+        assertNull(listener.error);
+        assertNotNull(listener.response);
+        return listener.response;
+    }
+
+    @Test
+    public void execute_reportsARejectedBatchOnce() {
+        FakeServer server = new FakeServer(WriteFailure.REJECTED, 0);
+        JsonArray results = execute(server, BulkExecutor.Operation.UPDATE, 8);
+
+        assertEquals(1, server.sent.size());
+        assertEquals(8, results.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals("ERROR_GLPI_UPDATE", results.get(i).getAsJsonObject().get("message").getAsString());
+        }
+    }
+
+    @Test
+    public void execute_splitsABatchTooLarge() {
+        // the server accepts up to 2 items per request
+        FakeServer server = new FakeServer(WriteFailure.TOO_LARGE, 2);
+        JsonArray results = execute(server, BulkExecutor.Operation.ADD, 8);
+
+        // 8 refused, 4 + 4 refused, then 4 batches of 2
+        assertEquals(7, server.sent.size());
+        assertEquals(8, results.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i + 1, results.get(i).getAsJsonObject().get("id").getAsInt());
+        }
+    }
+
+    @Test
+    public void execute_splitsATimedOutUpdate() {
+        FakeServer server = new FakeServer(WriteFailure.TIMEOUT, 4);
+        JsonArray results = execute(server, BulkExecutor.Operation.UPDATE, 8);
+
+        assertEquals(3, server.sent.size());
+        assertEquals(8, results.size());
+        assertEquals(8, results.get(7).getAsJsonObject().get("id").getAsInt());
+    }
+
+    @Test
+    public void execute_doesNotSendATimedOutAddAgain() {
+        FakeServer server = new FakeServer(WriteFailure.TIMEOUT, 4);
+        JsonArray results = execute(server, BulkExecutor.Operation.ADD, 8);
+
+        assertEquals(1, server.sent.size());
+        assertFalse(results.get(0).getAsJsonObject().get("id").getAsBoolean());
+    }
+
+    @Test
+    public void execute_doesNotSplitAServerError() {
+        FakeServer server = new FakeServer(WriteFailure.UNKNOWN, 1);
+        execute(server, BulkExecutor.Operation.DELETE, 8);
+
+        assertEquals(1, server.sent.size());
+    }
+
+    /**
+     * Server answering synchronously, the batches larger than the limit fail with the given
+     * kind, the others succeed with the id of each item
+     */
+    private static class FakeServer extends GLPI {
+        final List<Integer> sent = new ArrayList<>();
+        private final WriteFailure failure;
+        private final int limit;
+
+        FakeServer(WriteFailure failure, int limit) {
+            super((Context) null, "http://localhost/apirest.php/");
+            this.failure = failure;
+            this.limit = limit;
+        }
+
+        private void answer(Object payload, ResponseHandle<JsonArray, String> callback) {
+            JsonArray input = ((JsonObject) payload).getAsJsonArray("input");
+            sent.add(input.size());
+            if (input.size() > limit) {
+                ((WriteHandle) callback).onFailure(failure, "ERROR_GLPI_UPDATE");
+                return;
+            }
+            JsonArray response = new JsonArray();
+            for (int i = 0; i < input.size(); i++) {
+                JsonObject result = new JsonObject();
+                result.add("id", input.get(i).getAsJsonObject().get("id"));
+                result.addProperty("message", "");
+                response.add(result);
+            }
+            callback.onResponse(response);
+        }
+
+        @Override
+        public void addItems(itemType itemType, Object payload, ResponseHandle<JsonArray, String> callback) {
+            answer(payload, callback);
+        }
+
+        @Override
+        public void updateItems(itemType itemType, Object payload, ResponseHandle<JsonArray, String> callback) {
+            answer(payload, callback);
+        }
+
+        @Override
+        public void deleteItems(itemType itemType, Object payload, ResponseHandle<JsonArray, String> callback) {
+            answer(payload, callback);
+        }
+    }
+
+    private static class Listener implements GLPI.ResponseHandle<JsonArray, String> {
+        JsonArray response;
+        String error;
+
+        @Override
+        public void onResponse(JsonArray response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onFailure(String errorMessage) {
+            error = errorMessage;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.bulk;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UpdateBufferTest {
+
+    @Test
+    public void update_mergesTheFieldsOfAnItem() {
+        RecordingExecutor executor = new RecordingExecutor();
+        UpdateBuffer buffer = new UpdateBuffer(executor, 1, TimeUnit.HOURS);
+
+        buffer.update(itemType.Computer, "1", fields("name", "a"));
+        buffer.update(itemType.Computer, "1", fields("serial", "s"));
+        buffer.update(itemType.Computer, "1", fields("name", "b"));
+        buffer.flush();
+
+        assertEquals(1, executor.batches.size());
+        JsonObject item = executor.batches.get(0).get(0);
+        assertEquals("b", item.get("name").getAsString());
+        assertEquals("s", item.get("serial").getAsString());
+        assertEquals(2, buffer.getMergedUpdates());
+    }
+
+    @Test
+    public void flush_holdsAnItemBackWhileItsUpdateIsInFlight() {
+        RecordingExecutor executor = new RecordingExecutor();
+        UpdateBuffer buffer = new UpdateBuffer(executor, 1, TimeUnit.HOURS);
+
+        buffer.update(itemType.Computer, "1", fields("name", "old"));
+        buffer.flush();
+        buffer.update(itemType.Computer, "1", fields("name", "new"));
+        buffer.update(itemType.Computer, "2", fields("name", "other"));
+        buffer.flush();
+
+        assertEquals(2, executor.batches.size());
+        assertEquals("2", executor.batches.get(1).get(0).get("id").getAsString());
+        assertEquals(1, executor.batches.get(1).size());
+        assertEquals(1, buffer.getPendingItems());
+
+        // the first update is answered, the held back value is sent after it
+        executor.callbacks.get(0).onResponse(new JsonArray());
+        assertEquals(3, executor.batches.size());
+        assertEquals("new", executor.batches.get(2).get(0).get("name").getAsString());
+        assertEquals(0, buffer.getPendingItems());
+    }
+
+    private static JsonObject fields(String name, String value) {
+        JsonObject fields = new JsonObject();
+        fields.addProperty(name, value);
+        return fields;
+    }
+
+    /**
+     * Executor keeping the batches without sending them
+     */
+    private static class RecordingExecutor extends BulkExecutor {
+        final List<List<JsonObject>> batches = new ArrayList<>();
+        final List<GLPI.ResponseHandle<JsonArray, String>> callbacks = new ArrayList<>();
+
+        RecordingExecutor() {
+            super(null);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void execute(itemType itemType, Operation operation, List<?> items, GLPI.ResponseHandle<JsonArray, String> callback) {
+            batches.add((List<JsonObject>) items);
+            callbacks.add(callback);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.bulk;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WriteJournalTest {
+
+    private File file;
+    private WriteJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("journal", ".bin");
+        file.delete();
+        journal = new WriteJournal(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        file.delete();
+    }
+
+    @Test
+    public void replay_sendsTheRecordsInOrderAndMergesTheUpdates() throws IOException {
+        journal.append(BulkExecutor.Operation.ADD, itemType.Computer, null, input(item(null, "name", "new-pc")));
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "1", input(item(null, "name", "a")));
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "1", input(item(null, "serial", "s")));
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "1", input(item(null, "name", "b")));
+        journal.append(BulkExecutor.Operation.DELETE, itemType.Computer, "2", null);
+        assertFalse(journal.isEmpty());
+
+        FakeServer server = new FakeServer(null);
+        Listener listener = new Listener();
+        journal.replay(server, listener);
+
+        assertEquals(3, server.sent.size());
+        assertEquals("ADD Computer", server.sent.get(0)[0]);
+        assertEquals("UPDATE Computer", server.sent.get(1)[0]);
+        assertEquals("DELETE Computer", server.sent.get(2)[0]);
+
+        JsonArray updates = ((JsonObject) server.sent.get(1)[1]).getAsJsonArray("input");
+        assertEquals(1, updates.size());
+        JsonObject update = updates.get(0).getAsJsonObject();
+        assertEquals("1", update.get("id").getAsString());
+        assertEquals("b", update.get("name").getAsString());
+        assertEquals("s", update.get("serial").getAsString());
+
+        assertEquals(5, listener.completed);
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    public void replay_keepsTheFailedRecords() throws IOException {
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "1", input(item(null, "name", "a")));
+        long pending = journal.getPendingBytes();
+
+        Listener listener = new Listener();
+        journal.replay(new FakeServer(WriteFailure.NOT_SENT), listener);
+
+        assertEquals(WriteFailure.NOT_SENT, listener.failure);
+        assertEquals("ERROR", listener.error);
+        assertEquals(pending, journal.getPendingBytes());
+        assertTrue(listener.rejected.isEmpty());
+    }
+
+    @Test
+    public void replay_removesTheRejectedRecordAndGoesOn() throws IOException {
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "1", input(item(null, "name", "a")));
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "2", input(item(null, "name", "poison")));
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "3", input(item(null, "name", "c")));
+        journal.append(BulkExecutor.Operation.DELETE, itemType.Computer, "4", null);
+
+        FakeServer server = new FakeServer(WriteFailure.REJECTED);
+        Listener listener = new Listener();
+        journal.replay(server, listener);
+
+        // the batch of 3 updates is rejected, then sent again one by one
+        assertEquals(1, listener.rejected.size());
+        JsonObject rejected = listener.rejected.get(0).getAsJsonArray("input").get(0).getAsJsonObject();
+        assertEquals("2", rejected.get("id").getAsString());
+        assertEquals("ERROR", listener.error);
+        assertNull(listener.failure);
+        assertEquals(3, server.sent.size());
+        assertEquals("DELETE Computer", server.sent.get(2)[0]);
+        assertEquals(3, listener.completed);
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    public void replay_stopsOnAFailureThatMayHaveBeenApplied() throws IOException {
+        journal.append(BulkExecutor.Operation.UPDATE, itemType.Computer, "1", input(item(null, "name", "poison")));
+        journal.append(BulkExecutor.Operation.DELETE, itemType.Computer, "4", null);
+        long pending = journal.getPendingBytes();
+
+        Listener listener = new Listener();
+        journal.replay(new FakeServer(WriteFailure.TIMEOUT), listener);
+
+        assertEquals(WriteFailure.TIMEOUT, listener.failure);
+        assertEquals(-1, listener.completed);
+        assertEquals(pending, journal.getPendingBytes());
+    }
+
+    @Test
+    public void records_surviveReopening() throws IOException {
+        journal.append(BulkExecutor.Operation.DELETE, itemType.Ticket, "7", null);
+        journal.close();
+        journal = new WriteJournal(file);
+
+        FakeServer server = new FakeServer(null);
+        journal.replay(server, new Listener());
+        assertEquals(1, server.sent.size());
+        assertEquals("DELETE Ticket", server.sent.get(0)[0]);
+    }
+
+    private static JsonObject item(String id, String field, String value) {
+        JsonObject item = new JsonObject();
+        if (id != null) {
+            item.addProperty("id", id);
+        }
+        item.addProperty(field, value);
+        return item;
+    }
+
+    private static JsonObject input(JsonObject item) {
+        JsonObject payload = new JsonObject();
+        payload.add("input", item);
+        return payload;
+    }
+
+    /**
+     * GLPI answering the writes without network, with the failure: every batch fails with
+     * NOT_SENT or TIMEOUT, only the batches with a "poison" item fail with REJECTED
+     */
+    private static class FakeServer extends GLPI {
+        final List<Object[]> sent = new ArrayList<>();
+        private final WriteFailure failure;
+
+        FakeServer(WriteFailure failure) {
+            super(null, "http://localhost/apirest.php/");
+            this.failure = failure;
+        }
+
+        @Override
+        public void addItems(itemType itemType, Object payload, ResponseHandle<JsonArray, String> callback) {
+            answer("ADD", itemType, payload, callback);
+        }
+
+        @Override
+        public void updateItems(itemType itemType, Object payload, ResponseHandle<JsonArray, String> callback) {
+            answer("UPDATE", itemType, payload, callback);
+        }
+
+        @Override
+        public void deleteItems(itemType itemType, Object payload, ResponseHandle<JsonArray, String> callback) {
+            answer("DELETE", itemType, payload, callback);
+        }
+
+        private void answer(String operation, itemType itemType, Object payload, ResponseHandle<JsonArray, String> callback) {
+            if (failure != null && (failure != WriteFailure.REJECTED || payload.toString().contains("poison"))) {
+                ((WriteHandle) callback).onFailure(failure, "ERROR");
+                return;
+            }
+            sent.add(new Object[]{operation + " " + itemType.name(), payload});
+            JsonArray response = new JsonArray();
+            for (JsonElement ignored : ((JsonObject) payload).getAsJsonArray("input")) {
+                response.add(new JsonObject());
+            }
+            callback.onResponse(response);
+        }
+    }
+
+    private static class Listener implements WriteJournal.ReplayListener {
+        final List<JsonObject> rejected = new ArrayList<>();
+        long completed = -1;
+        WriteFailure failure;
+        String error;
+
+        @Override
+        public void onBatch(itemType itemType, BulkExecutor.Operation operation, int records, JsonArray response) {
+        }
+
+        @Override
+        public void onRejected(itemType itemType, BulkExecutor.Operation operation, JsonObject payload, String errorMessage) {
+            rejected.add(payload);
+            error = errorMessage;
+        }
+
+        @Override
+        public void onFailure(WriteFailure failure, String errorMessage) {
+            this.failure = failure;
+            error = errorMessage;
+        }
+
+        @Override
+        public void onComplete(long records, long elapsedMillis) {
+            completed = records;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetAllItemQuery;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DropdownResolverTest {
+
+    private static JsonObject row() {
+        return new JsonParser().parse("{\"id\":7,\"name\":\"pc\",\"manufacturers_id\":2,"
+                + "\"users_id_tech\":\"5\",\"states_id\":3,\"locations_id\":9}").getAsJsonObject();
+    }
+
+    @Test
+    public void resolve_addsTheNamesNextToTheIds() {
+        DropdownResolver resolver = new DropdownResolver(null, null);
+        resolver.put(itemType.Manufacturer, "2", "Dell");
+        resolver.put(itemType.User, "5", "Doe John");
+        resolver.put(itemType.State, "4", "In stock");
+
+        JsonObject row = resolver.resolve(row());
+
+        assertEquals(2, row.get("manufacturers_id").getAsInt());
+        assertEquals("Dell", row.get("_manufacturers_id_name").getAsString());
+        assertEquals("5", row.get("users_id_tech").getAsString());
+        assertEquals("Doe John", row.get(DropdownResolver.nameField("users_id_tech")).getAsString());
+        // state 3 is not loaded, locations are not loaded at all
+        assertFalse(row.has("_states_id_name"));
+        assertFalse(row.has("_locations_id_name"));
+        assertEquals(2, resolver.getResolvedCount());
+        assertEquals(1, resolver.getMissCount());
+    }
+
+    @Test
+    public void resolve_twiceGivesTheSameRow() {
+        DropdownResolver resolver = new DropdownResolver(null, null);
+        resolver.put(itemType.Manufacturer, "2", "Dell");
+
+        JsonObject once = resolver.resolve(row());
+        JsonObject twice = resolver.resolve(resolver.resolve(row()));
+        assertEquals(once, twice);
+    }
+
+    @Test
+    public void load_readsAllThePages() {
+        final JsonArray manufacturers = new JsonArray();
+        for (int i = 1; i <= 5; i++) {
+            JsonObject item = new JsonObject();
+            item.addProperty("id", i);
+            item.addProperty("name", "manufacturer " + i);
+            manufacturers.add(item);
+        }
+        GLPI server = new GLPI(null, "http://localhost/apirest.php/") {
+            @Override
+            public void getAllItems(itemType itemType, GetAllItemQuery options, ResponseHandle<JsonArray, String> callback) {
+                String[] range = options.getQuery().get("range").split("-");
+                JsonArray page = new JsonArray();
+                for (int i = Integer.parseInt(range[0]); i <= Integer.parseInt(range[1]) && i < manufacturers.size(); i++) {
+                    page.add(manufacturers.get(i));
+                }
+                callback.onResponse(page);
+            }
+        };
+        DropdownResolver resolver = new DropdownResolver(server, null);
+        resolver.setPageSize(2);
+        final int[] loaded = {-1};
+        resolver.load(Arrays.asList(itemType.Manufacturer), new GLPI.ResponseHandle<Integer, String>() {
+            @Override
+            public void onResponse(Integer response) {
+                loaded[0] = response;
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                fail(errorMessage);
+            }
+        });
+
+        assertEquals(5, loaded[0]);
+        assertEquals("manufacturer 5", resolver.getName(itemType.Manufacturer, "5"));
+    }
+}
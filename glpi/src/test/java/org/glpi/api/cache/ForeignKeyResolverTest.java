@@ -0,0 +1,140 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.query.GetMultipleItemsQuery;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ForeignKeyResolverTest {
+
+    private static JsonArray rows() {
+        return new JsonParser().parse("["
+                + "{\"id\":1,\"users_id\":5,\"users_id_tech\":6,\"locations_id\":0},"
+                + "{\"id\":2,\"users_id\":5,\"users_id_tech\":\"Doe\"}]").getAsJsonArray();
+    }
+
+    private static JsonArray resolve(ForeignKeyResolver resolver, JsonArray rows) {
+        final JsonArray[] resolved = new JsonArray[1];
+        resolver.resolve(rows, new GLPI.ResponseHandle<JsonArray, String>() {
+            @Override
+            public void onResponse(JsonArray response) {
+                resolved[0] = response;
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                fail(errorMessage);
+            }
+        });
+        assertNotNull(resolved[0]);
+        return resolved[0];
+    }
+
+    @Test
+    public void resolve_attachesTheItemsToNewRows() {
+        FakeServer server = new FakeServer();
+        ForeignKeyResolver resolver = new ForeignKeyResolver(server, new LruItemCache(100));
+        JsonArray rows = rows();
+
+        JsonArray resolved = resolve(resolver, rows);
+
+        assertEquals(rows(), rows);
+        assertEquals(2, resolved.size());
+        JsonObject first = resolved.get(0).getAsJsonObject();
+        assertEquals(5, first.get("users_id").getAsInt());
+        assertEquals(5, first.getAsJsonObject("_users_id").get("id").getAsInt());
+        assertEquals(6, first.getAsJsonObject("_users_id_tech").get("id").getAsInt());
+        assertFalse(first.has("_locations_id"));
+        assertFalse(resolved.get(1).getAsJsonObject().has("_users_id_tech"));
+        // users 5 and 6 in one request
+        assertEquals(1, server.requests);
+        assertEquals(2, resolver.getFetchedCount());
+    }
+
+    @Test
+    public void resolve_givesEveryRowItsOwnCopy() {
+        LruItemCache cache = new LruItemCache(100);
+        ForeignKeyResolver resolver = new ForeignKeyResolver(new FakeServer(), cache);
+
+        JsonArray resolved = resolve(resolver, rows());
+        JsonObject user = resolved.get(0).getAsJsonObject().getAsJsonObject("_users_id");
+        user.addProperty("name", "changed");
+
+        assertEquals("user 5", resolved.get(1).getAsJsonObject().getAsJsonObject("_users_id").get("name").getAsString());
+        assertEquals("user 5", cache.get("User", "5").get("name").getAsString());
+        JsonArray again = resolve(resolver, rows());
+        assertEquals("user 5", again.get(0).getAsJsonObject().getAsJsonObject("_users_id").get("name").getAsString());
+        assertEquals(2, resolver.getHitCount());
+    }
+
+    @Test
+    public void resolve_onlyTheSelectedFields() {
+        ForeignKeyResolver resolver = new ForeignKeyResolver(new FakeServer(), new LruItemCache(100));
+        resolver.setFields(Arrays.asList("users_id_tech"));
+
+        JsonObject first = resolve(resolver, rows()).get(0).getAsJsonObject();
+        assertFalse(first.has("_users_id"));
+        assertTrue(first.has("_users_id_tech"));
+    }
+
+    /**
+     * Answers getMultipleItems with users named after their id
+     */
+    private static class FakeServer extends GLPI {
+        private int requests = 0;
+
+        FakeServer() {
+            super(null, "http://localhost/apirest.php/");
+        }
+
+        @Override
+        public void getMultipleItems(GetMultipleItemsQuery query, ResponseHandle<JsonArray, String> callback) {
+            requests++;
+            // the items go to the cache of getItem, they must have the same shape
+            assertFalse(query.getQuery().containsKey("get_hateoas"));
+            JsonArray items = new JsonArray();
+            for (Map.Entry<String, String> parameter : query.getQuery().entrySet()) {
+                if (parameter.getKey().endsWith("[items_id]")) {
+                    JsonObject item = new JsonObject();
+                    item.addProperty("id", Integer.parseInt(parameter.getValue()));
+                    item.addProperty("name", "user " + parameter.getValue());
+                    items.add(item);
+                }
+            }
+            callback.onResponse(items);
+        }
+    }
+}
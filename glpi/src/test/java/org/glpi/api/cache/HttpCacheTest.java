@@ -0,0 +1,213 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class HttpCacheTest {
+
+    private MockWebServer server;
+    private File directory;
+    private HttpCache cache;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        directory = File.createTempFile("http", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        cache = new HttpCache(directory);
+        client = cache.install(new OkHttpClient.Builder()).build();
+        cache.setClient(client);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        delete(directory);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private Response get(String path, String sessionToken) throws IOException {
+        Request request = new Request.Builder()
+                .url(server.url(path))
+                .header(HttpCache.CACHEABLE, "true")
+                .header("Session-Token", sessionToken)
+                .build();
+        return client.newCall(request).execute();
+    }
+
+    private String body(String path, String sessionToken) throws IOException {
+        Response response = get(path, sessionToken);
+        try {
+            return response.body().string();
+        } finally {
+            response.close();
+        }
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    @Test
+    public void get_servesTheSecondReadFromTheCache() throws Exception {
+        server.enqueue(json("{\"id\":1}"));
+
+        assertEquals("{\"id\":1}", body("/Computer/1", "session"));
+        assertEquals("{\"id\":1}", body("/Computer/1", "session"));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.getHitCount());
+        RecordedRequest recorded = server.takeRequest();
+        assertNull(recorded.getHeader(HttpCache.CACHEABLE));
+    }
+
+    @Test
+    public void get_goesToTheNetworkOnceTheTimeToLiveExpired() throws Exception {
+        cache.setTimeToLive(0);
+        server.enqueue(json("{\"id\":1}"));
+        server.enqueue(json("{\"id\":1,\"name\":\"renamed\"}"));
+
+        assertEquals("{\"id\":1}", body("/Computer/1", "session"));
+        assertEquals("{\"id\":1,\"name\":\"renamed\"}", body("/Computer/1", "session"));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void get_doesNotCacheTheRoutesWithoutTheMarker() throws Exception {
+        server.enqueue(json("{\"id\":1}"));
+        server.enqueue(json("{\"id\":1}"));
+
+        for (int i = 0; i < 2; i++) {
+            Request request = new Request.Builder().url(server.url("/Computer/1")).build();
+            client.newCall(request).execute().close();
+        }
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void get_keepsTheBodyOfEachSession() throws Exception {
+        server.enqueue(json("{\"entity\":\"A\"}"));
+        server.enqueue(json("{\"entity\":\"B\"}"));
+
+        assertEquals("{\"entity\":\"A\"}", body("/Computer", "session-a"));
+        assertEquals("{\"entity\":\"B\"}", body("/Computer", "session-b"));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void get_givesBackThePartialContentCode() throws Exception {
+        server.enqueue(json("[{\"id\":1}]")
+                .setResponseCode(206)
+                .setHeader("Content-Range", "0-0/10"));
+
+        for (int i = 0; i < 2; i++) {
+            Response response = get("/Computer?range=0-0", "session");
+            assertEquals(206, response.code());
+            assertEquals("0-0/10", response.header("Content-Range"));
+            assertEquals("[{\"id\":1}]", response.body().string());
+            response.close();
+        }
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void invalidate_removesTheResponsesOfTheItemType() throws Exception {
+        server.enqueue(json("{\"id\":1}"));
+        server.enqueue(json("{\"id\":2}"));
+        server.enqueue(json("{\"id\":1,\"name\":\"renamed\"}"));
+
+        body("/Computer/1", "session");
+        body("/Monitor/2", "session");
+        // after a write on the Computer item type
+        cache.invalidate("Computer");
+
+        assertEquals("{\"id\":1,\"name\":\"renamed\"}", body("/Computer/1", "session"));
+        assertEquals("{\"id\":2}", body("/Monitor/2", "session"));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void invalidate_matchesTheWholeSegment() throws Exception {
+        server.enqueue(json("{\"id\":1}"));
+
+        body("/ComputerModel/1", "session");
+        cache.invalidate("Computer");
+        body("/ComputerModel/1", "session");
+
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void get_servesTheStaleResponseAndRefreshesIt() throws Exception {
+        cache.setTimeToLive(0);
+        cache.setStaleWhileRevalidate(60);
+        server.enqueue(json("{\"id\":1}"));
+        server.enqueue(json("{\"id\":1,\"name\":\"renamed\"}"));
+
+        assertEquals("{\"id\":1}", body("/Computer/1", "session"));
+        assertEquals("{\"id\":1}", body("/Computer/1", "session"));
+
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        assertEquals(1, cache.getStaleCount());
+        assertEquals(1, cache.getRevalidateCount());
+    }
+}
@@ -0,0 +1,279 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import android.content.Context;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.query.SearchItemQuery;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ItemCounterTest {
+
+    private FakeServer server;
+    private ItemCounter counter;
+
+    @Before
+    public void setUp() {
+        server = new FakeServer();
+        counter = new ItemCounter(server);
+    }
+
+    private static SearchItemQuery open(int min, int max) {
+        SearchItemQuery criteria = new SearchItemQuery((Context) null);
+        criteria.addCriteria(null, 12, "equals", "1");
+        criteria.setRange(min, max);
+        return criteria;
+    }
+
+    @Test
+    public void count_reusesTheCountWithinTheTimeToLive() {
+        Result first = new Result();
+        counter.count("Computer", null, first);
+        server.answer(0, 5);
+
+        Result second = new Result();
+        counter.count("Computer", null, second);
+
+        assertEquals(Integer.valueOf(5), first.count);
+        assertEquals(Integer.valueOf(5), second.count);
+        assertEquals(1, server.calls.size());
+        assertEquals(2, counter.getRequestCount());
+        assertEquals(1, counter.getHitCount());
+    }
+
+    @Test
+    public void count_asksAgainAfterTheTimeToLive() {
+        counter.setTimeToLive(0, TimeUnit.SECONDS);
+        counter.count("Computer", null, new Result());
+        server.answer(0, 5);
+
+        Result second = new Result();
+        counter.count("Computer", null, second);
+        assertNull(second.count);
+        server.answer(1, 6);
+
+        assertEquals(Integer.valueOf(6), second.count);
+        assertEquals(2, server.calls.size());
+        assertEquals(0, counter.getHitCount());
+    }
+
+    @Test
+    public void count_sharesTheCountsInFlight() {
+        Result first = new Result();
+        Result second = new Result();
+        counter.count("Ticket", open(0, 10), first);
+        counter.count("Ticket", open(20, 30), second);
+        assertEquals(1, server.calls.size());
+
+        server.answer(0, 42);
+
+        assertEquals(Integer.valueOf(42), first.count);
+        assertEquals(Integer.valueOf(42), second.count);
+    }
+
+    @Test
+    public void count_keepsTheCriteriaApart() {
+        counter.count("Ticket", null, new Result());
+        counter.count("Ticket", open(0, 10), new Result());
+        counter.count("Computer", null, new Result());
+
+        assertEquals(3, server.calls.size());
+    }
+
+    @Test
+    public void count_doesNotKeepTheFailures() {
+        Result first = new Result();
+        counter.count("Computer", null, first);
+        server.fail(0, "timeout");
+        assertEquals("timeout", first.error);
+
+        counter.count("Computer", null, new Result());
+        assertEquals(2, server.calls.size());
+    }
+
+    @Test
+    public void count_answersAHitOutsideTheLock() throws InterruptedException {
+        counter.count("Computer", null, new Result());
+        server.answer(0, 5);
+
+        final Thread[] other = new Thread[1];
+        counter.count("Computer", null, new Result() {
+            @Override
+            public void onResponse(Integer response) {
+                // another thread reading the counter while the callback runs
+                other[0] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        counter.getHitCount();
+                    }
+                });
+                other[0].start();
+                try {
+                    other[0].join(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onResponse(response);
+            }
+        });
+
+        assertFalse(other[0].isAlive());
+    }
+
+    @Test
+    public void invalidate_forgetsTheCountsOfTheItemType() {
+        counter.count("Computer", null, new Result());
+        server.answer(0, 5);
+        counter.count("Computer", open(0, 0), new Result());
+        server.answer(1, 2);
+        counter.count("ComputerModel", null, new Result());
+        server.answer(2, 3);
+
+        counter.invalidate("Computer");
+
+        counter.count("Computer", null, new Result());
+        counter.count("Computer", open(0, 0), new Result());
+        Result model = new Result();
+        counter.count("ComputerModel", null, model);
+
+        assertEquals(5, server.calls.size());
+        assertEquals(Integer.valueOf(3), model.count);
+    }
+
+    @Test
+    public void clear_forgetsAllTheCounts() {
+        counter.count("Computer", null, new Result());
+        server.answer(0, 5);
+
+        counter.clear();
+        counter.count("Computer", null, new Result());
+
+        assertEquals(2, server.calls.size());
+    }
+
+    @Test
+    public void countMap_returnsEveryCountByName() {
+        Map<String, ItemCounter.Count> counts = new LinkedHashMap<>();
+        counts.put("computers", new ItemCounter.Count("Computer", null));
+        counts.put("open tickets", new ItemCounter.Count("Ticket", open(0, 0)));
+        counts.put("monitors", new ItemCounter.Count("Monitor", null));
+        final List<Map<String, Integer>> results = new ArrayList<>();
+
+        counter.count(counts, new GLPI.ResponseHandle<Map<String, Integer>, String>() {
+            @Override
+            public void onResponse(Map<String, Integer> response) {
+                results.add(response);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                fail(errorMessage);
+            }
+        });
+        assertEquals(3, server.calls.size());
+
+        server.answer(2, 7);
+        server.fail(1, "error");
+        assertTrue(results.isEmpty());
+        server.answer(0, 5);
+
+        assertEquals(1, results.size());
+        Map<String, Integer> result = results.get(0);
+        assertEquals(new ArrayList<>(counts.keySet()), new ArrayList<>(result.keySet()));
+        assertEquals(Integer.valueOf(5), result.get("computers"));
+        assertEquals(Integer.valueOf(-1), result.get("open tickets"));
+        assertEquals(Integer.valueOf(7), result.get("monitors"));
+    }
+
+    @Test
+    public void countMap_answersAtOnceWithoutCounts() {
+        final List<Map<String, Integer>> results = new ArrayList<>();
+        counter.count(new LinkedHashMap<String, ItemCounter.Count>(), new GLPI.ResponseHandle<Map<String, Integer>, String>() {
+            @Override
+            public void onResponse(Map<String, Integer> response) {
+                results.add(response);
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                fail(errorMessage);
+            }
+        });
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isEmpty());
+        assertTrue(server.calls.isEmpty());
+    }
+
+    private static class Result implements GLPI.ResponseHandle<Integer, String> {
+        Integer count;
+        String error;
+
+        @Override
+        public void onResponse(Integer response) {
+            count = response;
+        }
+
+        @Override
+        public void onFailure(String errorMessage) {
+            error = errorMessage;
+        }
+    }
+
+    /**
+     * Keep the count requests until the test answers them
+     */
+    private static class FakeServer extends GLPI {
+        final List<GLPI.ResponseHandle<Integer, String>> calls = new ArrayList<>();
+
+        FakeServer() {
+            super((Context) null, "http://localhost/apirest.php/");
+        }
+
+        @Override
+        public void countItems(String itemType, SearchItemQuery criteria, ResponseHandle<Integer, String> callback) {
+            calls.add(callback);
+        }
+
+        void answer(int call, int count) {
+            calls.get(call).onResponse(count);
+        }
+
+        void fail(int call, String errorMessage) {
+            calls.get(call).onFailure(errorMessage);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LruItemCacheTest {
+
+    private static JsonObject item(int id) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", id);
+        item.addProperty("name", "computer " + id);
+        JsonArray links = new JsonArray();
+        JsonObject link = new JsonObject();
+        link.addProperty("rel", "Entity");
+        links.add(link);
+        item.add("links", links);
+        return item;
+    }
+
+    @Test
+    public void put_thenGet() {
+        LruItemCache cache = new LruItemCache(10);
+        cache.put("Computer", "1", item(1));
+
+        assertEquals(item(1), cache.get("Computer", "1"));
+        assertNull(cache.get("Monitor", "1"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void put_evictsTheLeastRecentlyUsed() {
+        LruItemCache cache = new LruItemCache(2);
+        cache.put("Computer", "1", item(1));
+        cache.put("Computer", "2", item(2));
+        // 1 becomes the most recently used
+        cache.get("Computer", "1");
+        cache.put("Computer", "3", item(3));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get("Computer", "1"));
+        assertNull(cache.get("Computer", "2"));
+        assertNotNull(cache.get("Computer", "3"));
+    }
+
+    @Test
+    public void put_copiesTheItem() {
+        LruItemCache cache = new LruItemCache(10);
+        JsonObject item = item(1);
+        cache.put("Computer", "1", item);
+
+        item.addProperty("name", "changed");
+        item.getAsJsonArray("links").get(0).getAsJsonObject().addProperty("rel", "changed");
+
+        assertEquals(item(1), cache.get("Computer", "1"));
+    }
+
+    @Test
+    public void get_returnsACopy() {
+        LruItemCache cache = new LruItemCache(10);
+        cache.put("Computer", "1", item(1));
+
+        JsonObject first = cache.get("Computer", "1");
+        first.remove("name");
+        first.getAsJsonArray("links").add(new JsonObject());
+
+        JsonObject second = cache.get("Computer", "1");
+        assertNotSame(first, second);
+        assertEquals(item(1), second);
+    }
+
+    @Test
+    public void invalidate_andClear() {
+        LruItemCache cache = new LruItemCache(10);
+        cache.put("Computer", "1", item(1));
+        cache.put("Computer", "2", item(2));
+
+        cache.invalidate("Computer", "1");
+        assertNull(cache.get("Computer", "1"));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsAnEmptyCache() {
+        new LruItemCache(0);
+    }
+}
@@ -0,0 +1,171 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OffHeapItemCacheTest {
+
+    private static JsonObject item(int id) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", id);
+        item.addProperty("name", "computer " + id);
+        return item;
+    }
+
+    @Test
+    public void put_thenGet() {
+        OffHeapItemCache cache = new OffHeapItemCache(4096, 2);
+        cache.put("Computer", "1", item(1));
+
+        assertEquals(item(1), cache.get("Computer", "1"));
+        assertNull(cache.get("Computer", "2"));
+        assertNull(cache.get("Monitor", "1"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void put_replacesThePreviousVersion() {
+        OffHeapItemCache cache = new OffHeapItemCache(4096, 2);
+        cache.put("Computer", "1", item(1));
+        JsonObject renamed = item(1);
+        renamed.addProperty("name", "renamed");
+        cache.put("Computer", "1", renamed);
+
+        assertEquals(renamed, cache.get("Computer", "1"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void invalidate_keepsTheOtherItemsOfTheProbeSequence() {
+        // 700 keys in an index of 1024 slots make long probe sequences, removing every other
+        // key moves the next entries back into the freed slots
+        OffHeapItemCache cache = new OffHeapItemCache(1 << 20, 2);
+        int count = 700;
+        for (int i = 0; i < count; i++) {
+            cache.put("Computer", String.valueOf(i), item(i));
+        }
+        for (int i = 0; i < count; i += 2) {
+            cache.invalidate("Computer", String.valueOf(i));
+        }
+
+        assertEquals(count / 2, cache.size());
+        for (int i = 0; i < count; i++) {
+            JsonObject cached = cache.get("Computer", String.valueOf(i));
+            if (i % 2 == 0) {
+                assertNull("removed " + i, cached);
+            } else {
+                assertEquals(item(i), cached);
+            }
+        }
+
+        // the freed slots can be used again
+        for (int i = 0; i < count; i += 2) {
+            cache.put("Computer", String.valueOf(i), item(i));
+        }
+        assertEquals(count, cache.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(item(i), cache.get("Computer", String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void invalidate_unknownKeyDoesNothing() {
+        OffHeapItemCache cache = new OffHeapItemCache(4096, 2);
+        cache.put("Computer", "1", item(1));
+        cache.invalidate("Computer", "2");
+
+        assertEquals(1, cache.size());
+        assertEquals(item(1), cache.get("Computer", "1"));
+    }
+
+    @Test
+    public void put_reusingASegmentEvictsItsItems() {
+        int itemLength = 4 + 8 + 2 + "Computer/10".length() + 4 + item(10).toString().length();
+        // 5 items per segment
+        OffHeapItemCache cache = new OffHeapItemCache(itemLength * 5, 2);
+        for (int i = 10; i < 25; i++) {
+            cache.put("Computer", String.valueOf(i), item(i));
+        }
+
+        // the first segment was reused for 20..24 evicting 10..14
+        assertEquals(5, cache.getEvictionCount());
+        assertEquals(10, cache.size());
+        for (int i = 10; i < 15; i++) {
+            assertNull(cache.get("Computer", String.valueOf(i)));
+        }
+        for (int i = 15; i < 25; i++) {
+            assertEquals(item(i), cache.get("Computer", String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void put_evictionSkipsTheReplacedVersions() {
+        int itemLength = 4 + 8 + 2 + "Computer/10".length() + 4 + item(10).toString().length();
+        OffHeapItemCache cache = new OffHeapItemCache(itemLength * 5, 2);
+        for (int i = 10; i < 15; i++) {
+            cache.put("Computer", String.valueOf(i), item(i));
+        }
+        // 10 is written again in the second segment, its first version is stale
+        cache.put("Computer", "10", item(10));
+        for (int i = 15; i < 20; i++) {
+            cache.put("Computer", String.valueOf(i), item(i));
+        }
+
+        assertEquals(4, cache.getEvictionCount());
+        assertEquals(item(10), cache.get("Computer", "10"));
+    }
+
+    @Test
+    public void put_tooLargeRemovesThePreviousVersion() {
+        OffHeapItemCache cache = new OffHeapItemCache(48, 2);
+        JsonObject small = new JsonObject();
+        small.addProperty("id", 1);
+        cache.put("Computer", "1", small);
+        assertEquals(small, cache.get("Computer", "1"));
+
+        cache.put("Computer", "1", item(1));
+        assertNull(cache.get("Computer", "1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clear_removesAll() {
+        OffHeapItemCache cache = new OffHeapItemCache(4096, 2);
+        cache.put("Computer", "1", item(1));
+        cache.put("Computer", "2", item(2));
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getUsedBytes());
+        assertNull(cache.get("Computer", "1"));
+    }
+}
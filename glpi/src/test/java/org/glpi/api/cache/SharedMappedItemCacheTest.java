@@ -0,0 +1,192 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SharedMappedItemCacheTest {
+
+    private static JsonObject item(int id, int version) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", id);
+        item.addProperty("version", version);
+        return item;
+    }
+
+    @Test
+    public void get_seesThePutOfAnotherInstance() throws IOException {
+        File path = File.createTempFile("shared", ".cache");
+        SharedMappedItemCache first = new SharedMappedItemCache(path, 64, 256);
+        SharedMappedItemCache second = new SharedMappedItemCache(path, 64, 256);
+        try {
+            first.put("Computer", "1", item(1, 1));
+            assertEquals(item(1, 1), second.get("Computer", "1"));
+
+            second.invalidate("Computer", "1");
+            assertNull(first.get("Computer", "1"));
+        } finally {
+            first.close();
+            second.close();
+            path.delete();
+        }
+    }
+
+    @Test
+    public void concurrentInstances_readConsistentItems() throws Exception {
+        File path = File.createTempFile("shared", ".cache");
+        final SharedMappedItemCache writer = new SharedMappedItemCache(path, 16, 256);
+        final SharedMappedItemCache reader = new SharedMappedItemCache(path, 16, 256);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        try {
+            Thread writing = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 2000; i++) {
+                            writer.put("Computer", String.valueOf(i % 8), item(i % 8, i));
+                        }
+                    } catch (Throwable ex) {
+                        error.set(ex);
+                    }
+                }
+            });
+            writing.start();
+            for (int i = 0; i < 2000; i++) {
+                // the reader takes no lock, a slot changed meanwhile is copied again
+                JsonObject item = reader.get("Computer", String.valueOf(i % 8));
+                if (item != null) {
+                    assertEquals(i % 8, item.get("id").getAsInt());
+                    assertEquals(i % 8, item.get("version").getAsInt() % 8);
+                }
+            }
+            writing.join();
+
+            assertNull(error.get());
+        } finally {
+            writer.close();
+            reader.close();
+            path.delete();
+        }
+    }
+
+    /**
+     * Position in the file of the first byte after the key, the start of the value
+     */
+    private static long valuePosition(File path, String key) throws IOException {
+        byte[] bytes = new byte[(int) path.length()];
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            file.readFully(bytes);
+        } finally {
+            file.close();
+        }
+        byte[] wanted = key.getBytes("UTF-8");
+        for (int i = 0; i + wanted.length <= bytes.length; i++) {
+            int j = 0;
+            while (j < wanted.length && bytes[i + j] == wanted[j]) {
+                j++;
+            }
+            if (j == wanted.length) {
+                return i + wanted.length;
+            }
+        }
+        throw new AssertionError(key + " not found");
+    }
+
+    private static void write(File path, long position, int length, byte value) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            file.seek(position);
+            for (int i = 0; i < length; i++) {
+                file.write(value);
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void get_rejectsATornSlot() throws IOException {
+        File path = File.createTempFile("shared", ".cache");
+        SharedMappedItemCache cache = new SharedMappedItemCache(path, 64, 256);
+        try {
+            cache.put("Computer", "1", item(1, 1));
+            cache.put("Computer", "2", item(2, 1));
+            // a writer died in the middle of the value, the version of the slot is even
+            write(path, valuePosition(path, "Computer/1") + 3, 4, (byte) '"');
+
+            assertNull(cache.get("Computer", "1"));
+            assertEquals(item(2, 1), cache.get("Computer", "2"));
+
+            cache.put("Computer", "1", item(1, 2));
+            assertEquals(item(1, 2), cache.get("Computer", "1"));
+        } finally {
+            cache.close();
+            path.delete();
+        }
+    }
+
+    @Test
+    public void get_skipsASlotLeftInWriting() throws IOException {
+        File path = File.createTempFile("shared", ".cache");
+        SharedMappedItemCache cache = new SharedMappedItemCache(path, 64, 256);
+        try {
+            cache.put("Computer", "1", item(1, 1));
+            // the version is the first int of the slot, 32 bytes and the key before the value
+            long slot = valuePosition(path, "Computer/1") - "Computer/1".length() - 32;
+            write(path, slot + 3, 1, (byte) 1);
+
+            assertNull(cache.get("Computer", "1"));
+            assertTrue(cache.getRetryCount() > 0);
+
+            cache.put("Computer", "1", item(1, 2));
+            assertEquals(item(1, 2), cache.get("Computer", "1"));
+        } finally {
+            cache.close();
+            path.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void open_withOtherParametersFails() throws IOException {
+        File path = File.createTempFile("shared", ".cache");
+        new SharedMappedItemCache(path, 64, 256).close();
+        try {
+            new SharedMappedItemCache(path, 64, 512);
+        } finally {
+            path.delete();
+        }
+    }
+}
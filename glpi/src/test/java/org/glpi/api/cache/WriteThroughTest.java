@@ -0,0 +1,111 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WriteThroughTest {
+
+    private LruItemCache cache;
+
+    private static JsonElement json(String text) {
+        return new JsonParser().parse(text);
+    }
+
+    private static JsonObject item(int id) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", id);
+        item.addProperty("name", "computer " + id);
+        return item;
+    }
+
+    @Before
+    public void setUp() {
+        cache = new LruItemCache(10);
+        for (int id = 1; id <= 4; id++) {
+            cache.put("Computer", String.valueOf(id), item(id));
+        }
+        cache.put("Monitor", "1", item(1));
+    }
+
+    @Test
+    public void added_dropsAnEntryLeftForTheNewIds() {
+        JsonArray response = json("[{\"id\":1,\"message\":\"\"},{\"id\":false,\"message\":\"error\"}]").getAsJsonArray();
+        WriteThrough.added(cache, "Computer", response);
+
+        assertNull(cache.get("Computer", "1"));
+        assertNotNull(cache.get("Computer", "2"));
+        assertNotNull(cache.get("Monitor", "1"));
+    }
+
+    @Test
+    public void added_doesNotFillTheCache() {
+        JsonArray response = json("[{\"id\":10,\"message\":\"\"}]").getAsJsonArray();
+        WriteThrough.added(cache, "Computer", response);
+
+        assertNull(cache.get("Computer", "10"));
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void updated_invalidatesTheIdAndThePayloadIds() {
+        WriteThrough.updated(cache, "Computer", "1", json("{\"input\":{\"name\":\"renamed\"}}"));
+        WriteThrough.updated(cache, "Computer", null, json("{\"input\":[{\"id\":2,\"name\":\"a\"},{\"id\":\"3\",\"name\":\"b\"}]}"));
+
+        assertNull(cache.get("Computer", "1"));
+        assertNull(cache.get("Computer", "2"));
+        assertNull(cache.get("Computer", "3"));
+        assertNotNull(cache.get("Computer", "4"));
+        assertNotNull(cache.get("Monitor", "1"));
+    }
+
+    @Test
+    public void deleted_invalidatesTheIdAndThePayloadIds() {
+        WriteThrough.deleted(cache, "Computer", "4", null);
+        WriteThrough.deleted(cache, "Computer", null, json("{\"input\":[{\"id\":1},{\"id\":2}]}"));
+
+        assertNull(cache.get("Computer", "1"));
+        assertNull(cache.get("Computer", "2"));
+        assertNotNull(cache.get("Computer", "3"));
+        assertNull(cache.get("Computer", "4"));
+    }
+
+    @Test
+    public void updated_ignoresThePayloadsWithoutInput() {
+        WriteThrough.updated(cache, "Computer", "", json("{\"name\":\"renamed\"}"));
+        WriteThrough.updated(cache, "Computer", null, null);
+
+        assertEquals(5, cache.size());
+    }
+}
@@ -0,0 +1,326 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.crawl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.query.GetAllItemQuery;
+import org.glpi.api.response.ItemPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InventoryCrawlerTest {
+
+    private File checkpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        checkpoint = File.createTempFile("crawl", ".checkpoint");
+        assertTrue(checkpoint.delete());
+    }
+
+    @After
+    public void tearDown() {
+        checkpoint.delete();
+    }
+
+    private static Map<String, Integer> totals(Object... pairs) {
+        Map<String, Integer> totals = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            totals.put((String) pairs[i], (Integer) pairs[i + 1]);
+        }
+        return totals;
+    }
+
+    private static Listener crawl(InventoryCrawler crawler, List<String> itemTypes) throws Exception {
+        Listener listener = new Listener();
+        crawler.start(itemTypes, listener);
+        assertTrue(crawler.awaitTermination(10, TimeUnit.SECONDS));
+        assertNotNull(listener.stats);
+        return listener;
+    }
+
+    private void writeCheckpoint(String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(checkpoint);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void crawl_readsEveryItemOnceInAlignedPages() throws Exception {
+        FakeServer server = new FakeServer(totals("Computer", 95, "Monitor", 3, "Printer", 0), 0);
+        InventoryCrawler crawler = new InventoryCrawler(server, null);
+        crawler.setPageSize(10);
+        crawler.setWorkerCount(3);
+
+        Listener listener = crawl(crawler, Arrays.asList("Computer", "Monitor", "Printer"));
+
+        assertTrue(listener.errors.isEmpty());
+        assertFalse(listener.cancelled);
+        listener.assertEveryItemOnce("Computer", 95);
+        listener.assertEveryItemOnce("Monitor", 3);
+        listener.assertEveryItemOnce("Printer", 0);
+        for (int[] range : server.ranges("Computer")) {
+            // the ranges split by the workers stay aligned on the pages
+            assertEquals(0, range[0] % 10);
+            assertTrue(range[1] - range[0] <= 10);
+        }
+        assertEquals(10, server.ranges("Computer").size());
+        assertEquals(95 + 3, listener.stats.getRowCount());
+        assertEquals(3, listener.stats.getTypeCount());
+    }
+
+    @Test
+    public void crawl_idleWorkersStealTheSplitRanges() throws Exception {
+        FakeServer server = new FakeServer(totals("Computer", 400), 2);
+        InventoryCrawler crawler = new InventoryCrawler(server, null);
+        crawler.setPageSize(10);
+        crawler.setWorkerCount(4);
+
+        Listener listener = crawl(crawler, Collections.singletonList("Computer"));
+
+        listener.assertEveryItemOnce("Computer", 400);
+        assertEquals(40, server.ranges("Computer").size());
+        assertTrue(listener.stats.getStealCount() > 0);
+        assertTrue(server.threads.size() > 1);
+    }
+
+    @Test
+    public void crawl_deletesTheCheckpointOnceDone() throws Exception {
+        FakeServer server = new FakeServer(totals("Computer", 25), 0);
+        InventoryCrawler crawler = new InventoryCrawler(server, null);
+        crawler.setPageSize(10);
+        crawler.setCheckpointFile(checkpoint);
+
+        Listener listener = crawl(crawler, Collections.singletonList("Computer"));
+
+        listener.assertEveryItemOnce("Computer", 25);
+        assertFalse(checkpoint.exists());
+    }
+
+    @Test
+    public void resume_requestsOnlyTheMissingPages() throws Exception {
+        // the last line was cut while "P Computer 0 10" was written, the page is read again
+        writeCheckpoint("T Computer 50\nP Computer 20 30\nP Computer 0 1");
+        FakeServer server = new FakeServer(totals("Computer", 50, "Monitor", 5), 0);
+        InventoryCrawler crawler = new InventoryCrawler(server, null);
+        crawler.setPageSize(10);
+        crawler.setCheckpointFile(checkpoint);
+
+        Listener listener = crawl(crawler, Arrays.asList("Computer", "Monitor"));
+
+        assertTrue(listener.errors.isEmpty());
+        Set<String> ranges = new HashSet<>();
+        for (int[] range : server.ranges("Computer")) {
+            ranges.add(range[0] + "-" + range[1]);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("0-10", "10-20", "30-40", "40-50")), ranges);
+        listener.assertEveryItemOnce("Monitor", 5);
+    }
+
+    @Test
+    public void resume_afterAFailureRequestsOnlyTheFailedPage() throws Exception {
+        writeCheckpoint("T Computer 30\nP Computer 0 10\nP Comp");
+        FakeServer failing = new FakeServer(totals("Computer", 30), 0);
+        failing.failing = 20;
+        InventoryCrawler crawler = new InventoryCrawler(failing, null);
+        crawler.setPageSize(10);
+        crawler.setMaxAttempts(2);
+        crawler.setCheckpointFile(checkpoint);
+
+        Listener first = crawl(crawler, Collections.singletonList("Computer"));
+        assertEquals(1, first.errors.size());
+        assertEquals(2, failing.attempts);
+        assertTrue(checkpoint.exists());
+
+        FakeServer server = new FakeServer(totals("Computer", 30), 0);
+        crawler = new InventoryCrawler(server, null);
+        crawler.setPageSize(10);
+        crawler.setCheckpointFile(checkpoint);
+        Listener second = crawl(crawler, Collections.singletonList("Computer"));
+
+        assertTrue(second.errors.isEmpty());
+        assertEquals(1, server.ranges("Computer").size());
+        assertEquals(20, server.ranges("Computer").get(0)[0]);
+        assertFalse(checkpoint.exists());
+    }
+
+    @Test
+    public void cancel_endsTheCrawlAndKeepsTheCheckpoint() throws Exception {
+        FakeServer server = new FakeServer(totals("Computer", 1000), 1);
+        final InventoryCrawler crawler = new InventoryCrawler(server, null);
+        crawler.setPageSize(10);
+        crawler.setWorkerCount(2);
+        crawler.setCheckpointFile(checkpoint);
+        Listener listener = new Listener() {
+            @Override
+            public void onPage(String itemType, int start, JsonArray rows) {
+                super.onPage(itemType, start, rows);
+                crawler.cancel();
+            }
+        };
+
+        crawler.start(Collections.singletonList("Computer"), listener);
+        assertTrue(crawler.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(listener.cancelled);
+        assertTrue(listener.stats.getPageCount() < 100);
+        assertTrue(listener.errors.isEmpty());
+        assertTrue(checkpoint.exists());
+    }
+
+    @Test
+    public void start_withoutItemTypesFinishesAtOnce() throws Exception {
+        InventoryCrawler crawler = new InventoryCrawler(new FakeServer(totals(), 0), null);
+        Listener listener = crawl(crawler, new ArrayList<String>());
+
+        assertEquals(0, listener.stats.getPageCount());
+        assertFalse(listener.cancelled);
+    }
+
+    /**
+     * GLPI serving item types of a known size, an empty range fails like the server
+     */
+    private static class FakeServer extends GLPI {
+        private final Map<String, Integer> totals;
+        private final long delay;
+        private final Map<String, List<int[]>> ranges = new HashMap<>();
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        volatile int failing = -1;
+        volatile int attempts = 0;
+
+        FakeServer(Map<String, Integer> totals, long delay) {
+            super(null, "http://localhost/apirest.php/");
+            this.totals = totals;
+            this.delay = delay;
+        }
+
+        synchronized List<int[]> ranges(String itemType) {
+            List<int[]> list = ranges.get(itemType);
+            return list == null ? new ArrayList<int[]>() : list;
+        }
+
+        @Override
+        public ItemPage getItemPage(String itemType, GetAllItemQuery query) throws IOException {
+            assertEquals("id", query.getQuery().get("sort"));
+            assertEquals("ASC", query.getQuery().get("order"));
+            String[] range = query.getQuery().get("range").split("-");
+            int start = Integer.parseInt(range[0]);
+            int end = Integer.parseInt(range[1]) + 1;
+            threads.add(Thread.currentThread());
+            if (start == failing) {
+                attempts++;
+                throw new IOException("ERROR_GLPI_GET");
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+
+            int total = totals.get(itemType);
+            if (start >= total) {
+                throw new IOException("[\"ERROR_RANGE_EXCEED_TOTAL\",\"Provided range exceed total count of data\"]");
+            }
+            end = Math.min(end, total);
+            synchronized (this) {
+                List<int[]> list = ranges.get(itemType);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    ranges.put(itemType, list);
+                }
+                list.add(new int[]{start, end});
+            }
+            JsonArray rows = new JsonArray();
+            for (int i = start; i < end; i++) {
+                JsonObject row = new JsonObject();
+                row.addProperty("id", i + 1);
+                rows.add(row);
+            }
+            return new ItemPage(rows, total);
+        }
+    }
+
+    private static class Listener implements InventoryCrawler.Listener {
+        private final Map<String, List<Integer>> ids = new HashMap<>();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        volatile InventoryCrawler.Stats stats;
+        volatile boolean cancelled;
+
+        @Override
+        public synchronized void onPage(String itemType, int start, JsonArray rows) {
+            List<Integer> list = ids.get(itemType);
+            if (list == null) {
+                list = new ArrayList<>();
+                ids.put(itemType, list);
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                list.add(rows.get(i).getAsJsonObject().get("id").getAsInt());
+            }
+        }
+
+        @Override
+        public void onError(String itemType, int start, int end, String errorMessage) {
+            errors.add(itemType + " " + start + "-" + end + " " + errorMessage);
+        }
+
+        @Override
+        public void onComplete(InventoryCrawler.Stats stats, boolean cancelled) {
+            this.cancelled = cancelled;
+            this.stats = stats;
+        }
+
+        synchronized void assertEveryItemOnce(String itemType, int total) {
+            List<Integer> list = ids.containsKey(itemType) ? new ArrayList<>(ids.get(itemType)) : new ArrayList<Integer>();
+            Collections.sort(list);
+            assertEquals(total, list.size());
+            for (int i = 0; i < total; i++) {
+                assertEquals(i + 1, (int) list.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.crawl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.query.GetSubItemQuery;
+import org.glpi.api.response.ItemPage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SubItemFanOutTest {
+
+    @Test
+    public void run_readsThePagesUntilTheTotal() {
+        FakeServer server = new FakeServer(true);
+        server.counts.put("1", 120);
+        server.counts.put("2", 3);
+        server.counts.put("3", 0);
+        SubItemFanOut fanOut = new SubItemFanOut(server);
+        fanOut.setPageSize(50);
+
+        Listener listener = new Listener();
+        fanOut.run("Computer", Arrays.asList("1", "2", "3").iterator(), Arrays.asList("Item_Disk"), listener);
+
+        assertEquals(120, listener.count("1"));
+        assertEquals(3, listener.count("2"));
+        assertEquals(0, listener.count("3"));
+        assertEquals(Arrays.asList("1:0-49", "1:50-99", "1:100-149", "2:0-49", "3:0-49"), server.requests);
+        assertNotNull(listener.stats);
+        assertEquals(123, listener.stats.getRowCount());
+        assertEquals(5, listener.stats.getCompletedCount());
+        assertEquals(0, listener.stats.getInFlightCount());
+    }
+
+    @Test
+    public void run_withoutContentRangeReadsWhileThePagesAreFull() {
+        FakeServer server = new FakeServer(false);
+        server.counts.put("1", 10);
+        SubItemFanOut fanOut = new SubItemFanOut(server);
+        fanOut.setPageSize(5);
+
+        Listener listener = new Listener();
+        fanOut.run("Computer", Arrays.asList("1").iterator(), Arrays.asList("Item_Disk"), listener);
+
+        assertEquals(10, listener.count("1"));
+        assertEquals(Arrays.asList("1:0-4", "1:5-9", "1:10-14"), server.requests);
+    }
+
+    /**
+     * Answers the pages synchronously, each parent has a number of sub items
+     */
+    private static class FakeServer extends GLPI {
+        private final boolean contentRange;
+        private final Map<String, Integer> counts = new HashMap<>();
+        private final List<String> requests = new ArrayList<>();
+
+        FakeServer(boolean contentRange) {
+            super(null, "http://localhost/apirest.php/");
+            this.contentRange = contentRange;
+        }
+
+        @Override
+        public void getSubItemPage(String itemType, String id, String subItemType, GetSubItemQuery query, int start, int end, ResponseHandle<ItemPage, String> callback) {
+            requests.add(id + ":" + start + "-" + end);
+            int count = counts.get(id);
+            JsonArray rows = new JsonArray();
+            for (int i = start; i <= end && i < count; i++) {
+                JsonObject row = new JsonObject();
+                row.addProperty("id", i);
+                rows.add(row);
+            }
+            callback.onResponse(new ItemPage(rows, contentRange && count > 0 ? count : -1));
+        }
+    }
+
+    private static class Listener implements SubItemFanOut.Listener {
+        private final Map<String, Integer> rows = new HashMap<>();
+        private SubItemFanOut.Stats stats;
+
+        int count(String parentId) {
+            Integer count = rows.get(parentId);
+            return count == null ? 0 : count;
+        }
+
+        @Override
+        public void onRows(String parentId, String subItemType, JsonArray page) {
+            rows.put(parentId, count(parentId) + page.size());
+        }
+
+        @Override
+        public void onError(String parentId, String subItemType, String errorMessage) {
+            fail(errorMessage);
+        }
+
+        @Override
+        public void onComplete(SubItemFanOut.Stats stats) {
+            this.stats = stats;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.query;
+
+import android.content.Context;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProjectionTest {
+
+    /**
+     * Part of the searchoptions of Computer
+     */
+    private static JsonObject searchOptions() {
+        return new JsonParser().parse("{"
+                + "\"common\":\"Characteristics\","
+                + "\"1\":{\"table\":\"glpi_computers\",\"field\":\"name\"},"
+                + "\"5\":{\"table\":\"glpi_computers\",\"field\":\"serial\"},"
+                + "\"24\":{\"table\":\"glpi_users\",\"field\":\"name\",\"linkfield\":\"users_id_tech\"},"
+                + "\"70\":{\"table\":\"glpi_users\",\"field\":\"name\"},"
+                + "\"80\":{\"table\":\"glpi_entities\",\"field\":\"completename\"},"
+                + "\"81\":{\"table\":\"glpi_entities\",\"field\":\"name\"}}").getAsJsonObject();
+    }
+
+    @Test
+    public void searchColumns_matchesTheLinkField() {
+        Projection projection = new Projection("name", "users_id", "users_id_tech", "entities_id", "comment");
+
+        Map<String, String> columns = projection.searchColumns("Computer", searchOptions());
+
+        assertEquals("name", columns.get("1"));
+        assertEquals("users_id", columns.get("70"));
+        assertEquals("users_id_tech", columns.get("24"));
+        assertEquals("entities_id", columns.get("80"));
+        assertEquals(4, columns.size());
+    }
+
+    @Test
+    public void apply_doesNotChangeTheQuery() {
+        GetAllItemQuery query = new GetAllItemQuery((Context) null);
+        query.setRange(0, 9);
+        GetAllItemQuery projected = new Projection("id").apply(query);
+
+        assertNull(query.getQuery().get("only_id"));
+        assertEquals("true", projected.getQuery().get("only_id"));
+        assertEquals("0-9", projected.getQuery().get("range"));
+
+        SearchItemQuery search = new SearchItemQuery((Context) null);
+        Map<String, String> before = search.getQuery();
+        Projection projection = new Projection("name", "serial");
+        SearchItemQuery projectedSearch = projection.apply(search, projection.searchColumns("Computer", searchOptions()));
+
+        assertEquals(before, search.getQuery());
+        assertEquals("1", projectedSearch.getQuery().get("forcedisplay[0]"));
+        assertEquals("5", projectedSearch.getQuery().get("forcedisplay[1]"));
+    }
+
+    @Test
+    public void rows_renamesTheColumns() {
+        Projection projection = new Projection("name", "users_id_tech");
+        Map<String, String> columns = projection.searchColumns("Computer", searchOptions());
+        JsonObject response = new JsonParser().parse("{\"totalcount\":1,\"data\":["
+                + "{\"1\":\"pc-1\",\"24\":\"tech\",\"2\":7}]}").getAsJsonObject();
+
+        JsonArray rows = projection.rows(response, columns);
+        assertEquals(new JsonParser().parse("[{\"name\":\"pc-1\",\"users_id_tech\":\"tech\"}]"), rows);
+    }
+
+    @Test
+    public void project_keepsTheFields() {
+        JsonObject item = new JsonParser().parse("{\"id\":1,\"name\":\"pc\",\"serial\":\"X\"}").getAsJsonObject();
+        assertEquals(new JsonParser().parse("{\"id\":1,\"name\":\"pc\"}"), new Projection("id", "name", "other").project(item));
+    }
+}
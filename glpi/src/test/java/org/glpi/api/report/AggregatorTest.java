@@ -0,0 +1,172 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.report;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class AggregatorTest {
+
+    @Test
+    public void groupBy_numberAndTextOfTheSameIdAreOneGroup() {
+        Aggregator aggregator = Aggregator.groupBy("locations_id").distinct("users_id");
+        aggregator.add(new JsonParser().parse("["
+                + "{\"locations_id\":12,\"users_id\":3},"
+                + "{\"locations_id\":\"12\",\"users_id\":\"3\"},"
+                + "{\"locations_id\":\"Paris\",\"users_id\":4},"
+                + "{\"users_id\":5}]").getAsJsonArray());
+
+        Aggregator.Result result = aggregator.getResult();
+        assertEquals(3, result.size());
+        Map<String, Aggregator.Group> groups = byKey(result);
+        assertEquals(2, groups.get("12").getCount());
+        assertEquals(1, groups.get("12").getValue(0), 0);
+        assertEquals(1, groups.get("Paris").getCount());
+        assertEquals(1, groups.get(null).getCount());
+    }
+
+    @Test
+    public void groupBy_textWithLeadingZerosIsNotTheNumber() {
+        Aggregator aggregator = Aggregator.groupBy("otherserial").distinct("serial");
+        aggregator.add(new JsonParser().parse("["
+                + "{\"otherserial\":\"007\",\"serial\":\"007\"},"
+                + "{\"otherserial\":\"007\",\"serial\":\"7\"},"
+                + "{\"otherserial\":7,\"serial\":7},"
+                + "{\"otherserial\":\"0\",\"serial\":\"0\"},"
+                + "{\"otherserial\":0,\"serial\":\"00\"}]").getAsJsonArray());
+
+        Aggregator.Result result = aggregator.getResult();
+        assertEquals(3, result.size());
+        Map<String, Aggregator.Group> groups = byKey(result);
+        assertEquals(2, groups.get("007").getCount());
+        assertEquals(2, groups.get("007").getValue(0), 0);
+        assertTrue(groups.get("007").getKey(0).getAsJsonPrimitive().isString());
+        assertEquals(1, groups.get("7").getCount());
+        assertEquals(2, groups.get("0").getCount());
+        assertEquals(2, groups.get("0").getValue(0), 0);
+    }
+
+    @Test
+    public void metrics() {
+        Aggregator aggregator = Aggregator.groupBy("model").sum("price").min("price").max("price");
+        aggregator.add(new JsonParser().parse("["
+                + "{\"model\":1,\"price\":10},"
+                + "{\"model\":1,\"price\":\"30.5\"},"
+                + "{\"model\":1,\"price\":\"n/a\"},"
+                + "{\"model\":2}]").getAsJsonArray());
+
+        Map<String, Aggregator.Group> groups = byKey(aggregator.getResult());
+        assertEquals(3, groups.get("1").getCount());
+        assertEquals(40.5, groups.get("1").getValue(0), 0);
+        assertEquals(10, groups.get("1").getValue(1), 0);
+        assertEquals(30.5, groups.get("1").getValue(2), 0);
+        assertTrue(Double.isNaN(groups.get("2").getValue(0)));
+    }
+
+    @Test
+    public void month_andWeek() {
+        Aggregator aggregator = new Aggregator(Dimension.month("date"), Dimension.week("date"));
+        aggregator.add(new JsonParser().parse("["
+                + "{\"date\":\"2017-05-04 10:12:00\"},"
+                + "{\"date\":\"2017-05-07 23:59:59\"},"
+                + "{\"date\":\"2017-05-08 00:00:00\"}]").getAsJsonArray());
+
+        Aggregator.Result result = aggregator.getResult();
+        assertEquals(2, result.size());
+        Map<String, Long> counts = new HashMap<>();
+        for (Aggregator.Group group : result.getGroups()) {
+            assertEquals("2017-05", group.getKey(0).getAsString());
+            counts.put(group.getKey(1).getAsString(), group.getCount());
+        }
+        // 2017-05-01 and 2017-05-08 are mondays
+        assertEquals(Long.valueOf(2), counts.get("2017-05-01"));
+        assertEquals(Long.valueOf(1), counts.get("2017-05-08"));
+    }
+
+    @Test
+    public void add_fromSeveralThreadsMergesThePartials() throws Exception {
+        final int threads = 4;
+        final int rowsPerThread = 500000;
+        final Aggregator aggregator = Aggregator.groupBy("computermodels_id", "entities_id").distinct("serial");
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < rowsPerThread; i++) {
+                            int id = thread * rowsPerThread + i;
+                            JsonObject row = new JsonObject();
+                            row.addProperty("computermodels_id", id % 20);
+                            row.addProperty("entities_id", String.valueOf(id % 7));
+                            // half of the serials are seen twice
+                            row.addProperty("serial", "SN" + id / 2);
+                            aggregator.add(row);
+                        }
+                    } catch (Throwable ex) {
+                        error.set(ex);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(error.get());
+
+        Aggregator.Result result = aggregator.getResult();
+        // 20 and 7 are coprime, every pair is a group
+        assertEquals(140, result.size());
+        long total = 0;
+        double distinct = 0;
+        for (Aggregator.Group group : result.getGroups()) {
+            total += group.getCount();
+            distinct += group.getValue(0);
+        }
+        assertEquals(threads * rowsPerThread, total);
+        // the two rows of a serial are in different groups, each group sees each serial once
+        assertEquals(threads * rowsPerThread, distinct, threads * rowsPerThread * 0.05);
+    }
+
+    private static Map<String, Aggregator.Group> byKey(Aggregator.Result result) {
+        Map<String, Aggregator.Group> groups = new HashMap<>();
+        for (Aggregator.Group group : result.getGroups()) {
+            groups.put(group.getKey(0) == null ? null : group.getKey(0).getAsString(), group);
+        }
+        return groups;
+    }
+}
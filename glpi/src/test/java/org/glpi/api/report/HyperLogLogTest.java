@@ -0,0 +1,79 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.report;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void estimate_withinTheStandardError() {
+        HyperLogLog counter = new HyperLogLog(12);
+        for (long i = 0; i < 100000; i++) {
+            counter.add(HyperLogLog.hash(i));
+            // the duplicates do not count
+            counter.add(HyperLogLog.hash(i));
+        }
+        // 3 standard errors of 1.6%
+        assertEquals(100000, counter.estimate(), 100000 * 0.05);
+    }
+
+    @Test
+    public void estimate_smallCounts() {
+        HyperLogLog counter = new HyperLogLog(10);
+        assertEquals(0, counter.estimate());
+        for (int i = 0; i < 10; i++) {
+            counter.add(HyperLogLog.hash("value " + i));
+        }
+        assertEquals(10, counter.estimate());
+    }
+
+    @Test
+    public void merge_estimatesTheUnion() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (long i = 0; i < 60000; i++) {
+            first.add(HyperLogLog.hash(i));
+            union.add(HyperLogLog.hash(i));
+        }
+        for (long i = 40000; i < 100000; i++) {
+            second.add(HyperLogLog.hash(i));
+            union.add(HyperLogLog.hash(i));
+        }
+        first.merge(second);
+
+        assertEquals(union.estimate(), first.estimate());
+        assertEquals(100000, first.estimate(), 100000 * 0.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void merge_otherPrecisionFails() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
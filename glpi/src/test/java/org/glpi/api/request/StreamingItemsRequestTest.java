@@ -0,0 +1,153 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.request;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class StreamingItemsRequestTest {
+
+    private static JsonObject computer(String name) {
+        JsonObject item = new JsonObject();
+        item.addProperty("name", name);
+        return item;
+    }
+
+    /**
+     * Iterator of n computers counting the items taken
+     */
+    private static class Computers implements Iterator<JsonObject> {
+        private final int count;
+        private int taken = 0;
+
+        Computers(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return taken < count;
+        }
+
+        @Override
+        public JsonObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            taken++;
+            return computer("computer " + taken);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void writeTo_wrapsTheItemsInInput() throws IOException {
+        StreamingItemsRequest body = new StreamingItemsRequest(new Computers(2));
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+
+        assertEquals("{\"input\":[{\"name\":\"computer 1\"},{\"name\":\"computer 2\"}]}",
+                buffer.readUtf8());
+        assertEquals(-1, body.contentLength());
+        assertEquals("application", body.contentType().type());
+        assertEquals("json", body.contentType().subtype());
+    }
+
+    @Test
+    public void writeTo_takesTheItemsOnlyWhileWriting() throws IOException {
+        Computers items = new Computers(1000);
+        StreamingItemsRequest body = new StreamingItemsRequest(items);
+        assertEquals(0, items.taken);
+
+        body.writeTo(new Buffer());
+        assertEquals(1000, items.taken);
+    }
+
+    @Test
+    public void writeTo_emptyIterator() throws IOException {
+        Buffer buffer = new Buffer();
+        new StreamingItemsRequest(new Computers(0)).writeTo(buffer);
+
+        assertEquals("{\"input\":[]}", buffer.readUtf8());
+    }
+
+    @Test
+    public void writeTo_keepsThePositionOfTheNullItems() throws IOException {
+        Iterator<JsonObject> items = Arrays.asList(computer("a"), null, computer("b")).iterator();
+        Buffer buffer = new Buffer();
+        new StreamingItemsRequest(items).writeTo(buffer);
+
+        assertEquals("{\"input\":[{\"name\":\"a\"},null,{\"name\":\"b\"}]}", buffer.readUtf8());
+    }
+
+    @Test
+    public void writeTo_failsOnTheSecondWrite() throws IOException {
+        StreamingItemsRequest body = new StreamingItemsRequest(new Computers(1));
+        body.writeTo(new Buffer());
+
+        try {
+            body.writeTo(new Buffer());
+            fail("the items can be sent only once");
+        } catch (IOException expected) {
+            // the call ends in onFailure instead of sending an empty list
+        }
+    }
+
+    @Test
+    public void writeTo_reportsTheIteratorErrorsAsIOException() {
+        Iterator<JsonObject> items = new Computers(3) {
+            @Override
+            public JsonObject next() {
+                JsonObject item = super.next();
+                if (item.get("name").getAsString().equals("computer 2")) {
+                    throw new IllegalStateException("broken cursor");
+                }
+                return item;
+            }
+        };
+
+        try {
+            new StreamingItemsRequest(items).writeTo(new Buffer());
+            fail("the error of the iterator must be reported");
+        } catch (IOException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+}
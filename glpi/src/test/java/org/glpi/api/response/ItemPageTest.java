@@ -0,0 +1,50 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.response;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ItemPageTest {
+
+    @Test
+    public void parseTotal_readsTheNumberAfterTheSlash() {
+        assertEquals(1234, ItemPage.parseTotal("0-49/1234"));
+        assertEquals(1, ItemPage.parseTotal("0-0/1"));
+        assertEquals(1234, ItemPage.parseTotal("0-49/ 1234 "));
+    }
+
+    @Test
+    public void parseTotal_unknownIsMinusOne() {
+        assertEquals(-1, ItemPage.parseTotal(null));
+        assertEquals(-1, ItemPage.parseTotal(""));
+        assertEquals(-1, ItemPage.parseTotal("0-49"));
+        assertEquals(-1, ItemPage.parseTotal("0-49/"));
+        assertEquals(-1, ItemPage.parseTotal("0-49/*"));
+        assertEquals(-1, ItemPage.parseTotal("0-49/99999999999"));
+    }
+}
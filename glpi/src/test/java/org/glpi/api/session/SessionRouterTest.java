@@ -0,0 +1,163 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.session;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.response.InitSession;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SessionRouterTest {
+
+    private final List<GLPI> killed = new ArrayList<>();
+
+    private final SessionRouter.Login login = new SessionRouter.Login() {
+        @Override
+        public void login(GLPI session, GLPI.ResponseHandle<InitSession, String> callback) {
+            callback.onResponse(null);
+        }
+    };
+
+    private static SessionScope entity(int id) {
+        return new SessionScope(String.valueOf(id), false);
+    }
+
+    private GLPI session(SessionRouter router, SessionScope scope) {
+        final GLPI[] received = new GLPI[1];
+        router.session(scope, new GLPI.ResponseHandle<GLPI, String>() {
+            @Override
+            public void onResponse(GLPI response) {
+                received[0] = response;
+            }
+
+            @Override
+            public void onFailure(String errorMessage) {
+                fail(errorMessage);
+            }
+        });
+        assertNotNull(received[0]);
+        return received[0];
+    }
+
+    @Test
+    public void session_isReusedForTheSameScope() {
+        SessionRouter router = new SessionRouter(new FakeServer(), login);
+        GLPI first = session(router, entity(1));
+        router.release(first);
+        GLPI second = session(router, entity(1));
+
+        assertSame(first, second);
+        assertEquals(1, router.getOpenCount());
+        assertEquals(1, router.getHitCount());
+    }
+
+    @Test
+    public void evict_killsOnlyTheReleasedSessions() {
+        SessionRouter router = new SessionRouter(new FakeServer(), login);
+        router.setMaxSessions(1);
+        GLPI first = session(router, entity(1));
+        GLPI second = session(router, entity(2));
+
+        // both are held, the maximum is exceeded instead of killing a session in use
+        assertEquals(2, router.size());
+        assertTrue(killed.isEmpty());
+
+        router.release(first);
+        assertEquals(1, router.size());
+        assertEquals(1, router.getEvictionCount());
+        assertEquals(1, killed.size());
+        assertSame(first, killed.get(0));
+
+        router.release(second);
+        assertEquals(1, router.size());
+        assertSame(second, session(router, entity(2)));
+    }
+
+    @Test
+    public void invalidate_killsTheSessionWhenReleased() {
+        SessionRouter router = new SessionRouter(new FakeServer(), login);
+        GLPI first = session(router, entity(1));
+        GLPI again = session(router, entity(1));
+        router.invalidate(entity(1));
+
+        assertEquals(0, router.size());
+        router.release(first);
+        assertTrue(killed.isEmpty());
+        router.release(again);
+        assertEquals(1, killed.size());
+        assertNotSame(first, session(router, entity(1)));
+    }
+
+    @Test
+    public void close_killsTheHeldSessionsWhenReleased() {
+        SessionRouter router = new SessionRouter(new FakeServer(), login);
+        GLPI held = session(router, entity(1));
+        router.release(session(router, entity(2)));
+        router.close();
+
+        assertEquals(1, killed.size());
+        router.release(held);
+        assertEquals(2, killed.size());
+        assertSame(held, killed.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_twiceFails() {
+        SessionRouter router = new SessionRouter(new FakeServer(), login);
+        GLPI session = session(router, entity(1));
+        router.release(session);
+        router.release(session);
+    }
+
+    /**
+     * Sessions answering the entity changes at once and recording their kill
+     */
+    private class FakeServer extends GLPI {
+        FakeServer() {
+            super(null, "http://localhost/apirest.php/");
+        }
+
+        @Override
+        public GLPI newSession() {
+            return new FakeServer();
+        }
+
+        @Override
+        public void changeActiveEntities(String entitiesId, Boolean is_recursive, ResponseHandle<String, String> callback) {
+            callback.onResponse(null);
+        }
+
+        @Override
+        public void killSession(ResponseHandle<String, String> callback) {
+            killed.add(this);
+            callback.onResponse(null);
+        }
+    }
+}
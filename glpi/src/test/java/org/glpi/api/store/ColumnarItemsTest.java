@@ -0,0 +1,123 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.store;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ColumnarItemsTest {
+
+    private static JsonArray rows(String json) {
+        return new JsonParser().parse(json).getAsJsonArray();
+    }
+
+    @Test
+    public void from_keepsIntegersInPrimitiveColumns() {
+        ColumnarItems items = ColumnarItems.from(rows("[{\"id\":1,\"entities_id\":0},{\"id\":2,\"entities_id\":3}]"));
+
+        assertEquals(2, items.size());
+        assertArrayEquals(new int[]{1, 2}, items.intColumn("id"));
+        assertArrayEquals(new int[]{0, 3}, items.intColumn("entities_id"));
+        assertEquals(3, items.row(1).getInt("entities_id"));
+    }
+
+    @Test
+    public void from_promotesLargeNumbersToLong() {
+        ColumnarItems items = ColumnarItems.from(rows("[{\"size\":1},{\"size\":10000000000}]"));
+
+        assertArrayEquals(new long[]{1, 10000000000L}, items.longColumn("size"));
+        assertEquals(10000000000L, items.row(1).getLong("size"));
+    }
+
+    @Test
+    public void from_promotesTextsToDictionary() {
+        ColumnarItems items = ColumnarItems.from(rows("[{\"serial\":12},{\"serial\":\"AB-1\"},{\"serial\":\"AB-1\"}]"));
+
+        assertEquals("12", items.row(0).getString("serial"));
+        assertEquals("AB-1", items.row(2).getString("serial"));
+        assertEquals(2, items.count("serial", "AB-1"));
+        assertEquals(1, items.count("serial", "12"));
+        assertEquals(0, items.count("serial", "none"));
+        try {
+            items.intColumn("serial");
+            fail("serial is not an int column");
+        } catch (IllegalArgumentException expected) {
+            // a dictionary column
+        }
+    }
+
+    @Test
+    public void isNull_forMissingAndNullValues() {
+        ColumnarItems items = ColumnarItems.from(rows("[{\"id\":1,\"name\":\"pc\"},{\"id\":2,\"name\":null},{\"id\":3}]"));
+
+        assertFalse(items.isNull("name", 0));
+        assertTrue(items.isNull("name", 1));
+        assertTrue(items.isNull("name", 2));
+        assertTrue(items.isNull("unknown", 0));
+        assertNull(items.row(2).getString("name"));
+    }
+
+    @Test
+    public void row_rebuildsTheItem() {
+        String json = "[{\"id\":7,\"name\":\"pc-é\",\"is_deleted\":0,\"links\":[{\"rel\":\"Entity\"}]}]";
+        ColumnarItems items = ColumnarItems.from(rows(json));
+
+        JsonObject item = items.row(0).toJsonObject();
+        assertEquals(7, item.get("id").getAsInt());
+        assertEquals("pc-é", item.get("name").getAsString());
+        assertEquals(0, item.get("is_deleted").getAsInt());
+        assertTrue(item.get("links").isJsonArray());
+        assertEquals("Entity", item.getAsJsonArray("links").get(0).getAsJsonObject().get("rel").getAsString());
+        assertEquals(4, items.fields().size());
+    }
+
+    @Test
+    public void row_keepsTheTypeOfTheValues() {
+        String json = "[{\"id\":1,\"serial\":12,\"ratio\":0.5,\"active\":true,\"links\":{\"rel\":\"Entity\"}},"
+                + "{\"id\":2,\"serial\":\"12\",\"ratio\":1,\"active\":\"true\",\"links\":\"none\"}]";
+        JsonArray rows = rows(json);
+        ColumnarItems items = ColumnarItems.from(rows);
+
+        assertEquals(rows.get(0), items.row(0).toJsonObject());
+        assertEquals(rows.get(1), items.row(1).toJsonObject());
+        assertTrue(items.row(0).toJsonObject().get("serial").getAsJsonPrimitive().isNumber());
+        assertTrue(items.row(1).toJsonObject().get("serial").getAsJsonPrimitive().isString());
+        assertTrue(items.row(0).toJsonObject().get("active").getAsJsonPrimitive().isBoolean());
+        // the number and the string 12 have the same text
+        assertEquals(2, items.count("serial", "12"));
+        assertEquals("0.5", items.row(0).getString("ratio"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void row_outOfRange() {
+        ColumnarItems.from(rows("[{\"id\":1}]")).row(1);
+    }
+}
@@ -0,0 +1,169 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.store;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EntityTreeTest {
+
+    /**
+     * 0 Root, 1 and 2 under 0, 3 under 1, 4 under 3
+     */
+    private static EntityTree tree() {
+        JsonArray entities = new JsonParser().parse("["
+                + "{\"id\":0,\"entities_id\":0,\"completename\":\"Root\"},"
+                + "{\"id\":1,\"entities_id\":0,\"completename\":\"Root > A\"},"
+                + "{\"id\":2,\"entities_id\":\"0\",\"name\":\"B\"},"
+                + "{\"id\":\"3\",\"entities_id\":1},"
+                + "{\"id\":4,\"entities_id\":3}]").getAsJsonArray();
+        return new EntityTree(entities);
+    }
+
+    @Test
+    public void isAncestor() {
+        EntityTree tree = tree();
+
+        assertTrue(tree.isAncestor(0, 4, false));
+        assertTrue(tree.isAncestor(1, 4, false));
+        assertFalse(tree.isAncestor(2, 4, false));
+        assertFalse(tree.isAncestor(4, 1, false));
+        assertFalse(tree.isAncestor(3, 3, false));
+        assertTrue(tree.isAncestor(3, 3, true));
+        assertFalse(tree.isAncestor(9, 3, true));
+    }
+
+    @Test
+    public void descendantsAncestorsAndDepth() {
+        EntityTree tree = tree();
+
+        assertArrayEquals(new int[]{1, 3, 4}, tree.getDescendants(1, true));
+        assertArrayEquals(new int[]{3, 4}, tree.getDescendants(1, false));
+        assertEquals(5, tree.getDescendants(0, true).length);
+        assertArrayEquals(new int[0], tree.getDescendants(9, true));
+        assertArrayEquals(new int[]{3, 1, 0}, tree.getAncestors(4));
+        assertArrayEquals(new int[0], tree.getAncestors(0));
+        assertEquals(3, tree.getDepth(4));
+        assertEquals(0, tree.getDepth(0));
+        assertEquals(-1, tree.getDepth(9));
+        assertEquals(-1, tree.getParent(0));
+        assertEquals(3, tree.getParent(4));
+    }
+
+    @Test
+    public void names() {
+        EntityTree tree = tree();
+
+        assertEquals("Root > A", tree.getName(1));
+        assertEquals("B", tree.getName(2));
+        assertNull(tree.getName(3));
+    }
+
+    @Test
+    public void put_movesTheSubtree() {
+        EntityTree tree = tree();
+        assertTrue(tree.isAncestor(1, 4, false));
+
+        tree.put(3, 2);
+        assertFalse(tree.isAncestor(1, 4, false));
+        assertTrue(tree.isAncestor(2, 4, false));
+        assertArrayEquals(new int[]{2, 0}, tree.getAncestors(3));
+    }
+
+    @Test
+    public void remove_makesTheChildrenRoots() {
+        EntityTree tree = tree();
+        tree.remove(1);
+
+        assertFalse(tree.contains(1));
+        assertEquals(4, tree.size());
+        assertFalse(tree.isAncestor(0, 3, false));
+        assertEquals(-1, tree.getParent(3));
+        assertArrayEquals(new int[]{3, 4}, tree.getDescendants(3, true));
+    }
+
+    @Test
+    public void filter_keepsTheRowsOfTheEntityAndItsDescendants() {
+        EntityTree tree = tree();
+        JsonArray rows = new JsonParser().parse("["
+                + "{\"id\":10,\"entities_id\":1},"
+                + "{\"id\":11,\"entities_id\":4},"
+                + "{\"id\":12,\"entities_id\":2},"
+                + "{\"id\":13,\"entities_id\":\"Root > A\"},"
+                + "{\"id\":14}]").getAsJsonArray();
+
+        List<JsonObject> recursive = tree.filter(rows, "entities_id", 1, true);
+        assertEquals(2, recursive.size());
+        assertEquals(10, recursive.get(0).get("id").getAsInt());
+        assertEquals(11, recursive.get(1).get("id").getAsInt());
+        assertEquals(1, tree.filter(rows, "entities_id", 1, false).size());
+        assertTrue(tree.filter(rows, "entities_id", 9, true).isEmpty());
+    }
+
+    @Test
+    public void deepTree_doesNotOverflowTheStack() {
+        EntityTree tree = new EntityTree();
+        int depth = 100000;
+        tree.put(0, -1);
+        for (int i = 1; i < depth; i++) {
+            tree.put(i, i - 1);
+        }
+
+        assertTrue(tree.isAncestor(0, depth - 1, false));
+        assertEquals(depth - 1, tree.getDepth(depth - 1));
+        assertEquals(depth - 1, tree.getDescendants(0, false).length);
+    }
+
+    @Test
+    public void cycle_isNumberedOnce() {
+        EntityTree tree = new EntityTree();
+        tree.put(1, 2);
+        tree.put(2, 1);
+        tree.put(3, -1);
+
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.getDescendants(3, true).length);
+        assertTrue(tree.getDepth(1) >= 0);
+        assertTrue(tree.getDepth(2) >= 0);
+        assertTrue(tree.isAncestor(1, 2, false) != tree.isAncestor(2, 1, false));
+    }
+
+    @Test
+    public void myEntityIds() {
+        JsonObject myEntities = new JsonParser().parse("{\"myentities\":["
+                + "{\"id\":0,\"name\":\"Root\"},{\"id\":\"4\"},{\"name\":\"no id\"}]}").getAsJsonObject();
+
+        assertArrayEquals(new int[]{0, 4}, EntityTree.myEntityIds(myEntities));
+        assertArrayEquals(new int[0], EntityTree.myEntityIds(new JsonObject()));
+    }
+}
@@ -0,0 +1,198 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.store;
+
+import com.google.gson.JsonObject;
+
+import org.glpi.api.itemType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class LocalMirrorTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("mirror", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static JsonObject computer(int id, String name) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", id);
+        item.addProperty("name", name);
+        item.addProperty("entities_id", 0);
+        return item;
+    }
+
+    private static HashSet<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void get_andList_returnCopies() throws IOException {
+        LocalMirror mirror = new LocalMirror(directory);
+        JsonObject item = computer(1, "pc-1");
+        mirror.upsert("Computer", item);
+        item.addProperty("entities_id", 5);
+
+        mirror.get(itemType.Computer, "1").addProperty("name", "changed");
+        mirror.query(itemType.Computer).list().get(0).addProperty("entities_id", 7);
+
+        assertEquals(computer(1, "pc-1"), mirror.get(itemType.Computer, "1"));
+        assertEquals(1, mirror.query(itemType.Computer).where("entities_id", 0).count());
+        assertEquals(0, mirror.query(itemType.Computer).where("entities_id", 7).count());
+        mirror.close();
+    }
+
+    @Test
+    public void reload_replaysTheAppendedChanges() throws IOException {
+        LocalMirror mirror = new LocalMirror(directory);
+        mirror.upsert("Computer", computer(1, "pc-1"));
+        mirror.upsert("Computer", computer(2, "pc-2"));
+        mirror.upsert("Computer", computer(1, "renamed"));
+        mirror.delete("Computer", "2");
+        mirror.setHighWaterMark("Computer", "2017-10-01 10:00:00");
+        mirror.close();
+
+        LocalMirror reloaded = new LocalMirror(directory);
+        assertEquals(ids("1"), reloaded.ids("Computer"));
+        assertEquals(computer(1, "renamed"), reloaded.get(itemType.Computer, "1"));
+        assertEquals("2017-10-01 10:00:00", reloaded.getHighWaterMark("Computer"));
+        reloaded.close();
+    }
+
+    @Test
+    public void reload_afterSnapshotReadsTheSnapshotAndTheLaterChanges() throws IOException {
+        LocalMirror mirror = new LocalMirror(directory);
+        mirror.upsert("Computer", computer(1, "pc-1"));
+        mirror.upsert("Computer", computer(2, "pc-2"));
+        mirror.snapshot();
+        assertFalse(new File(directory, "Computer.jsonl").exists());
+
+        mirror.upsert("Computer", computer(3, "pc-3"));
+        mirror.delete("Computer", "1");
+        mirror.close();
+
+        LocalMirror reloaded = new LocalMirror(directory);
+        assertEquals(ids("2", "3"), reloaded.ids("Computer"));
+        assertEquals(computer(2, "pc-2"), reloaded.get(itemType.Computer, "2"));
+        assertEquals(1, reloaded.query(itemType.Computer).where("name", "pc-3").count());
+        reloaded.close();
+    }
+
+    @Test
+    public void reload_afterCompactDoesNotBringBackTheItemsDeletedSinceTheSnapshot() throws IOException {
+        LocalMirror mirror = new LocalMirror(directory);
+        mirror.upsert("Computer", computer(1, "pc-1"));
+        mirror.upsert("Computer", computer(2, "pc-2"));
+        mirror.snapshot();
+        mirror.delete("Computer", "1");
+        mirror.compact();
+        mirror.close();
+
+        assertFalse(new File(directory, "Computer.snap").exists());
+        LocalMirror reloaded = new LocalMirror(directory);
+        assertEquals(ids("2"), reloaded.ids("Computer"));
+        assertNull(reloaded.get(itemType.Computer, "1"));
+        assertEquals(0, reloaded.query(itemType.Computer).where("name", "pc-1").count());
+        reloaded.close();
+    }
+
+    @Test
+    public void reload_compactedFileWithAnOlderSnapshotReplacesItsItems() throws IOException {
+        LocalMirror mirror = new LocalMirror(directory);
+        mirror.upsert("Computer", computer(1, "pc-1"));
+        mirror.upsert("Computer", computer(2, "pc-2"));
+        mirror.snapshot();
+        File snapshot = new File(directory, "Computer.snap");
+        byte[] saved = Files.readAllBytes(snapshot.toPath());
+
+        // a crash between the rename of the compacted file and the delete of the snapshot
+        mirror.delete("Computer", "1");
+        mirror.compact();
+        mirror.close();
+        Files.write(snapshot.toPath(), saved);
+
+        LocalMirror reloaded = new LocalMirror(directory);
+        assertEquals(ids("2"), reloaded.ids("Computer"));
+        reloaded.close();
+    }
+
+    @Test
+    public void snapshot_replacesThePreviousSnapshot() throws IOException {
+        LocalMirror mirror = new LocalMirror(directory);
+        mirror.upsert("Computer", computer(1, "pc-1"));
+        mirror.snapshot();
+        mirror.upsert("Computer", computer(1, "renamed"));
+        mirror.upsert("Computer", computer(2, "pc-2"));
+        mirror.snapshot();
+        mirror.close();
+
+        assertFalse(new File(directory, "Computer.snap.tmp").exists());
+        LocalMirror reloaded = new LocalMirror(directory);
+        assertEquals(ids("1", "2"), reloaded.ids("Computer"));
+        assertEquals(computer(1, "renamed"), reloaded.get(itemType.Computer, "1"));
+        reloaded.close();
+    }
+
+    @Test
+    public void query_usesTheIndexesAndTheOtherFields() throws IOException {
+        LocalMirror mirror = new LocalMirror(directory);
+        mirror.upsert("Computer", computer(1, "pc"));
+        mirror.upsert("Computer", computer(2, "pc"));
+        JsonObject other = computer(3, "pc");
+        other.addProperty("entities_id", 1);
+        mirror.upsert("Computer", other);
+
+        assertEquals(3, mirror.query(itemType.Computer).where("name", "pc").count());
+        assertEquals(Arrays.asList("3"), mirror.query(itemType.Computer).where("name", "pc").where("entities_id", 1).ids());
+        assertEquals(1, mirror.query(itemType.Computer).where("name", "pc").limit(1).list().size());
+        mirror.close();
+    }
+}
@@ -0,0 +1,228 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.sync;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetAllItemQuery;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChangeFeedTest {
+
+    private static final long TIMEOUT = 5;
+
+    private static ChangeFeed feed(FakeServer server, long lastSeenId) {
+        ChangeFeed feed = new ChangeFeed(server, null, lastSeenId);
+        feed.setInterval(5, 5);
+        feed.setPageSize(2);
+        return feed;
+    }
+
+    @Test
+    public void start_skipsThePastEntriesWithoutLastSeenId() throws Exception {
+        FakeServer server = new FakeServer();
+        server.log("Computer", "1");
+        server.log("Computer", "2");
+        ChangeFeed feed = feed(server, -1);
+        Listener listener = new Listener();
+
+        feed.start(listener);
+        server.awaitRequests(2);
+        server.log("Monitor", "7");
+        List<ChangeEvent> events = listener.next();
+        feed.stop();
+
+        assertEquals(1, events.size());
+        assertEquals("Monitor", events.get(0).getItemType());
+        assertEquals("7", events.get(0).getItemsId());
+        assertEquals(3, feed.getLastSeenId());
+        assertNull(listener.error);
+    }
+
+    @Test
+    public void poll_groupsTheEntriesAfterTheLastSeenId() throws Exception {
+        FakeServer server = new FakeServer();
+        server.log("Computer", "1");
+        server.log("Computer", "2");
+        server.log("Computer", "1");
+        server.log("Ticket", "5");
+        server.log("Computer", "2");
+        ChangeFeed feed = feed(server, 1);
+        Listener listener = new Listener();
+
+        feed.start(listener);
+        List<ChangeEvent> events = listener.next();
+        feed.stop();
+
+        // entries 2 to 5 read in pages of 2, ordered by their most recent entry
+        assertEquals(3, events.size());
+        assertEquals("Computer/1", key(events.get(0)));
+        assertEquals(1, events.get(0).getEntries());
+        assertEquals(3, events.get(0).getLastLogId());
+        assertEquals("Ticket/5", key(events.get(1)));
+        assertEquals("Computer/2", key(events.get(2)));
+        assertEquals(2, events.get(2).getEntries());
+        assertEquals(5, events.get(2).getLastLogId());
+        assertEquals(5, feed.getLastSeenId());
+    }
+
+    @Test
+    public void poll_handlesAnEmptyLog() throws Exception {
+        FakeServer server = new FakeServer();
+        ChangeFeed feed = feed(server, 0);
+        Listener listener = new Listener();
+
+        feed.start(listener);
+        server.awaitRequests(3);
+        feed.stop();
+
+        assertNull(listener.error);
+        assertTrue(listener.events.isEmpty());
+        assertEquals(0, feed.getLastSeenId());
+    }
+
+    @Test
+    public void start_afterStopGoesOnFromTheLastSeenId() throws Exception {
+        FakeServer server = new FakeServer();
+        server.log("Computer", "1");
+        ChangeFeed feed = feed(server, 0);
+        Listener first = new Listener();
+
+        feed.start(first);
+        assertEquals("Computer/1", key(first.next().get(0)));
+        feed.stop();
+        assertFalse(feed.isRunning());
+
+        server.log("Computer", "2");
+        Listener second = new Listener();
+        feed.start(second);
+        List<ChangeEvent> events = second.next();
+        feed.stop();
+
+        assertEquals(1, events.size());
+        assertEquals("Computer/2", key(events.get(0)));
+        assertEquals(2, feed.getLastSeenId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_twice() {
+        ChangeFeed feed = feed(new FakeServer(), 0);
+        feed.start(new Listener());
+        try {
+            feed.start(new Listener());
+        } finally {
+            feed.stop();
+        }
+    }
+
+    private static String key(ChangeEvent event) {
+        return event.getItemType() + "/" + event.getItemsId();
+    }
+
+    /**
+     * GLPI serving a Log sorted by id descending, an empty range fails like the server
+     */
+    private static class FakeServer extends GLPI {
+        private final List<JsonObject> rows = new ArrayList<>();
+        private int requests = 0;
+
+        FakeServer() {
+            super(null, "http://localhost/apirest.php/");
+        }
+
+        synchronized void log(String itemType, String itemsId) {
+            JsonObject row = new JsonObject();
+            row.addProperty("id", rows.size() + 1);
+            row.addProperty("itemtype", itemType);
+            row.addProperty("items_id", itemsId);
+            rows.add(row);
+        }
+
+        synchronized void awaitRequests(int count) throws InterruptedException {
+            long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+            while (requests < count && System.currentTimeMillis() < end) {
+                wait(10);
+            }
+            assertTrue(requests >= count);
+        }
+
+        @Override
+        public void getAllItems(itemType itemType, GetAllItemQuery query, ResponseHandle<JsonArray, String> callback) {
+            assertEquals(itemType.Log, itemType);
+            assertEquals("id", query.getQuery().get("sort"));
+            assertEquals("DESC", query.getQuery().get("order"));
+            String[] range = query.getQuery().get("range").split("-");
+            int start = Integer.parseInt(range[0]);
+            int end = Integer.parseInt(range[1]);
+
+            JsonArray page = new JsonArray();
+            synchronized (this) {
+                requests++;
+                notifyAll();
+                for (int i = start; i <= end && i < rows.size(); i++) {
+                    page.add(rows.get(rows.size() - 1 - i));
+                }
+            }
+            if (page.size() == 0) {
+                callback.onFailure("[\"ERROR_RANGE_EXCEED_TOTAL\",\"Provided range exceed total count of data\"]");
+                return;
+            }
+            callback.onResponse(page);
+        }
+    }
+
+    private static class Listener implements ChangeFeed.Listener {
+        final BlockingQueue<List<ChangeEvent>> events = new LinkedBlockingQueue<>();
+        volatile String error;
+
+        List<ChangeEvent> next() throws InterruptedException {
+            List<ChangeEvent> changes = events.poll(TIMEOUT, TimeUnit.SECONDS);
+            assertNotNull(changes);
+            return changes;
+        }
+
+        @Override
+        public void onChanges(List<ChangeEvent> events) {
+            this.events.add(events);
+        }
+
+        @Override
+        public void onFailure(String errorMessage) {
+            error = errorMessage;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.sync;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.glpi.api.itemType;
+import org.glpi.api.query.GetAllItemQuery;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class InventorySyncTest {
+
+    @Test
+    public void sync_readsAllTheRowsAndMovesTheMark() {
+        FakeServer server = new FakeServer(10);
+        MemorySyncStore store = new MemorySyncStore();
+        InventorySync sync = new InventorySync(server, null, store);
+        sync.setPageSize(4);
+
+        Listener listener = new Listener();
+        sync.sync(itemType.Computer, false, listener);
+
+        assertNull(listener.error);
+        assertEquals(10, store.ids("Computer").size());
+        assertEquals(date(10), store.getHighWaterMark("Computer"));
+    }
+
+    @Test
+    public void sync_keepsTheMarkWhenRowsMoveBetweenPages() {
+        FakeServer server = new FakeServer(10);
+        MemorySyncStore store = new MemorySyncStore();
+        InventorySync sync = new InventorySync(server, null, store);
+        sync.setPageSize(4);
+        sync.sync(itemType.Computer, false, new Listener());
+        assertEquals(date(10), store.getHighWaterMark("Computer"));
+
+        // every row changes, and after the first page a row of that page is trashed: the next
+        // rows move up one place
+        for (JsonObject row : server.live) {
+            row.addProperty("date_mod", date(10 + row.get("id").getAsInt()));
+        }
+        server.trashAfterFirstPage = "9";
+        sync.sync(itemType.Computer, false, new Listener());
+        assertEquals(date(10), store.getHighWaterMark("Computer"));
+
+        // the next sync reads the same window again, nothing is missed
+        sync.sync(itemType.Computer, false, new Listener());
+        assertEquals(9, store.ids("Computer").size());
+        assertFalse(store.ids("Computer").contains("9"));
+        assertEquals(date(25), store.getHighWaterMark("Computer"));
+    }
+
+    @Test
+    public void reconcile_removesThePurgedItems() {
+        FakeServer server = new FakeServer(6);
+        MemorySyncStore store = new MemorySyncStore();
+        InventorySync sync = new InventorySync(server, null, store);
+        sync.setPageSize(4);
+        sync.sync(itemType.Computer, false, new Listener());
+
+        server.live.remove(0);
+        Listener listener = new Listener();
+        sync.sync(itemType.Computer, true, listener);
+
+        assertTrue(listener.result.isReconciled());
+        assertEquals(5, store.ids("Computer").size());
+    }
+
+    private static String date(int day) {
+        return String.format("2017-01-%02d 10:00:00", day);
+    }
+
+    /**
+     * GLPI answering getAllItems from a list, like the server does for range, sort and is_deleted
+     */
+    private static class FakeServer extends GLPI {
+        final List<JsonObject> live = new ArrayList<>();
+        final List<JsonObject> trash = new ArrayList<>();
+        String trashAfterFirstPage;
+
+        FakeServer(int count) {
+            super(null, "http://localhost/apirest.php/");
+            for (int i = 1; i <= count; i++) {
+                JsonObject row = new JsonObject();
+                row.addProperty("id", i);
+                row.addProperty("date_mod", date(i));
+                live.add(row);
+            }
+        }
+
+        @Override
+        public void getAllItems(itemType itemType, GetAllItemQuery query, ResponseHandle<JsonArray, String> callback) {
+            Map<String, String> options = query.getQuery();
+            List<JsonObject> rows = new ArrayList<>("true".equals(options.get("is_deleted")) ? trash : live);
+            if ("true".equals(options.get("only_id"))) {
+                Collections.sort(rows, new Comparator<JsonObject>() {
+                    @Override
+                    public int compare(JsonObject a, JsonObject b) {
+                        return a.get("id").getAsInt() - b.get("id").getAsInt();
+                    }
+                });
+            } else {
+                Collections.sort(rows, new Comparator<JsonObject>() {
+                    @Override
+                    public int compare(JsonObject a, JsonObject b) {
+                        return b.get("date_mod").getAsString().compareTo(a.get("date_mod").getAsString());
+                    }
+                });
+            }
+
+            String[] range = options.get("range").split("-");
+            int start = Integer.parseInt(range[0]);
+            int end = Integer.parseInt(range[1]);
+            if (start > 0 && start >= rows.size()) {
+                callback.onFailure("[\"ERROR_RANGE_EXCEED_TOTAL\",\"\"]");
+                return;
+            }
+            JsonArray page = new JsonArray();
+            for (int i = start; i <= end && i < rows.size(); i++) {
+                page.add(rows.get(i));
+            }
+
+            if (trashAfterFirstPage != null && start == 0 && !"true".equals(options.get("is_deleted"))) {
+                for (JsonObject row : live) {
+                    if (row.get("id").getAsString().equals(trashAfterFirstPage)) {
+                        live.remove(row);
+                        row.addProperty("date_mod", date(25));
+                        trash.add(row);
+                        break;
+                    }
+                }
+                trashAfterFirstPage = null;
+            }
+            callback.onResponse(page);
+        }
+    }
+
+    private static class Listener implements InventorySync.SyncListener {
+        InventorySync.SyncResult result;
+        String error;
+
+        @Override
+        public void onComplete(itemType itemType, InventorySync.SyncResult result) {
+            this.result = result;
+        }
+
+        @Override
+        public void onFailure(itemType itemType, String errorMessage) {
+            error = errorMessage;
+        }
+    }
+}
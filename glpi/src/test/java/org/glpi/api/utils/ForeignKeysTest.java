@@ -0,0 +1,63 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import org.glpi.api.itemType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ForeignKeysTest {
+
+    @Test
+    public void itemTypeOf_plurals() {
+        assertEquals(itemType.Manufacturer, ForeignKeys.itemTypeOf("manufacturers_id"));
+        assertEquals(itemType.Entity, ForeignKeys.itemTypeOf("entities_id"));
+        assertEquals(itemType.State, ForeignKeys.itemTypeOf("states_id"));
+        assertEquals(itemType.ComputerModel, ForeignKeys.itemTypeOf("computermodels_id"));
+        assertEquals(itemType.SoftwareVersion, ForeignKeys.itemTypeOf("softwareversions_id"));
+        assertEquals(itemType.ITILCategory, ForeignKeys.itemTypeOf("itilcategories_id"));
+    }
+
+    @Test
+    public void itemTypeOf_suffix() {
+        assertEquals(itemType.User, ForeignKeys.itemTypeOf("users_id"));
+        assertEquals(itemType.User, ForeignKeys.itemTypeOf("users_id_tech"));
+        assertEquals(itemType.Group, ForeignKeys.itemTypeOf("groups_id_tech"));
+    }
+
+    @Test
+    public void itemTypeOf_otherFields() {
+        assertNull(ForeignKeys.itemTypeOf("id"));
+        assertNull(ForeignKeys.itemTypeOf("name"));
+        assertNull(ForeignKeys.itemTypeOf("items_id"));
+        assertNull(ForeignKeys.itemTypeOf("users_idx"));
+        assertNull(ForeignKeys.itemTypeOf("_users_id"));
+        assertNull(ForeignKeys.itemTypeOf("unknowns_id"));
+        assertFalse(ForeignKeys.isForeignKey("serial"));
+        assertTrue(ForeignKeys.isForeignKey("locations_id"));
+    }
+}
@@ -0,0 +1,101 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Heap retained by decoded getAllItems pages, with Gson and with {@link JsonDecoder} and an
+ * {@link InternTable}. The page is the fixture of {@link JsonDecoderTest}, decoded again and
+ * kept as many times as asked, like an app keeping a large inventory in memory.
+ *
+ * Run the main method from the IDE, or after the unit tests compiled:
+ * java -Xmx1g -cp (test classes):(classes):(gson) org.glpi.api.utils.JsonDecoderBenchmark 2000
+ */
+public class JsonDecoderBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String page = read(JsonDecoderTest.fixture());
+        int rows = new JsonParser().parse(page).getAsJsonArray().size();
+        System.out.println(pages + " pages of " + rows + " computers, " + page.length() / 1024 + " KB per page");
+
+        // warm up both paths before measuring
+        decode(page, 50, false);
+        decode(page, 50, true);
+
+        report("Gson", page, pages, false);
+        report("JsonDecoder + InternTable", page, pages, true);
+    }
+
+    private static void report(String name, String page, int pages, boolean interned) throws IOException {
+        long before = usedHeap();
+        long started = System.nanoTime();
+        List<JsonElement> kept = decode(page, pages, interned);
+        long elapsed = (System.nanoTime() - started) / 1000000;
+        long retained = usedHeap() - before;
+        System.out.println(String.format("%-28s %6d MB retained, %5d ms", name, retained / (1024 * 1024), elapsed));
+        if (kept.size() != pages) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static List<JsonElement> decode(String page, int pages, boolean interned) throws IOException {
+        List<JsonElement> kept = new ArrayList<>(pages);
+        JsonDecoder decoder = new JsonDecoder(interned ? new InternTable() : null);
+        for (int i = 0; i < pages; i++) {
+            kept.add(interned ? decoder.decode(new StringReader(page)) : new JsonParser().parse(page).getAsJsonArray());
+        }
+        return kept;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) > 0) {
+            text.append(buffer, 0, read);
+        }
+        reader.close();
+        return text.toString();
+    }
+}
@@ -0,0 +1,138 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonDecoderTest {
+
+    static final String FIXTURE = "/fixtures/computers_expanded.json";
+
+    /**
+     * A page of 50 computers read with expand_dropdowns, the dropdown names repeat on every row
+     */
+    static Reader fixture() throws IOException {
+        InputStream stream = JsonDecoderTest.class.getResourceAsStream(FIXTURE);
+        if (stream == null) {
+            throw new IOException(FIXTURE + " not found");
+        }
+        return new InputStreamReader(stream, "UTF-8");
+    }
+
+    @Test
+    public void decode_givesTheSameTreeAsGson() throws IOException {
+        JsonElement expected = new JsonParser().parse(fixture());
+        JsonElement decoded = new JsonDecoder(new InternTable()).decode(fixture());
+        assertEquals(expected, decoded);
+    }
+
+    @Test
+    public void decode_sharesTheRepeatedTexts() throws IOException {
+        JsonArray rows = new JsonDecoder(new InternTable()).decode(fixture()).getAsJsonArray();
+        JsonArray again = new JsonDecoder(new InternTable()).decode(fixture()).getAsJsonArray();
+
+        // a value is stored the second time it is seen
+        String second = rows.get(1).getAsJsonObject().get("domains_id").getAsString();
+        String last = rows.get(rows.size() - 1).getAsJsonObject().get("domains_id").getAsString();
+        assertSame(second, last);
+        // without interning each row has its own copy
+        JsonArray plain = new JsonDecoder().decode(fixture()).getAsJsonArray();
+        assertNotSame(plain.get(0).getAsJsonObject().get("domains_id").getAsString(),
+                plain.get(1).getAsJsonObject().get("domains_id").getAsString());
+        assertEquals(rows, again);
+    }
+
+    @Test
+    public void decode_doesNotStoreTheValuesSeenOnce() throws IOException {
+        InternTable table = new InternTable();
+        JsonArray rows = new JsonDecoder(table).decode(new StringReader(
+                "[{\"id\":1,\"serial\":\"A1\",\"state\":\"In use\"},"
+                        + "{\"id\":2,\"serial\":\"B2\",\"state\":\"In use\"}]")).getAsJsonArray();
+
+        // the 3 keys and the repeated state, not the serials nor the ids
+        assertEquals(4, table.size());
+        assertSame(table.intern("In use"), rows.get(1).getAsJsonObject().get("state").getAsString());
+        assertSame(key(rows.get(0).getAsJsonObject(), "serial"), key(rows.get(1).getAsJsonObject(), "serial"));
+    }
+
+    private static String key(JsonObject object, String name) {
+        for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+            if (field.getKey().equals(name)) {
+                return field.getKey();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void internTable_keepsTheRoomForTheRepeatedValues() {
+        InternTable table = new InternTable();
+        for (int i = 0; i < 100000; i++) {
+            table.intern("serial-" + i);
+        }
+        // only the rare false positives of the filter are stored
+        assertTrue(table.size() < 500);
+        table.clear();
+
+        String shared = table.intern(new String("Dell"));
+        assertNotSame(shared, table.intern(new String("Dell")));
+        assertSame(table.intern(new String("Dell")), table.intern(new String("Dell")));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void decode_withFieldsKeepsOnlyThem() throws IOException {
+        JsonArray rows = new JsonDecoder().decode(fixture(), new HashSet<>(Arrays.asList("id", "name"))).getAsJsonArray();
+
+        assertEquals(50, rows.size());
+        JsonObject row = rows.get(0).getAsJsonObject();
+        assertEquals(2, row.entrySet().size());
+        assertEquals(1, row.get("id").getAsInt());
+    }
+
+    @Test
+    public void decode_withFieldsOnAnObject() throws IOException {
+        JsonElement item = new JsonDecoder().decode(new StringReader("{\"id\":3,\"name\":\"pc\",\"links\":[{\"a\":1}]}"),
+                new HashSet<>(Arrays.asList("id", "links")));
+        assertEquals(new JsonParser().parse("{\"id\":3,\"links\":[{\"a\":1}]}"), item);
+    }
+}
@@ -0,0 +1,115 @@
+/* ---------------------------------------------------------------------
+*
+*  LICENSE
+*
+*  This file is part of the GLPI API Client Library for Java,
+*  a subproject of GLPI. GLPI is a free IT Asset Management.
+*
+*  GLPI is free software: you can redistribute it and/or
+*  modify it under the terms of the GNU General Public License
+*  as published by the Free Software Foundation; either version 3
+*  of the License, or (at your option) any later version.
+*
+*  GLPI is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*  --------------------------------------------------------------------
+*  @author    Ivan Del Pino - <idelpino@teclib.com>
+*  @copyright (C) 2017 Teclib' and contributors.
+*  @license   GPLv3 https://www.gnu.org/licenses/gpl-3.0.html
+*  @link      https://github.com/glpi-project/java-library-glpi
+*  @link      http://www.glpi-project.org/
+*  --------------------------------------------------------------------
+*/
+
+package org.glpi.api.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.glpi.api.GLPI;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void join_sharesOneCall() {
+        RequestCoalescer<JsonArray> coalescer = new RequestCoalescer<>();
+        Collector first = new Collector();
+        Collector second = new Collector();
+
+        GLPI.ResponseHandle<JsonArray, String> call = coalescer.join("GET /Computer", first);
+        assertNotNull(call);
+        assertNull(coalescer.join("GET /Computer", second));
+        assertEquals(1, coalescer.size());
+
+        call.onResponse(rows());
+        assertEquals(0, coalescer.size());
+        assertEquals(1, first.responses.size());
+        assertEquals(1, second.responses.size());
+    }
+
+    @Test
+    public void onResponse_givesEachWaiterItsOwnCopy() {
+        RequestCoalescer<JsonArray> coalescer = new RequestCoalescer<>();
+        Collector first = new Collector() {
+            @Override
+            public void onResponse(JsonArray response) {
+                super.onResponse(response);
+                response.get(0).getAsJsonObject().addProperty("name", "changed");
+            }
+        };
+        Collector second = new Collector();
+
+        GLPI.ResponseHandle<JsonArray, String> call = coalescer.join("GET /Computer", first);
+        coalescer.join("GET /Computer", second);
+        call.onResponse(rows());
+
+        assertNotSame(first.responses.get(0), second.responses.get(0));
+        assertEquals("pc-1", second.responses.get(0).get(0).getAsJsonObject().get("name").getAsString());
+    }
+
+    @Test
+    public void onFailure_reachesEveryWaiter() {
+        RequestCoalescer<JsonArray> coalescer = new RequestCoalescer<>();
+        Collector first = new Collector();
+        Collector second = new Collector();
+
+        GLPI.ResponseHandle<JsonArray, String> call = coalescer.join("GET /Computer", first);
+        coalescer.join("GET /Computer", second);
+        call.onFailure("ERROR");
+
+        assertEquals("ERROR", first.error);
+        assertEquals("ERROR", second.error);
+    }
+
+    private static JsonArray rows() {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", 1);
+        item.addProperty("name", "pc-1");
+        JsonArray rows = new JsonArray();
+        rows.add(item);
+        return rows;
+    }
+
+    private static class Collector implements GLPI.ResponseHandle<JsonArray, String> {
+        final List<JsonArray> responses = new ArrayList<>();
+        String error;
+
+        @Override
+        public void onResponse(JsonArray response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onFailure(String errorMessage) {
+            error = errorMessage;
+        }
+    }
+}